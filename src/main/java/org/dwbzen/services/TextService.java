@@ -1,8 +1,12 @@
 package org.dwbzen.services;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
@@ -16,12 +20,14 @@ import javax.ws.rs.core.MediaType;
 
 import org.dwbzen.common.cp.MarkovChain;
 import org.dwbzen.text.cp.CharacterCollector;
+import org.dwbzen.text.cp.MappedMarkovChain;
 import org.dwbzen.text.cp.WordProducer;
 import org.dwbzen.text.element.Sentence;
 import org.dwbzen.text.element.Word;
 import org.dwbzen.text.pos.DictionaryManager;
 import org.dwbzen.text.pos.IPartsOfSpeechManager;
 import org.dwbzen.text.pos.TextGenerator;
+import org.dwbzen.text.util.Configuration;
 
 @Path("/TextService") 
 public class TextService {
@@ -30,6 +36,8 @@ public class TextService {
 	private CharacterCollector collector = null;
 	private WordProducer producer = null;
 	private IPartsOfSpeechManager partsOfSpeechManager = DictionaryManager.instance();
+	private static String modelDirectory = Configuration.getInstance("/config.properties").getProperties().getProperty("MODEL_DIR");
+	private static Map<String, MappedMarkovChain> mappedMarkovChains = new ConcurrentHashMap<>();	// shared by all requests
 	
 	@GET 
 	@Path("/{typeid}/{number}") 
@@ -141,19 +149,27 @@ public class TextService {
 	
 	public List<String> generateFromWordProducer(String type, String postProcessing, int order, int num, String queryParams) {
 		List<String> generatedText = new ArrayList<>();
-		List<String> fileLines = textDao.loadResource(type, queryParams);
 		boolean ignoreCase = true;
 		boolean pickInitialSeed = true;
-		// Step 1 - run the CharacterCollector
-		collector = new CharacterCollector(order, fileLines, ignoreCase);
-		collector.setTrace(false);
-		collector.collect();
-		MarkovChain<Character, Word, Sentence> markovChain = collector.getMarkovChain();
-		
-		// Step 2 - run WordProducer using the MarkovChain result from the collector
-		markovChain.setPickInitialSeed(pickInitialSeed);
-		Word seed = markovChain.pickSeed();
-		producer = WordProducer.instance(order, markovChain, seed);
+		MappedMarkovChain mappedMarkovChain = getMappedMarkovChain(type, order, queryParams);
+		if(mappedMarkovChain != null) {
+			// a pre-trained model, nothing to collect
+			mappedMarkovChain.setPickInitialSeed(pickInitialSeed);
+			producer = WordProducer.instance(order, mappedMarkovChain, mappedMarkovChain.pickSeed());
+		}
+		else {
+			// Step 1 - run the CharacterCollector
+			List<String> fileLines = textDao.loadResource(type, queryParams);
+			collector = new CharacterCollector(order, fileLines, ignoreCase);
+			collector.setTrace(false);
+			collector.collect();
+			MarkovChain<Character, Word, Sentence> markovChain = collector.getMarkovChain();
+			
+			// Step 2 - run WordProducer using the MarkovChain result from the collector
+			markovChain.setPickInitialSeed(pickInitialSeed);
+			Word seed = markovChain.pickSeed();
+			producer = WordProducer.instance(order, markovChain, seed);
+		}
 		producer.setNumberOfWords(num);
 		producer.setMinimumWordLength(5);
 		producer.setMaximumLength(10);
@@ -168,6 +184,35 @@ public class TextService {
 		return generatedText;
 	}
 	
+	/**
+	 * Gets the memory-mapped character model for a WordProducer type if there is one in MODEL_DIR.<br>
+	 * Models are written by CharacterCollectorRunner -ignoreCase -saveMapped and named type-order.mmc,
+	 * or type-gender-order.mmc for firstNames. For example firstNames-female-3.mmc
+	 * @param type
+	 * @param order
+	 * @param queryParams
+	 * @return MappedMarkovChain or null if MODEL_DIR is not configured or there is no model
+	 */
+	protected MappedMarkovChain getMappedMarkovChain(String type, int order, String queryParams) {
+		if(modelDirectory == null || order > MappedMarkovChain.MAX_ORDER) {
+			return null;
+		}
+		String name = type.equalsIgnoreCase("firstNames") ? type + "-" + (queryParams.equalsIgnoreCase("male") ? "male" : "female") : type;
+		File modelFile = new File(modelDirectory, name + "-" + order + ".mmc");
+		if(!modelFile.exists()) {
+			return null;
+		}
+		return mappedMarkovChains.computeIfAbsent(modelFile.getPath(), filename -> {
+			try {
+				return MappedMarkovChain.openCharacterChain(filename);
+			}
+			catch(IOException e) {
+				System.err.println("Could not open " + filename + " " + e.toString());
+				return null;
+			}
+		});
+	}
+	
 	public static String formatWord(Word word, String postProcessing) {
 		String wordString = null;
 		if(postProcessing.equalsIgnoreCase("NC")) {
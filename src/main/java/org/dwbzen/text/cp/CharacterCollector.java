@@ -1,8 +1,18 @@
 package org.dwbzen.text.cp;
 
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -39,24 +49,56 @@ import org.dwbzen.text.element.Word;
  * As is evident from the data, there is no Word where DA is followed by a Character.
  * This is indicated by the stand-in Character value for null ''
  * Start of a Word is indicated by a leading space as in " DO" 
- * Running the CharacterCollector on the sample in trace mode shows how the data is processed.
+ * Running the CharacterCollector on the sample in trace mode shows how the data is processed.</p>
  * 
+ * Large word lists can be collected in parallel, see setParallelism(int).
+ * The resulting chain is the same as when collected sequentially.</p>
+ * 
+ * New words can be added to a chain that producers are using, see update(List).</p>
+ * 
+ * With setMinimumOrder(int) the MarkovChain holds the keys of every order from the minimum to the order,
+ * collected together in one pass. WordProducer backs off to shorter keys of such a chain.</p>
+ * 
+ * How much is kept of the Word each occurrence came from (its supplier) is set by setSupplierTracking.
+ * Tracking suppliers as Sentences, the default, uses most of the heap of a large chain.</p>
+ * 
+ * With setReverse(true) each Word is collected right to left, so the initial keys are the ends of Words.
+ * WordProducer generates Words with a given suffix from such a chain, see WordProducer.setSuffixes.
  * 
  * @author don_bacon
  *
  */
 public class CharacterCollector implements ICollector<Word, MarkovChain<Character, Word, Sentence>, Sentence> {
 	protected static final Logger log = LogManager.getLogger(CharacterCollector.class);
+	
+	/**
+	 * What is kept of the Word each occurrence of a MarkovChain came from.<br>
+	 * OFF - nothing<br>
+	 * COUNT - the number of Words each key occurs in, see getSupplierCount(Word)<br>
+	 * WORD_ID - the number of each Word a key occurs in, see getSupplierWordIds(Word) and getSupplierWord(int)<br>
+	 * SENTENCE - a Sentence per occurrence, added to the CollectorStats as its supplier
+	 */
+	public static enum SupplierTracking {OFF, COUNT, WORD_ID, SENTENCE}
+	
 	private boolean ignoreCase = true; 
 	private int order; 
+	private int minimumOrder = 0;	// shortest keys collected, 0 is the same as order
 	private String[] fileNames = {};
 	private String partsOfSpeach = null;	// only applies to parts of speech files
 	private StringBuilder text = new StringBuilder();
 	private boolean trace = false;
 	private Character[] filters = {'-', '.'};	// filters words not to include if they contain these characters
 	private MarkovChain<Character, Word, Sentence> markovChain = null;
+	private CharacterMarkovChain characterMarkovChain = null;	// if set, collect into this instead of markovChain
 	private Sentence sentence = null;	// current Sentence we are collecting Words in
 	private Word word = null;	// current Word we are scanning
+	private int parallelism = 1;	// number of ForkJoinPool workers, 1 collects sequentially
+	private boolean reverse = false;	// collect Words right to left
+	private SupplierTracking supplierTracking = SupplierTracking.SENTENCE;
+	private int numberOfWords = 0;		// word ids assigned so far
+	private List<String> supplierWords = new ArrayList<>();	// Word strings by word id, WORD_ID only
+	private Map<Word, int[]> supplierIds = new ConcurrentHashMap<>();	// {count, word ids...} or {count, last word id} by key
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();	// guards updates to a live chain
 	
 	/**
 	 * Constructor for TextService
@@ -98,12 +140,175 @@ public class CharacterCollector implements ICollector<Word, MarkovChain<Characte
 	@Override
 	public void collect() {
 		sentence = new Sentence(text.toString(), true);
-		accept(sentence);
+		if(parallelism > 1) {
+			collectParallel(sentence);
+		}
+		else {
+			accept(sentence);
+		}
 	}
 	
 	@Override
 	public void collect(List<Word> words) {
-		words.stream().forEach(w -> apply(w));
+		if(parallelism > 1) {
+			collectParallel(words);
+		}
+		else {
+			words.stream().forEach(w -> apply(w));
+		}
+	}
+	
+	/**
+	 * Adds the words of more lines to the chain already collected, for example new entries in a word list.<br>
+	 * Lines are converted as in the TextService constructor: lower case if ignoring case, then split into Words.</p>
+	 * 
+	 * Only the states the new words pass through change. Producers rebuild the SamplingTable of a changed state
+	 * the next time they visit it (see SamplingTable.isCurrent), all other tables are kept.<br>
+	 * The update holds the write lock of getLock(). A producer given the same lock with setLock
+	 * sees the chain either before or after an update, never part way through.
+	 * @param lines
+	 * @return the number of Words added
+	 */
+	public int update(List<String> lines) {
+		int wordsAdded = 0;
+		lock.writeLock().lock();
+		try {
+			for(String line : lines) {
+				Sentence lineSentence = new Sentence(ignoreCase ? line.toLowerCase() : line, true);
+				Word theWord = null;
+				while((theWord = lineSentence.get()) != null) {
+					apply(theWord);
+					wordsAdded++;
+				}
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		return wordsAdded;
+	}
+	
+	/**
+	 * @return the lock that update(List) holds for writing. Producers of this chain hold it for reading.
+	 * @see WordProducer#setLock(ReadWriteLock)
+	 */
+	public ReadWriteLock getLock() {
+		return lock;
+	}
+	
+	/**
+	 * Collects words using parallelism workers in a ForkJoinPool.<br>
+	 * A CharacterMarkovChain is collected by splitting the words into consecutive ranges,
+	 * each collected into its own chain, and merging the partial chains in input order.</p>
+	 * 
+	 * A MarkovChain is collected by first assigning the keys of every word to the worker that owns them,
+	 * see partition(int, int), in one pass over the words. Each worker then adds only its own keys, in input order.
+	 * The partial chains have disjoint keys, and the CollectorStats of each key sees its occurrences in input order,
+	 * so the partial chains are simply put into the MarkovChain.
+	 * If the MarkovChain already has keys the words are collected sequentially.
+	 * @param words
+	 */
+	protected void collectParallel(List<Word> words) {
+		if(characterMarkovChain == null && !markovChain.isEmpty()) {
+			log.debug("MarkovChain is not empty, collecting sequentially");
+			words.stream().forEach(w -> apply(w));
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			if(characterMarkovChain != null) {
+				int threshold = Math.max(1, (words.size() + parallelism - 1) / parallelism);
+				characterMarkovChain.merge(pool.invoke(new CompactCollectorTask(words, 0, words.size(), threshold)));
+			}
+			else {
+				int firstWordId = numberOfWords;
+				words.forEach(w -> addSupplierWord(w));
+				String[] wordStrings = new String[words.size()];
+				KeyPositions[] keyPositions = partition(words, wordStrings);
+				List<Callable<MarkovChain<Character, Word, Sentence>>> workers = new ArrayList<>();
+				for(KeyPositions workerPositions : keyPositions) {
+					workers.add(() -> {
+						MarkovChain<Character, Word, Sentence> partialChain = new MarkovChain<Character, Word, Sentence>(order);
+						for(int n=0; n<workerPositions.size(); n++) {
+							long position = workerPositions.get(n);
+							int wordIndex = KeyPositions.index(position);
+							addKey(partialChain, words.get(wordIndex), wordStrings[wordIndex], KeyPositions.start(position), KeyPositions.keyOrder(position), firstWordId + wordIndex);
+						}
+						return partialChain;
+					});
+				}
+				for(Future<MarkovChain<Character, Word, Sentence>> partialChain : pool.invokeAll(workers)) {
+					markovChain.putAll(partialChain.get());
+				}
+			}
+		}
+		catch(InterruptedException | ExecutionException e) {
+			log.error("parallel collect failed: " + e.toString());
+			throw new RuntimeException(e);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Assigns every key of the words to the worker that owns it.
+	 * @param words
+	 * @param wordStrings set to the delimited String of each word, null if the word is filtered
+	 * @return the key positions of each worker, in input order
+	 */
+	private KeyPositions[] partition(List<Word> words, String[] wordStrings) {
+		KeyPositions[] keyPositions = KeyPositions.of(parallelism);
+		for(int wordIndex=0; wordIndex<words.size(); wordIndex++) {
+			Word theWord = words.get(wordIndex);
+			if(shouldFilter(theWord)) {
+				continue;
+			}
+			String wordString = delimited(theWord);
+			wordStrings[wordIndex] = wordString;
+			for(int keyOrder=getMinimumOrder(); keyOrder<=order; keyOrder++) {
+				int lim = wordString.length() - keyOrder + 1;
+				for(int start=0; lim >= 0 && start<=lim; start++) {
+					keyPositions[partition(keyHash(wordString, start, keyOrder), parallelism)].add(wordIndex, start, keyOrder);
+				}
+			}
+		}
+		return keyPositions;
+	}
+	
+	/**
+	 * Collects a range of words into a CharacterMarkovChain, splitting ranges larger than threshold in two.
+	 */
+	private class CompactCollectorTask extends RecursiveTask<CharacterMarkovChain> {
+		private static final long serialVersionUID = 1L;
+		private final List<Word> words;
+		private final int fromIndex;
+		private final int toIndex;
+		private final int threshold;
+		
+		CompactCollectorTask(List<Word> words, int fromIndex, int toIndex, int threshold) {
+			this.words = words;
+			this.fromIndex = fromIndex;
+			this.toIndex = toIndex;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected CharacterMarkovChain compute() {
+			if(toIndex - fromIndex <= threshold) {
+				CharacterMarkovChain partialChain = new CharacterMarkovChain(order);
+				for(int i=fromIndex; i<toIndex; i++) {
+					applyCompact(words.get(i), partialChain);
+				}
+				return partialChain;
+			}
+			int mid = (fromIndex + toIndex) >>> 1;
+			CompactCollectorTask right = new CompactCollectorTask(words, mid, toIndex, threshold);
+			right.fork();
+			CharacterMarkovChain partialChain = new CompactCollectorTask(words, fromIndex, mid, threshold).compute();
+			partialChain.merge(right.join());
+			return partialChain;
+		}
 	}
 
 	@Override
@@ -116,57 +321,233 @@ public class CharacterCollector implements ICollector<Word, MarkovChain<Characte
 
 	@Override
 	public MarkovChain<Character, Word, Sentence> apply(Word theWord) {
-		Word word = new Word(Word.DELIM_STRING, theWord);	// space is the word delimiter
-		Word subset = null;
-		Character nextChar = null;
-		logMessage("apply(word): '" + word + "'");
-		int numberOfTokens = word.size();
+		if(characterMarkovChain != null) {
+			applyCompact(theWord, characterMarkovChain);
+		}
+		else {
+			apply(theWord, markovChain, addSupplierWord(theWord));
+		}
+		return markovChain;
+	}
+	
+	/**
+	 * @return the word id of theWord
+	 */
+	private int addSupplierWord(Word theWord) {
+		if(supplierTracking == SupplierTracking.WORD_ID) {
+			supplierWords.add(theWord.getWordString());
+		}
+		return numberOfWords++;
+	}
+	
+	/**
+	 * Adds the keys of theWord to a MarkovChain, for each order minimumOrder to order.
+	 * @param theWord
+	 * @param chain the MarkovChain to add to
+	 * @param wordId the number of theWord, used by SupplierTracking COUNT and WORD_ID
+	 */
+	protected void apply(Word theWord, MarkovChain<Character, Word, Sentence> chain, int wordId) {
+		String wordString = delimited(theWord);
+		logMessage("apply(word): '" + wordString + "'");
+		if(shouldFilter(theWord)) {
+			return;
+		}
+		for(int keyOrder=getMinimumOrder(); keyOrder<=order; keyOrder++) {
+			int lim = wordString.length() - keyOrder + 1;
+			for(int start=0; lim >= 0 && start<=lim; start++) {
+				addKey(chain, theWord, wordString, start, keyOrder, wordId);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the key of keyOrder characters at start, and the character after it, to the MarkovChain.<br>
+	 * The last start, wordString.length() - keyOrder + 1, is the terminal state:
+	 * the last keyOrder-1 characters followed by TERMINAL.
+	 * @param chain the MarkovChain to add to
+	 * @param theWord
+	 * @param wordString the delimited Word string
+	 * @param start
+	 * @param keyOrder
+	 * @param wordId the number of theWord
+	 */
+	private void addKey(MarkovChain<Character, Word, Sentence> chain, Word theWord, String wordString, int start, int keyOrder, int wordId) {
+		int numberOfTokens = wordString.length();
+		int lim = numberOfTokens - keyOrder + 1;
+		if(start < lim) {
+			int index = start + keyOrder;
+			Word subset = new Word(wordString.substring(start, index));
+			Character nextChar = (index == numberOfTokens) ? Word.TERMINAL : wordString.charAt(index);
+			logMessage("  subset: '" + subset + "' next char: '" + nextChar + "'");
+			boolean initial = (start==0);	// start of a Word?
+			addOccurrence(chain, subset, nextChar, initial, theWord, wordId);
+		}
+		else {
+			Word subset = new Word(wordString.substring(lim));
+			subset.append(Word.TERMINAL);
+			log.debug("  terminal state, subset: '" + subset + "'");
+			addOccurrence(chain, subset, Word.NULL_VALUE, false, theWord, wordId);
+		}
+	}
+	
+	/**
+	 * @return the hash of the characters of the key addKey adds for start and keyOrder
+	 */
+	private static int keyHash(String wordString, int start, int keyOrder) {
+		int lim = wordString.length() - keyOrder + 1;
+		return (start < lim) ? hash(wordString, start, start + keyOrder) : 31 * hash(wordString, lim, wordString.length()) + Word.TERMINAL;
+	}
+	
+	/**
+	 * @return the Word string as collected: reversed if collecting in reverse, with a leading space as the word delimiter
+	 */
+	private String delimited(Word theWord) {
+		String wordString = theWord.getWordString();
+		if(reverse) {
+			wordString = new StringBuilder(wordString).reverse().toString();
+		}
+		return Word.DELIM_STRING + wordString;
+	}
+	
+	/**
+	 * @return String.hashCode() of wordString.substring(fromIndex, toIndex), which is also the hash of the key Word's characters
+	 */
+	private static int hash(String wordString, int fromIndex, int toIndex) {
+		int h = 0;
+		for(int i=fromIndex; i<toIndex; i++) {
+			h = 31 * h + wordString.charAt(i);
+		}
+		return h;
+	}
+	
+	/**
+	 * Assigns a key to a worker by the hash of its characters.<br>
+	 * Equal keys always go to the same worker.
+	 * @param hash
+	 * @param numberOfWorkers
+	 * @return the worker 0 to numberOfWorkers-1 that collects the key
+	 */
+	static int partition(int hash, int numberOfWorkers) {
+		return Math.floorMod(hash ^ (hash >>> 16), numberOfWorkers);
+	}
+	
+	/**
+	 * Collects the same keys and successors as apply(Word) into the CharacterMarkovChain.<br>
+	 * Keys are packed from the delimited word String as it is scanned, rolling in one character at a time,
+	 * so nothing is allocated per occurrence.
+	 * @param theWord
+	 * @param chain the CharacterMarkovChain to add to
+	 */
+	protected void applyCompact(Word theWord, CharacterMarkovChain chain) {
+		String wordString = delimited(theWord);
+		if(trace) {
+			logMessage("apply(word): '" + wordString + "'");
+		}
+		int numberOfTokens = wordString.length();
 		int lim = numberOfTokens - order + 1;
-		if(lim >= 0) {
-			if(!shouldFilter(word)) {
-				for(int i=0; i< lim; i++) {
-					int index = i+order;
-					if(index <= numberOfTokens) {		// don't run off the end of the List
-						subset = word.subset(i, index);
-						nextChar = (index == numberOfTokens) ? Word.TERMINAL : word.get(i+order);
-						logMessage("  subset: '" + subset + "' next char: '" + nextChar + "'");
-						boolean initial = (i==0);	// start of a Word?
-						addOccurrence(subset, nextChar, initial);
-					}
-				}
-				// add terminal state
-				subset = word.subset(lim);
-				subset.append(Word.TERMINAL);	// ''
-				log.debug("  terminal state, subset: '" + subset + "'");
-				addOccurrence(subset, Word.NULL_VALUE, false);	// ''
+		if(lim >= 0 && !shouldFilter(theWord)) {
+			long key = 0;
+			for(int i=0; i<order-1; i++) {
+				key = chain.roll(key, wordString.charAt(i));
+			}
+			for(int i=0; i< lim; i++) {
+				int index = i+order;
+				key = chain.roll(key, wordString.charAt(index-1));
+				char nextChar = (index == numberOfTokens) ? Word.TERMINAL : wordString.charAt(index);
+				chain.addOccurrence(key, nextChar, i==0);
 			}
+			// add terminal state: the last order-1 characters followed by TERMINAL
+			key = chain.roll(key, Word.TERMINAL);
+			chain.addOccurrence(key, Word.NULL_VALUE, false);
 		}
-		return markovChain;
 	}
 	
 	/**
-	 * the Supplier is just the Word we are currently working on as a Sentence whose name and id is the Word we are working on.
+	 * With SupplierTracking SENTENCE the Supplier is just the Word we are currently working on as a Sentence
+	 * whose name and id is the Word we are working on. Otherwise nothing is allocated for the supplier.
+	 * @param chain the MarkovChain to add to
 	 * @param theWord
 	 * @param theChar
 	 * @param initial
+	 * @param word the Word we are working on
+	 * @param wordId the number of the Word we are working on
 	 */
-	protected void addOccurrence(Word theWord, Character theChar, boolean initial) {
+	protected void addOccurrence(MarkovChain<Character, Word, Sentence> chain, Word theWord, Character theChar, boolean initial, Word word, int wordId) {
 		boolean terminal = theChar.equals(Word.NULL_VALUE);
-		Sentence supplierSentence = new Sentence(null, true, null, word, word.getWordString(), false,  word.getWordString());
-		if(markovChain.containsKey(theWord)) {
-			CollectorStats<Character, Word, Sentence> collectorStats = markovChain.get(theWord);
+		CollectorStats<Character, Word, Sentence> collectorStats = chain.get(theWord);
+		if(collectorStats == null) {
+			collectorStats = new CollectorStats<Character, Word, Sentence>();
+			collectorStats.setSubset(theWord);
+			chain.put(theWord, collectorStats);
+		}
+		if(supplierTracking == SupplierTracking.SENTENCE) {
+			Sentence supplierSentence = new Sentence(null, true, null, word, word.getWordString(), false,  word.getWordString());
 			collectorStats.addOccurrence(theChar, supplierSentence);
-			collectorStats.setTerminal(terminal);
-			collectorStats.setInitial(initial);
 		}
 		else {
-			CollectorStats<Character, Word, Sentence> collectorStats = new CollectorStats<Character, Word, Sentence>();
-			collectorStats.setSubset(theWord);
-			collectorStats.addOccurrence(theChar, supplierSentence);
-			collectorStats.setTerminal(terminal);
-			collectorStats.setInitial(initial);
-			markovChain.put(theWord, collectorStats);
+			collectorStats.addOccurrence(theChar);
+			if(supplierTracking != SupplierTracking.OFF) {
+				addSupplierId(theWord, wordId);
+			}
+		}
+		collectorStats.setTerminal(terminal);
+		collectorStats.setInitial(initial);
+	}
+	
+	/**
+	 * Counts the Word wordId once for the key, and with WORD_ID adds it to the key's word ids.<br>
+	 * The occurrences of a Word are added one after the other so a repeat is the last word id.
+	 * Only one worker adds each key.
+	 */
+	private void addSupplierId(Word key, int wordId) {
+		int[] ids = supplierIds.get(key);
+		if(ids == null) {
+			ids = (supplierTracking == SupplierTracking.WORD_ID) ? new int[3] : new int[2];
+			ids[1] = -1;
+			supplierIds.put(key, ids);
 		}
+		int count = ids[0];
+		int last = (supplierTracking == SupplierTracking.WORD_ID) ? count : 1;
+		if(count > 0 && ids[last] == wordId) {
+			return;
+		}
+		if(supplierTracking == SupplierTracking.WORD_ID) {
+			if(count + 1 == ids.length) {
+				ids = Arrays.copyOf(ids, ids.length * 2);
+				supplierIds.put(key, ids);
+			}
+			ids[count + 1] = wordId;
+		}
+		else {
+			ids[1] = wordId;
+		}
+		ids[0] = count + 1;
+	}
+	
+	/**
+	 * @param key
+	 * @return the number of Words the key occurs in, with SupplierTracking COUNT or WORD_ID
+	 */
+	public int getSupplierCount(Word key) {
+		int[] ids = supplierIds.get(key);
+		return (ids == null) ? 0 : ids[0];
+	}
+	
+	/**
+	 * @param key
+	 * @return the word ids of the Words the key occurs in, in input order, with SupplierTracking WORD_ID
+	 */
+	public int[] getSupplierWordIds(Word key) {
+		int[] ids = supplierIds.get(key);
+		return (ids == null || supplierTracking != SupplierTracking.WORD_ID) ? new int[0] : Arrays.copyOfRange(ids, 1, ids[0] + 1);
+	}
+	
+	/**
+	 * @param wordId
+	 * @return the Word string with this word id, with SupplierTracking WORD_ID
+	 */
+	public String getSupplierWord(int wordId) {
+		return supplierWords.get(wordId);
 	}
 
 	public Map<Word, Integer> getSummaryMap() {
@@ -189,10 +570,43 @@ public class CharacterCollector implements ICollector<Word, MarkovChain<Characte
 		this.markovChain = markovChain;
 	}
 
+	public CharacterMarkovChain getCharacterMarkovChain() {
+		return characterMarkovChain;
+	}
+
+	/**
+	 * Collect into a CharacterMarkovChain instead of the MarkovChain.<br>
+	 * The MarkovChain is left as is (normally empty) and is what apply(Word) returns.
+	 * @param characterMarkovChain a chain with the same order as this collector
+	 */
+	public void setCharacterMarkovChain(CharacterMarkovChain characterMarkovChain) {
+		if(characterMarkovChain != null && characterMarkovChain.getOrder() != order) {
+			throw new IllegalArgumentException("CharacterMarkovChain order " + characterMarkovChain.getOrder() + " != " + order);
+		}
+		if(characterMarkovChain != null && getMinimumOrder() != order) {
+			throw new IllegalArgumentException("a CharacterMarkovChain has a single order");
+		}
+		this.characterMarkovChain = characterMarkovChain;
+	}
+
 	public String getText() {
 		return text.toString();
 	}
 
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @param parallelism number of ForkJoinPool workers used by collect(). Default is 1, which collects sequentially.
+	 */
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
 	public void setText(String str) {
 		this.text.append(str);
 	}
@@ -205,6 +619,49 @@ public class CharacterCollector implements ICollector<Word, MarkovChain<Characte
 		return order;
 	}
 
+	public int getMinimumOrder() {
+		return (minimumOrder > 0) ? minimumOrder : order;
+	}
+
+	/**
+	 * Collect keys of every order from minimumOrder to order into the MarkovChain in a single pass.<br>
+	 * This replaces collecting each order separately and adding the chains together.
+	 * A CharacterMarkovChain has a single order so this does not apply to it.
+	 * @param minimumOrder 1 to order
+	 */
+	public void setMinimumOrder(int minimumOrder) {
+		if(minimumOrder < 1 || minimumOrder > order) {
+			throw new IllegalArgumentException("minimum order must be 1 to " + order + ": " + minimumOrder);
+		}
+		if(characterMarkovChain != null && minimumOrder != order) {
+			throw new IllegalArgumentException("a CharacterMarkovChain has a single order");
+		}
+		this.minimumOrder = minimumOrder;
+	}
+
+	public SupplierTracking getSupplierTracking() {
+		return supplierTracking;
+	}
+
+	/**
+	 * @param supplierTracking what is kept of the Word each occurrence came from. Must be set before collecting.
+	 * This applies to a MarkovChain, a CharacterMarkovChain does not keep suppliers.
+	 */
+	public void setSupplierTracking(SupplierTracking supplierTracking) {
+		this.supplierTracking = supplierTracking;
+	}
+
+	public boolean isReverse() {
+		return reverse;
+	}
+
+	/**
+	 * @param reverse if true Words are collected right to left. Must be set before collecting.
+	 */
+	public void setReverse(boolean reverse) {
+		this.reverse = reverse;
+	}
+
 	public String[] getFileNames() {
 		return fileNames;
 	}
@@ -219,7 +676,9 @@ public class CharacterCollector implements ICollector<Word, MarkovChain<Characte
 
 	public void setTrace(boolean trace) {
 		this.trace = trace;
-		markovChain.setTrace(trace);
+		if(markovChain != null) {
+			markovChain.setTrace(trace);
+		}
 		CollectorStats.trace = trace;
 	}
 	
@@ -3,8 +3,6 @@ package org.dwbzen.text.cp;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -37,12 +35,26 @@ public class CharacterCollectorRunner {
 		 * @return CharacterCollector instance
 		 */
 		public static CharacterCollector build(int order, String[] inputFiles, boolean ignorecaseflag) throws IOException {
+			return build(order, order, inputFiles, ignorecaseflag);
+		}
+		
+		/**
+		 * Factory method for a collector of keys of every order from minimumOrder to order.
+		 * @param order length of the longest keys in #of characters
+		 * @param minimumOrder length of the shortest keys
+		 * @param inputFiles
+		 * @param ignorecaseflag
+		 * @return CharacterCollector instance
+		 * @see CharacterCollector#setMinimumOrder(int)
+		 */
+		public static CharacterCollector build(int order, int minimumOrder, String[] inputFiles, boolean ignorecaseflag) throws IOException {
 			CharacterCollector collector = new CharacterCollector(order, inputFiles, ignorecaseflag);
+			collector.setMinimumOrder(minimumOrder);
 			collector.setMarkovChain(new MarkovChain<Character, Word, Sentence>(order));
 			for(String inputFile : inputFiles) {
 				String inputFilename = PosUtil.getInputFilename(inputFile);
 				reader = TextFileReader.getInstance(inputFilename);
-				reader.setMinimumLength(order);
+				reader.setMinimumLength(minimumOrder);
 				collector.setText( (ignorecaseflag? 
 							reader.getFileText().toLowerCase() :
 							reader.getFileText()) );
@@ -81,6 +93,11 @@ public class CharacterCollectorRunner {
 		boolean ignoreCase = false;
 		boolean trace = false;
 		boolean showSupplierCounts = false;
+		int parallelism = 1;
+		boolean reverse = false;
+		CharacterCollector.SupplierTracking supplierTracking = CharacterCollector.SupplierTracking.SENTENCE;
+		String saveFile = null;
+		String mappedFile = null;
 		String orderstring = null;
 		List<Integer> orderList = new ArrayList<Integer>();
 		
@@ -97,6 +114,22 @@ public class CharacterCollectorRunner {
 			else if(args[i].equalsIgnoreCase("-trace")) {
 				trace = true;
 			}
+			else if(args[i].equalsIgnoreCase("-parallel")) {
+				parallelism = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equalsIgnoreCase("-suppliers")) {
+				// off, count, word_id or sentence
+				supplierTracking = CharacterCollector.SupplierTracking.valueOf(args[++i].toUpperCase());
+			}
+			else if(args[i].equalsIgnoreCase("-reverse")) {
+				reverse = true;
+			}
+			else if(args[i].equalsIgnoreCase("-save")) {
+				saveFile = args[++i];
+			}
+			else if(args[i].equalsIgnoreCase("-saveMapped")) {
+				mappedFile = args[++i];
+			}
 			else if(args[i].startsWith("-display")) {
 				String[] formats = args[++i].split(",");
 				for(String f : formats) {
@@ -131,21 +164,28 @@ public class CharacterCollectorRunner {
 				orderList.add(Integer.parseInt(order));
 			}
 		}
-		Map<Integer, MarkovChain<Character, Word, Sentence>>  markovChains = new TreeMap<Integer, MarkovChain<Character, Word, Sentence>>();
+		// a list of orders is collected in one pass, from the lowest to the highest order
+		int maximumOrder = orderList.stream().max(Integer::compare).get();
+		int minimumOrder = orderList.stream().min(Integer::compare).get();
 		CollectorStats.trace = trace;
-		for(Integer order : orderList) {
-			CharacterCollector collector = CharacterCollectorBuilder.build(order, filenames, ignoreCase);
-			collector.setTrace(trace);
-			if(filenames.length == 0) {
-				text = ignoreCase ? text.toLowerCase() : text;
-				collector.setText(text);
-			}
-			collector.collect();
-			MarkovChain<Character, Word, Sentence> markovChain = collector.getMarkovChain();
-			markovChains.put(order, markovChain);
+		CharacterCollector collector = CharacterCollectorBuilder.build(maximumOrder, minimumOrder, filenames, ignoreCase);
+		collector.setTrace(trace);
+		collector.setParallelism(parallelism);
+		collector.setReverse(reverse);
+		collector.setSupplierTracking(supplierTracking);
+		if(filenames.length == 0) {
+			text = ignoreCase ? text.toLowerCase() : text;
+			collector.setText(text);
 		}
+		collector.collect();
+		MarkovChain<Character, Word, Sentence> markovChain = collector.getMarkovChain();
 
-		MarkovChain<Character, Word, Sentence> markovChain = combineMultichains(markovChains);
+		if(saveFile != null) {
+			MarkovChainSerializer.saveCharacterChain(markovChain, saveFile);
+		}
+		if(mappedFile != null) {
+			MappedMarkovChain.writeCharacterChain(markovChain, mappedFile);
+		}
 		if(displayMarkovChain) {
 			if(sorted) {
 				String s = markovChain.getSortedDisplayText(outputStyle, showSupplierCounts);
@@ -163,17 +203,4 @@ public class CharacterCollectorRunner {
 			System.out.println(markovChain.getInvertedSummaryMapText(displayJson , outputStyle==OutputStyle.PRETTY_JSON));
 		}
 	}
-	
-	private static MarkovChain<Character, Word, Sentence>combineMultichains(Map<Integer, MarkovChain<Character, Word, Sentence>> markovChains) {
-		MarkovChain<Character, Word, Sentence> markovChain = null;
-		for(Integer ord : markovChains.keySet()) {
-			if(markovChain == null) {
-				markovChain = markovChains.get(ord);
-			}
-			else {
-				markovChain.add(markovChains.get(ord));
-			}
-		}
-		return markovChain;
-	}
 }
@@ -0,0 +1,77 @@
+package org.dwbzen.text.cp;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.dwbzen.common.cp.CollectorStats;
+import org.dwbzen.common.cp.MarkovChain;
+import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.Word;
+import org.dwbzen.text.util.LongIntHashMap;
+
+/**
+ * Finds the CollectorStats of a character MarkovChain from context characters in a char[],
+ * so WordProducer can look up each state without building a Word key.</p>
+ *
+ * States are indexed by key length and String.hashCode() of the key characters, which the producer
+ * computes from its context as it goes. Keys with the same length and hash are chained
+ * and compared character by character.</p>
+ *
+ * The index is a snapshot of the keys of the chain. The CollectorStats are shared with the chain,
+ * so new occurrences of existing keys are seen, but new keys (see CharacterCollector.update) are not:
+ * isCurrent(MarkovChain) tells when to build a new index.
+ */
+class CharacterContextIndex {
+
+	private final LongIntHashMap stateMap;
+	private final CollectorStats<Character, Word, Sentence>[] stats;
+	private final char[][] keys;
+	private final int[] next;	// the next state with the same length and hash, or NOT_FOUND
+
+	@SuppressWarnings("unchecked")
+	CharacterContextIndex(MarkovChain<Character, Word, Sentence> markovChain) {
+		int numberOfStates = markovChain.size();
+		stateMap = new LongIntHashMap(numberOfStates);
+		stats = (CollectorStats<Character, Word, Sentence>[]) new CollectorStats<?, ?, ?>[numberOfStates];
+		keys = new char[numberOfStates][];
+		next = new int[numberOfStates];
+		int state = 0;
+		for(Map.Entry<Word, CollectorStats<Character, Word, Sentence>> entry : markovChain.entrySet()) {
+			String keyString = entry.getKey().getWordString();
+			keys[state] = keyString.toCharArray();
+			stats[state] = entry.getValue();
+			next[state] = stateMap.put(indexKey(keyString.length(), keyString.hashCode()), state);
+			state++;
+		}
+	}
+
+	private static long indexKey(int length, int hash) {
+		return ((long)length << 32) | (hash & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param context
+	 * @param fromIndex start of the key in context
+	 * @param length key length
+	 * @param hash String.hashCode() of the key characters
+	 * @return CollectorStats or null if the key does not occur
+	 */
+	CollectorStats<Character, Word, Sentence> get(char[] context, int fromIndex, int length, int hash) {
+		for(int state = stateMap.get(indexKey(length, hash)); state != LongIntHashMap.NOT_FOUND; state = next[state]) {
+			if(Arrays.equals(keys[state], 0, keys[state].length, context, fromIndex, fromIndex + length)) {
+				return stats[state];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Keys are only ever added to a MarkovChain, so the index is current if the size is the same.
+	 * @param markovChain the chain this index was built from
+	 * @return false if keys have been added since
+	 */
+	boolean isCurrent(MarkovChain<Character, Word, Sentence> markovChain) {
+		return markovChain.size() == stats.length;
+	}
+
+}
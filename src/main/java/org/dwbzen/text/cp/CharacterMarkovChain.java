@@ -0,0 +1,305 @@
+package org.dwbzen.text.cp;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dwbzen.text.element.Word;
+import org.dwbzen.text.util.LongIntHashMap;
+
+/**
+ * A compact alternative to MarkovChain&lt;Character, Word, Sentence&gt; for character models.<br>
+ * It holds the same information (keys, successor occurrences, initial and terminal flags)
+ * without allocating a Word, CollectorStats or boxed Character per entry.</p>
+ *
+ * Each order-n key is packed into a long, 16 bits per character, so the maximum order is 4.<br>
+ * For example the order-3 key " DO" is (' ' << 32) | ('D' << 16) | 'O'.
+ * Because the packing is positional, the next key is computed by shifting in the next character:
+ * see roll(long, char).</p>
+ *
+ * Keys map to a dense int state number through a LongIntHashMap (open addressing).
+ * Per-state data is held in parallel primitive arrays indexed by state number:
+ * the packed key, total occurrences, flags, and the successor characters with their counts.
+ * Successor lists are short (bounded by the alphabet size) and are scanned linearly.</p>
+ *
+ * Successor ranges follow CollectorStats: the i'th successor covers the picks
+ * (sum of counts before i) + 1 through (sum of counts through i).
+ * Producers pick through a per-state SamplingTable instead, built the first time a state is visited.
+ *
+ * @see CharacterCollector#setCharacterMarkovChain(CharacterMarkovChain)
+ * @see WordProducer#instance(int, ICharacterMarkovChain, Word)
+ */
+public class CharacterMarkovChain implements ICharacterMarkovChain {
+	protected static final Logger log = LogManager.getLogger(CharacterMarkovChain.class);
+
+	private static final int INITIAL_STATES = 1024;
+	private static final int INITIAL_FANOUT = 2;
+	private static final byte INITIAL = 0x01;
+	private static final byte TERMINAL = 0x02;
+
+	private final int order;
+	private final long keyMask;
+	private LongIntHashMap stateMap = new LongIntHashMap(INITIAL_STATES);
+	private int numberOfStates = 0;
+	private long[] keys = new long[INITIAL_STATES];
+	private int[] totals = new int[INITIAL_STATES];
+	private byte[] flags = new byte[INITIAL_STATES];
+	private char[][] successors = new char[INITIAL_STATES][];
+	private int[][] counts = new int[INITIAL_STATES][];
+	private int[] fanout = new int[INITIAL_STATES];
+	@SuppressWarnings("unchecked")
+	private SamplingTable<Character>[] samplingTables = (SamplingTable<Character>[]) new SamplingTable<?>[INITIAL_STATES];
+	private int[] initialStates = new int[INITIAL_STATES];
+	private int numberOfInitialStates = 0;
+	private boolean pickInitialSeed = false;
+
+	public CharacterMarkovChain(int order) {
+		if(order < 1 || order > MAX_ORDER) {
+			throw new IllegalArgumentException("order must be 1 to " + MAX_ORDER + ": " + order);
+		}
+		this.order = order;
+		keyMask = (order == MAX_ORDER) ? -1L : (1L << (16 * order)) - 1;
+	}
+
+	@Override
+	public long roll(long key, char nextChar) {
+		return ((key << 16) | nextChar) & keyMask;
+	}
+
+	/**
+	 * Counts one occurrence of nextChar following the key.
+	 * The state is terminal if nextChar is Word.NULL_VALUE.
+	 * @param key a packed key
+	 * @param nextChar the successor character
+	 * @param initial true if the key starts a Word
+	 */
+	public void addOccurrence(long key, char nextChar, boolean initial) {
+		int state = addOccurrences(key, nextChar, 1);
+		if(initial) {
+			setInitial(state);
+		}
+	}
+
+	/**
+	 * Adds all the occurrences in another chain of the same order to this one.<br>
+	 * Merging chains collected from consecutive parts of the input, in input order,
+	 * gives the same chain as collecting the whole input, down to state numbers and successor order.
+	 * @param other
+	 * @see CharacterCollector#setParallelism(int)
+	 */
+	public void merge(CharacterMarkovChain other) {
+		if(other.order != order) {
+			throw new IllegalArgumentException("CharacterMarkovChain order " + other.order + " != " + order);
+		}
+		for(int state=0; state<other.numberOfStates; state++) {
+			for(int i=0; i<other.fanout[state]; i++) {
+				addOccurrences(other.keys[state], other.successors[state][i], other.counts[state][i]);
+			}
+		}
+		for(int i=0; i<other.numberOfInitialStates; i++) {
+			setInitial(stateMap.get(other.keys[other.initialStates[i]]));
+		}
+	}
+
+	/**
+	 * Counts count occurrences of nextChar following the key.
+	 * @return the state number
+	 */
+	int addOccurrences(long key, char nextChar, int count) {
+		int state = stateMap.get(key);
+		if(state == NO_STATE) {
+			state = addState(key);
+		}
+		if(nextChar == Word.NULL_VALUE) {
+			flags[state] |= TERMINAL;
+		}
+		totals[state] += count;
+		samplingTables[state] = null;
+		char[] chars = successors[state];
+		int n = fanout[state];
+		for(int i=0; i<n; i++) {
+			if(chars[i] == nextChar) {
+				counts[state][i] += count;
+				return state;
+			}
+		}
+		if(n == chars.length) {
+			successors[state] = chars = Arrays.copyOf(chars, n * 2);
+			counts[state] = Arrays.copyOf(counts[state], n * 2);
+		}
+		chars[n] = nextChar;
+		counts[state][n] = count;
+		fanout[state] = n + 1;
+		return state;
+	}
+
+	/**
+	 * Marks a state as starting a Word.
+	 */
+	void setInitial(int state) {
+		if((flags[state] & INITIAL) == 0) {
+			flags[state] |= INITIAL;
+			if(numberOfInitialStates == initialStates.length) {
+				initialStates = Arrays.copyOf(initialStates, numberOfInitialStates * 2);
+			}
+			initialStates[numberOfInitialStates++] = state;
+		}
+	}
+
+	private int addState(long key) {
+		int state = numberOfStates++;
+		if(state == keys.length) {
+			int capacity = state * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			totals = Arrays.copyOf(totals, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+			successors = Arrays.copyOf(successors, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+			fanout = Arrays.copyOf(fanout, capacity);
+			samplingTables = Arrays.copyOf(samplingTables, capacity);
+		}
+		keys[state] = key;
+		successors[state] = new char[INITIAL_FANOUT];
+		counts[state] = new int[INITIAL_FANOUT];
+		stateMap.put(key, state);
+		return state;
+	}
+
+	@Override
+	public int getState(long key) {
+		return stateMap.get(key);
+	}
+
+	@Override
+	public long getKey(int state) {
+		return keys[state];
+	}
+
+	@Override
+	public int getTotalOccurrence(int state) {
+		return totals[state];
+	}
+
+	@Override
+	public int getFanout(int state) {
+		return fanout[state];
+	}
+
+	@Override
+	public char getSuccessor(int state, int index) {
+		return successors[state][index];
+	}
+
+	@Override
+	public int getOccurrence(int state, int index) {
+		return counts[state][index];
+	}
+
+	@Override
+	public boolean isInitial(int state) {
+		return (flags[state] & INITIAL) != 0;
+	}
+
+	@Override
+	public boolean isTerminal(int state) {
+		return (flags[state] & TERMINAL) != 0;
+	}
+
+	@Override
+	public char pickSuccessor(int state, int pick) {
+		int[] stateCounts = counts[state];
+		int n = fanout[state];
+		int high = 0;
+		for(int i=0; i<n; i++) {
+			high += stateCounts[i];
+			if(pick <= high) {
+				return successors[state][i];
+			}
+		}
+		return successors[state][n - 1];
+	}
+	
+	/**
+	 * Picks a successor according to the occurrences in constant time.
+	 * @param state
+	 * @param random
+	 * @return successor character
+	 * @see SamplingTable
+	 */
+	@Override
+	public char pickSuccessor(int state, ThreadLocalRandom random) {
+		SamplingTable<Character> samplingTable = samplingTables[state];
+		if(samplingTable == null) {
+			samplingTable = new SamplingTable<Character>(null, counts[state], fanout[state]);
+			samplingTables[state] = samplingTable;
+		}
+		return successors[state][samplingTable.pickIndex(random)];
+	}
+
+	/**
+	 * Picks up to size() random keys, then takes the first key that isn't terminal.
+	 * @throws IllegalStateException if the chain is empty or every key that can be picked is terminal
+	 */
+	@Override
+	public long pickSeedKey() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		boolean initialOnly = pickInitialSeed && numberOfInitialStates > 0;
+		int limit = initialOnly ? numberOfInitialStates : numberOfStates;
+		if(limit == 0) {
+			throw new IllegalStateException("no seed key, the chain is empty");
+		}
+		for(int attempts=0; attempts<limit; attempts++) {
+			int pick = random.nextInt(0, limit);
+			int state = initialOnly ? initialStates[pick] : pick;
+			if(!isTerminal(state)) {
+				return keys[state];
+			}
+		}
+		for(int pick=0; pick<limit; pick++) {
+			int state = initialOnly ? initialStates[pick] : pick;
+			if(!isTerminal(state)) {
+				return keys[state];
+			}
+		}
+		throw new IllegalStateException("no seed key, all " + limit + (initialOnly ? " initial" : "") + " keys are terminal");
+	}
+
+	@Override
+	public int size() {
+		return numberOfStates;
+	}
+
+	@Override
+	public int getOrder() {
+		return order;
+	}
+
+	@Override
+	public boolean isPickInitialSeed() {
+		return pickInitialSeed;
+	}
+
+	@Override
+	public void setPickInitialSeed(boolean pickInitialSeed) {
+		this.pickInitialSeed = pickInitialSeed;
+	}
+
+	/**
+	 * Displays the chain in the same layout as WordProducerRunner.displaySortedMarkovChainText:<br>
+	 * key and total occurrences, then each successor with its occurrence and probability.
+	 */
+	public String getDisplayText() {
+		StringBuilder sb = new StringBuilder();
+		for(int state=0; state<numberOfStates; state++) {
+			sb.append(toWord(keys[state])).append('\t').append(totals[state]).append('\n');
+			for(int i=0; i<fanout[state]; i++) {
+				double probability = (double)counts[state][i] / totals[state];
+				sb.append('\t').append(successors[state][i]).append('\t').append(counts[state][i])
+					.append('\t').append(probability).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,148 @@
+package org.dwbzen.text.cp;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.dwbzen.text.element.Word;
+
+/**
+ * A character Markov chain of order 4 or less with packed long keys and int state numbers.<br>
+ * This is what WordProducer needs to generate from a compact chain, whether it is on the heap
+ * (CharacterMarkovChain) or a memory-mapped file (MappedMarkovChain).</p>
+ *
+ * Each order-n key is packed into a long, 16 bits per character, for example the order-3 key " DO"
+ * is (' ' << 32) | ('D' << 16) | 'O'. States are numbered 0 to size()-1.
+ *
+ * @see CharacterMarkovChain
+ * @see MappedMarkovChain
+ */
+public interface ICharacterMarkovChain {
+
+	static final int MAX_ORDER = 4;
+	static final int NO_STATE = -1;
+
+	int getOrder();
+
+	/**
+	 * @param key a packed key
+	 * @return the state number, or NO_STATE if the key does not occur
+	 */
+	int getState(long key);
+
+	long getKey(int state);
+
+	/**
+	 * @param state
+	 * @return total occurrences of all successors of the state
+	 */
+	int getTotalOccurrence(int state);
+
+	/**
+	 * @param state
+	 * @return the number of distinct successors of the state
+	 */
+	int getFanout(int state);
+
+	char getSuccessor(int state, int index);
+
+	int getOccurrence(int state, int index);
+
+	boolean isInitial(int state);
+
+	boolean isTerminal(int state);
+
+	/**
+	 * Picks the successor whose occurrence range includes pick.
+	 * @param state
+	 * @param pick 1 to getTotalOccurrence(state) inclusive
+	 * @return successor character
+	 */
+	char pickSuccessor(int state, int pick);
+
+	/**
+	 * Picks a successor according to the occurrences.
+	 * @param state
+	 * @param random
+	 * @return successor character
+	 */
+	char pickSuccessor(int state, ThreadLocalRandom random);
+
+	/**
+	 * Picks a random key. If pickInitialSeed is set, only keys that start a Word are considered.<br>
+	 * Terminal keys are never picked since nothing can be generated from them.
+	 * @return a packed key
+	 * @throws IllegalStateException if the chain is empty or every key that can be picked is terminal
+	 */
+	long pickSeedKey();
+
+	int size();
+
+	boolean isPickInitialSeed();
+
+	void setPickInitialSeed(boolean pickInitialSeed);
+
+	/**
+	 * @return a random seed as a Word
+	 * @see #pickSeedKey()
+	 */
+	default Word pickSeed() {
+		return toWord(pickSeedKey());
+	}
+
+	default boolean isEmpty() {
+		return size() == 0;
+	}
+
+	default boolean containsKey(Word word) {
+		return word.size() == getOrder() && getState(key(word)) != NO_STATE;
+	}
+
+	/**
+	 * Packs order characters of text starting at fromIndex into a key.
+	 * @param text
+	 * @param fromIndex
+	 * @return the packed key
+	 */
+	default long key(CharSequence text, int fromIndex) {
+		long key = 0;
+		for(int i=fromIndex; i<fromIndex + getOrder(); i++) {
+			key = (key << 16) | text.charAt(i);
+		}
+		return key;
+	}
+
+	/**
+	 * @param word a Word of exactly order characters
+	 * @return the packed key
+	 */
+	default long key(Word word) {
+		if(word.size() != getOrder()) {
+			throw new IllegalArgumentException("'" + word + "' is not an order " + getOrder() + " key");
+		}
+		return key(word.getWordString(), 0);
+	}
+
+	/**
+	 * Drops the first character of key and appends nextChar.
+	 * @param key the current key
+	 * @param nextChar
+	 * @return the key of the next state
+	 */
+	default long roll(long key, char nextChar) {
+		long keyMask = (getOrder() == MAX_ORDER) ? -1L : (1L << (16 * getOrder())) - 1;
+		return ((key << 16) | nextChar) & keyMask;
+	}
+
+	/**
+	 * @param key a packed key
+	 * @return the key as a Word
+	 */
+	default Word toWord(long key) {
+		char[] chars = new char[getOrder()];
+		for(int i=chars.length-1; i>=0; i--) {
+			chars[i] = (char)(key & 0xFFFF);
+			key >>>= 16;
+		}
+		return new Word(new String(chars));
+	}
+
+}
@@ -0,0 +1,59 @@
+package org.dwbzen.text.cp;
+
+import java.util.Arrays;
+
+/**
+ * The key positions one worker of a parallel collect adds, in input order.<br>
+ * Each is packed in a long as the index of the Word or Sentence, the start of the key and the key order.
+ *
+ * @see CharacterCollector#collectParallel(java.util.List)
+ * @see WordCollector#collectParallel(java.util.List)
+ */
+class KeyPositions {
+	private long[] positions = new long[1024];
+	private int size = 0;
+	
+	/**
+	 * @param numberOfWorkers
+	 * @return empty KeyPositions for each worker
+	 */
+	static KeyPositions[] of(int numberOfWorkers) {
+		KeyPositions[] keyPositions = new KeyPositions[numberOfWorkers];
+		for(int i=0; i<numberOfWorkers; i++) {
+			keyPositions[i] = new KeyPositions();
+		}
+		return keyPositions;
+	}
+	
+	/**
+	 * @param index the Word or Sentence
+	 * @param start 0 to 2^24 - 1
+	 * @param keyOrder 1 to 255
+	 */
+	void add(int index, int start, int keyOrder) {
+		if(size == positions.length) {
+			positions = Arrays.copyOf(positions, size * 2);
+		}
+		positions[size++] = ((long)index << 32) | ((long)start << 8) | keyOrder;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	long get(int n) {
+		return positions[n];
+	}
+	
+	static int index(long position) {
+		return (int)(position >>> 32);
+	}
+	
+	static int start(long position) {
+		return (int)(position & 0xFFFFFFFFL) >>> 8;
+	}
+	
+	static int keyOrder(long position) {
+		return (int)(position & 0xFF);
+	}
+}
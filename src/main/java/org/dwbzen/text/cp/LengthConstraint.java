@@ -0,0 +1,272 @@
+package org.dwbzen.text.cp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.dwbzen.common.cp.CollectorStats;
+import org.dwbzen.common.cp.MarkovChain;
+import org.dwbzen.common.math.OccurrenceProbability;
+import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.Word;
+
+/**
+ * Lets WordProducer generate Words with a length in a range without rejecting Words that turn out too short or too long.</p>
+ *
+ * For each state of an order-n character chain, viable[state] has bit k set if TERMINAL can be reached
+ * from the state after exactly k more characters, k = 0 to the maximum length.
+ * The bits are computed backwards from the states followed by TERMINAL, one length at a time.
+ * A producer with a Word of length len then only picks successors that can still end the Word
+ * with a length of minimum to maximum, weighted by their occurrences.
+ * Lengths are Word.trimmedSize(): the leading delimiter of a Word is not counted.</p>
+ *
+ * Only keys of the full order are used, so a multi-order chain does not back off to shorter contexts.
+ * Like CharacterContextIndex this is a snapshot: isCurrent tells when to build a new one.
+ */
+class LengthConstraint {
+
+	static final int MAX_LENGTH = Long.SIZE - 1;
+
+	private final int chainSize;
+	private final int order;
+	private final int numberOfStates;
+	private final int maximumLength;
+	private final char[][] successors;
+	private final int[][] counts;
+	private final int[][] next;			// the state after each successor, or NO_STATE
+	private final long[] viable;
+	private final boolean[] delimited;	// the key starts with the Word delimiter
+	private final boolean[] initial;
+	private final Map<String, Integer> stateMap;	// key String to state, MarkovChain only
+
+	private LengthConstraint(int chainSize, int order, int numberOfStates, int maximumLength, Map<String, Integer> stateMap) {
+		if(maximumLength < 1 || maximumLength > MAX_LENGTH) {
+			throw new IllegalArgumentException("maximum length must be 1 to " + MAX_LENGTH + ": " + maximumLength);
+		}
+		this.chainSize = chainSize;
+		this.order = order;
+		this.numberOfStates = numberOfStates;
+		this.maximumLength = maximumLength;
+		this.stateMap = stateMap;
+		successors = new char[numberOfStates][];
+		counts = new int[numberOfStates][];
+		next = new int[numberOfStates][];
+		viable = new long[numberOfStates];
+		delimited = new boolean[numberOfStates];
+		initial = new boolean[numberOfStates];
+	}
+
+	/**
+	 * @param characterMarkovChain
+	 * @param maximumLength
+	 * @return LengthConstraint with the same state numbers as the chain
+	 */
+	static LengthConstraint of(ICharacterMarkovChain characterMarkovChain, int maximumLength) {
+		int numberOfStates = characterMarkovChain.size();
+		int order = characterMarkovChain.getOrder();
+		LengthConstraint constraint = new LengthConstraint(numberOfStates, order, numberOfStates, maximumLength, null);
+		for(int state=0; state<numberOfStates; state++) {
+			int fanout = characterMarkovChain.getFanout(state);
+			long key = characterMarkovChain.getKey(state);
+			constraint.delimited[state] = ((key >>> (16 * (order - 1))) & 0xFFFF) == Word.DELIM_CHARACTER;
+			constraint.initial[state] = characterMarkovChain.isInitial(state);
+			constraint.successors[state] = new char[fanout];
+			constraint.counts[state] = new int[fanout];
+			constraint.next[state] = new int[fanout];
+			for(int i=0; i<fanout; i++) {
+				char successor = characterMarkovChain.getSuccessor(state, i);
+				constraint.successors[state][i] = successor;
+				constraint.counts[state][i] = characterMarkovChain.getOccurrence(state, i);
+				constraint.next[state][i] = characterMarkovChain.getState(characterMarkovChain.roll(key, successor));
+			}
+		}
+		constraint.computeViable();
+		return constraint;
+	}
+
+	/**
+	 * @param markovChain
+	 * @param order only keys of this length are states
+	 * @param maximumLength
+	 * @return LengthConstraint, see getState(String) for the state numbers
+	 */
+	static LengthConstraint of(MarkovChain<Character, Word, Sentence> markovChain, int order, int maximumLength) {
+		Map<String, Integer> stateMap = new HashMap<>();
+		for(Word key : markovChain.keySet()) {
+			if(key.size() == order) {
+				stateMap.put(key.getWordString(), stateMap.size());
+			}
+		}
+		LengthConstraint constraint = new LengthConstraint(markovChain.size(), order, stateMap.size(), maximumLength, stateMap);
+		for(Map.Entry<Word, CollectorStats<Character, Word, Sentence>> entry : markovChain.entrySet()) {
+			String keyString = entry.getKey().getWordString();
+			Integer state = stateMap.get(keyString);
+			if(state == null) {
+				continue;
+			}
+			constraint.delimited[state] = keyString.charAt(0) == Word.DELIM_CHARACTER;
+			constraint.initial[state] = entry.getValue().isInitial();
+			Map<Character, OccurrenceProbability> occurrenceProbabilityMap = entry.getValue().getOccurrenceProbabilityMap();
+			int fanout = occurrenceProbabilityMap.size();
+			constraint.successors[state] = new char[fanout];
+			constraint.counts[state] = new int[fanout];
+			constraint.next[state] = new int[fanout];
+			int i = 0;
+			for(Map.Entry<Character, OccurrenceProbability> successor : occurrenceProbabilityMap.entrySet()) {
+				char nextChar = successor.getKey();
+				constraint.successors[state][i] = nextChar;
+				constraint.counts[state][i] = successor.getValue().getOccurrence();
+				constraint.next[state][i] = constraint.getState(keyString.substring(1) + nextChar);
+				i++;
+			}
+		}
+		constraint.computeViable();
+		return constraint;
+	}
+
+	/**
+	 * Bit k of viable[state] is set if the state is followed by TERMINAL (k = 0),
+	 * or by a character leading to a state with bit k-1 set.
+	 */
+	private void computeViable() {
+		for(int state=0; state<numberOfStates; state++) {
+			for(char successor : successors[state]) {
+				if(successor == Word.TERMINAL) {
+					viable[state] = 1L;
+				}
+			}
+		}
+		for(int k=1; k<=maximumLength; k++) {
+			long bit = 1L << k;
+			long previousBit = 1L << (k - 1);
+			for(int state=0; state<numberOfStates; state++) {
+				int[] nextStates = next[state];
+				for(int i=0; i<nextStates.length; i++) {
+					int nextState = nextStates[i];
+					if(nextState != ICharacterMarkovChain.NO_STATE && isCharacter(successors[state][i]) && (viable[nextState] & previousBit) != 0) {
+						viable[state] |= bit;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean isCharacter(char successor) {
+		return successor != Word.TERMINAL && successor != Word.NULL_VALUE;
+	}
+
+	/**
+	 * @return bits from to to inclusive, limited to 0 to maximumLength
+	 */
+	private long window(int from, int to) {
+		from = Math.max(from, 0);
+		to = Math.min(to, maximumLength);
+		if(from > to) {
+			return 0L;
+		}
+		return (-1L >>> (Long.SIZE - 1 - to)) & (-1L << from);
+	}
+
+	/**
+	 * @param state
+	 * @param length the length of the Word so far
+	 * @param minimumLength
+	 * @return true if a Word of length length in this state can end with a length of minimumLength to the maximum length
+	 */
+	boolean isViable(int state, int length, int minimumLength) {
+		return state != ICharacterMarkovChain.NO_STATE && (viable[state] & window(minimumLength - length, maximumLength - length)) != 0;
+	}
+
+	/**
+	 * @param minimumLength
+	 * @param initialOnly if true and there are initial states, only they are seeds, as ICharacterMarkovChain.pickSeedKey picks them
+	 * @return true if any seed state can start a Word of length minimumLength to the maximum length
+	 */
+	boolean isViableSeed(int minimumLength, boolean initialOnly) {
+		boolean hasInitial = false;
+		for(int state=0; initialOnly && !hasInitial && state<numberOfStates; state++) {
+			hasInitial = initial[state];
+		}
+		for(int state=0; state<numberOfStates; state++) {
+			if((!hasInitial || initial[state]) && isViable(state, seedLength(state), minimumLength)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the trimmed length of a Word that is just the key of the state
+	 */
+	private int seedLength(int state) {
+		return delimited[state] ? order - 1 : order;
+	}
+
+	/**
+	 * Picks a successor of a viable state that keeps the Word viable,
+	 * in two passes over the successors so nothing is allocated.
+	 * @param state
+	 * @param length the length of the Word so far
+	 * @param minimumLength
+	 * @param statisticalPick if false viable successors are picked with equal probability
+	 * @param random
+	 * @return the successor index, Word.TERMINAL being one of the successors
+	 */
+	int pickIndex(int state, int length, int minimumLength, boolean statisticalPick, ThreadLocalRandom random) {
+		long window = window(minimumLength - length - 1, maximumLength - length - 1);
+		int fanout = next[state].length;
+		long total = 0;
+		for(int i=0; i<fanout; i++) {
+			total += weight(state, i, length, minimumLength, window, statisticalPick);
+		}
+		long pick = random.nextLong(total);
+		int index = 0;
+		for(int weight; pick >= (weight = weight(state, index, length, minimumLength, window, statisticalPick)); index++) {
+			pick -= weight;
+		}
+		return index;
+	}
+
+	/**
+	 * @return the weight of a successor, 0 if it is not viable
+	 */
+	private int weight(int state, int index, int length, int minimumLength, long window, boolean statisticalPick) {
+		char successor = successors[state][index];
+		int nextState = next[state][index];
+		boolean viableSuccessor = (successor == Word.TERMINAL) ?
+				length >= minimumLength && length <= maximumLength :
+				isCharacter(successor) && nextState != ICharacterMarkovChain.NO_STATE && (viable[nextState] & window) != 0;
+		if(!viableSuccessor) {
+			return 0;
+		}
+		return statisticalPick ? counts[state][index] : 1;
+	}
+
+	char getSuccessor(int state, int index) {
+		return successors[state][index];
+	}
+
+	int getNextState(int state, int index) {
+		return next[state][index];
+	}
+
+	/**
+	 * @param keyString a key of a MarkovChain
+	 * @return the state or NO_STATE
+	 */
+	int getState(String keyString) {
+		Integer state = stateMap.get(keyString);
+		return (state == null) ? ICharacterMarkovChain.NO_STATE : state;
+	}
+
+	/**
+	 * @param size the number of states of the chain this was built from
+	 * @param maximumLength
+	 * @return false if states have been added to the chain since or the maximum length has changed
+	 */
+	boolean isCurrent(int size, int maximumLength) {
+		return this.maximumLength == maximumLength && size == chainSize;
+	}
+
+}
@@ -0,0 +1,621 @@
+package org.dwbzen.text.cp;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dwbzen.common.cp.MarkovChain;
+import org.dwbzen.text.element.Book;
+import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.Word;
+
+/**
+ * A read-only Markov chain backed by a memory-mapped file.<br>
+ * Producers sample directly from the mapped pages: opening a model does no deserialization
+ * and creates no per-state objects, and JVMs on the same machine share the page-cached file.</p>
+ *
+ * Files are written from a MarkovChainSerializer chain with write(InputStream, String) or the
+ * writeCharacterChain and writeWordChain convenience methods.
+ * The layout is fixed width, so any state is found without reading the ones before it.
+ * All numbers are big-endian ints and positions are byte offsets:
+ * <pre>
+ *  header: magic "TXMM", version, type, order, number of tokens, number of states,
+ *          number of initial states, state table size, token table size, and the section positions
+ *  token offsets: number of tokens + 1 offsets into the token characters (word chains only)
+ *  token characters: UTF-16 chars of all the tokens
+ *  token table: open addressing hash table of token numbers, -1 if empty (word chains only)
+ *  state table: open addressing hash table of state numbers, -1 if empty
+ *  state index: the position of each state record
+ *  initial states: state numbers of the keys that start a Word
+ *  state records: flags, key length, number of successors, total occurrences,
+ *          key tokens, successor tokens, cumulative successor occurrences
+ * </pre>
+ * In a character chain each token is a char and its token number is the char value,
+ * so there is no token table. A character chain of order 4 or less can be used as an ICharacterMarkovChain
+ * by WordProducer. Word chains are used by SentenceProducer through the token methods.</p>
+ *
+ * Successors are picked by a binary search of the cumulative occurrences: the i'th successor covers the picks
+ * (cumulative occurrence before i) + 1 through (cumulative occurrence through i), as in CollectorStats.
+ *
+ * @see WordProducer#instance(int, ICharacterMarkovChain, Word)
+ * @see SentenceProducer#getSentenceProducer(int, MappedMarkovChain, Sentence)
+ */
+public class MappedMarkovChain implements ICharacterMarkovChain {
+	protected static final Logger log = LogManager.getLogger(MappedMarkovChain.class);
+
+	public static final int MAGIC = 0x54584D4D;	// "TXMM"
+	public static final int VERSION = 1;
+	public static final int NO_TOKEN = -1;
+	private static final int HEADER_SIZE = 16;	// ints
+	private static final int H_TYPE = 2;
+	private static final int H_ORDER = 3;
+	private static final int H_TOKENS = 4;
+	private static final int H_STATES = 5;
+	private static final int H_INITIAL_STATES = 6;
+	private static final int H_STATE_TABLE_SIZE = 7;
+	private static final int H_TOKEN_TABLE_SIZE = 8;
+	private static final int H_TOKEN_OFFSETS = 9;
+	private static final int H_TOKEN_CHARS = 10;
+	private static final int H_TOKEN_TABLE = 11;
+	private static final int H_STATE_TABLE = 12;
+	private static final int H_STATE_INDEX = 13;
+	private static final int H_INITIAL = 14;
+	private static final int H_RECORDS = 15;
+	private static final int RECORD_HEADER_SIZE = 4;	// ints
+	private static final int R_FLAGS = 0;
+	private static final int R_KEY_LENGTH = 4;
+	private static final int R_FANOUT = 8;
+	private static final int R_TOTAL = 12;
+
+	private final ByteBuffer buffer;
+	private final byte type;
+	private final int order;
+	private final int numberOfTokens;
+	private final int numberOfStates;
+	private final int numberOfInitialStates;
+	private final int stateTableMask;
+	private final int tokenTableMask;
+	private final int tokenOffsets;
+	private final int tokenChars;
+	private final int tokenTable;
+	private final int stateTable;
+	private final int stateIndex;
+	private final int initialStates;
+	private boolean pickInitialSeed = false;
+
+	/**
+	 * @param buffer a buffer in the mapped layout, usually from open(String)
+	 * @throws IOException if the buffer is not in the mapped layout
+	 */
+	public MappedMarkovChain(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if(buffer.capacity() < HEADER_SIZE * 4 || buffer.getInt(0) != MAGIC) {
+			throw new IOException("not a mapped MarkovChain file");
+		}
+		if(buffer.getInt(4) > VERSION) {
+			throw new IOException("unsupported version " + buffer.getInt(4));
+		}
+		type = (byte)header(H_TYPE);
+		order = header(H_ORDER);
+		numberOfTokens = header(H_TOKENS);
+		numberOfStates = header(H_STATES);
+		numberOfInitialStates = header(H_INITIAL_STATES);
+		stateTableMask = header(H_STATE_TABLE_SIZE) - 1;
+		tokenTableMask = header(H_TOKEN_TABLE_SIZE) - 1;
+		tokenOffsets = header(H_TOKEN_OFFSETS);
+		tokenChars = header(H_TOKEN_CHARS);
+		tokenTable = header(H_TOKEN_TABLE);
+		stateTable = header(H_STATE_TABLE);
+		stateIndex = header(H_STATE_INDEX);
+		initialStates = header(H_INITIAL);
+	}
+
+	/**
+	 * Maps a file read-only.
+	 * @param filename a file written by one of the write methods
+	 * @return MappedMarkovChain
+	 * @throws IOException
+	 */
+	public static MappedMarkovChain open(String filename) throws IOException {
+		try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			// the mapping remains valid after the channel is closed
+			return new MappedMarkovChain(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Maps a character chain for a WordProducer.
+	 * @param filename a file written by write(CharacterMarkovChain, String) or writeCharacterChain
+	 * @return MappedMarkovChain
+	 * @throws IOException if the file is a word chain, or its order is more than MAX_ORDER
+	 */
+	public static MappedMarkovChain openCharacterChain(String filename) throws IOException {
+		MappedMarkovChain mappedMarkovChain = open(filename);
+		if(!mappedMarkovChain.isCharacterChain()) {
+			throw new IOException(filename + " is a word chain, not a character chain");
+		}
+		if(mappedMarkovChain.getOrder() > MAX_ORDER) {
+			throw new IOException(filename + " has order " + mappedMarkovChain.getOrder() + ", character chains must be order " + MAX_ORDER + " or less");
+		}
+		return mappedMarkovChain;
+	}
+
+	/**
+	 * Maps a word chain for a SentenceProducer.
+	 * @param filename a file written by writeWordChain
+	 * @return MappedMarkovChain
+	 * @throws IOException if the file is a character chain
+	 */
+	public static MappedMarkovChain openWordChain(String filename) throws IOException {
+		MappedMarkovChain mappedMarkovChain = open(filename);
+		if(mappedMarkovChain.isCharacterChain()) {
+			throw new IOException(filename + " is a character chain, not a word chain");
+		}
+		return mappedMarkovChain;
+	}
+
+	private int header(int index) {
+		return buffer.getInt(index * 4);
+	}
+
+	private int record(int state) {
+		return buffer.getInt(stateIndex + state * 4);
+	}
+
+	public boolean isCharacterChain() {
+		return type == MarkovChainSerializer.CHARACTER_CHAIN;
+	}
+
+	@Override
+	public int getOrder() {
+		return order;
+	}
+
+	@Override
+	public int size() {
+		return numberOfStates;
+	}
+
+	public int getNumberOfTokens() {
+		return numberOfTokens;
+	}
+
+	/**
+	 * @param token a Character or Word as a String
+	 * @return the token number, or NO_TOKEN if the token does not occur
+	 */
+	public int getTokenNumber(CharSequence token) {
+		if(isCharacterChain()) {
+			return token.length() == 1 ? token.charAt(0) : NO_TOKEN;
+		}
+		int hash = token.toString().hashCode();
+		for(int slot = mix(hash) & tokenTableMask; ; slot = (slot + 1) & tokenTableMask) {
+			int number = buffer.getInt(tokenTable + slot * 4);
+			if(number == NO_TOKEN) {
+				return NO_TOKEN;
+			}
+			if(tokenEquals(number, token)) {
+				return number;
+			}
+		}
+	}
+
+	private boolean tokenEquals(int number, CharSequence token) {
+		int start = buffer.getInt(tokenOffsets + number * 4);
+		int length = buffer.getInt(tokenOffsets + number * 4 + 4) - start;
+		if(length != token.length()) {
+			return false;
+		}
+		for(int i=0; i<length; i++) {
+			if(buffer.getChar(tokenChars + (start + i) * 2) != token.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param number a token number
+	 * @return the Character or Word as a String
+	 */
+	public String getToken(int number) {
+		if(isCharacterChain()) {
+			return String.valueOf((char)number);
+		}
+		int start = buffer.getInt(tokenOffsets + number * 4);
+		int end = buffer.getInt(tokenOffsets + number * 4 + 4);
+		char[] chars = new char[end - start];
+		for(int i=0; i<chars.length; i++) {
+			chars[i] = buffer.getChar(tokenChars + (start + i) * 2);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Finds the state of a key given as token numbers.
+	 * @param keyTokens
+	 * @param fromIndex index of the first key token
+	 * @param length key length
+	 * @return the state number, or NO_STATE if the key does not occur
+	 */
+	public int getState(int[] keyTokens, int fromIndex, int length) {
+		int hash = 0;
+		for(int i=fromIndex; i<fromIndex + length; i++) {
+			hash = 31 * hash + keyTokens[i];
+		}
+		for(int slot = mix(hash) & stateTableMask; ; slot = (slot + 1) & stateTableMask) {
+			int state = buffer.getInt(stateTable + slot * 4);
+			if(state == NO_STATE) {
+				return NO_STATE;
+			}
+			int record = record(state);
+			if(buffer.getInt(record + R_KEY_LENGTH) == length) {
+				int keyPosition = record + RECORD_HEADER_SIZE * 4;
+				int i = 0;
+				while(i < length && buffer.getInt(keyPosition + i * 4) == keyTokens[fromIndex + i]) {
+					i++;
+				}
+				if(i == length) {
+					return state;
+				}
+			}
+		}
+	}
+
+	public int getKeyLength(int state) {
+		return buffer.getInt(record(state) + R_KEY_LENGTH);
+	}
+
+	public int getKeyToken(int state, int index) {
+		return buffer.getInt(record(state) + (RECORD_HEADER_SIZE + index) * 4);
+	}
+
+	private int successorPosition(int state) {
+		int record = record(state);
+		return record + (RECORD_HEADER_SIZE + buffer.getInt(record + R_KEY_LENGTH)) * 4;
+	}
+
+	public int getSuccessorToken(int state, int index) {
+		return buffer.getInt(successorPosition(state) + index * 4);
+	}
+
+	/**
+	 * Picks the successor token whose occurrence range includes pick.
+	 * @param state
+	 * @param pick 1 to getTotalOccurrence(state) inclusive
+	 * @return successor token number
+	 */
+	public int pickSuccessorToken(int state, int pick) {
+		int record = record(state);
+		int fanout = buffer.getInt(record + R_FANOUT);
+		int successors = record + (RECORD_HEADER_SIZE + buffer.getInt(record + R_KEY_LENGTH)) * 4;
+		int cumulative = successors + fanout * 4;
+		int low = 0;
+		int high = fanout - 1;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(buffer.getInt(cumulative + mid * 4) < pick) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return buffer.getInt(successors + low * 4);
+	}
+
+	/**
+	 * @return a successor token number picked according to the occurrences
+	 */
+	public int pickSuccessorToken(int state, ThreadLocalRandom random) {
+		return pickSuccessorToken(state, random.nextInt(getTotalOccurrence(state)) + 1);
+	}
+
+	/**
+	 * Picks a random state. If pickInitialSeed is set, only keys that start a Word are considered.<br>
+	 * Terminal states are never picked since nothing can be generated from them:
+	 * up to size() random states are picked, then the first state that isn't terminal is taken.
+	 * @return state number
+	 * @throws IllegalStateException if the chain is empty or every state that can be picked is terminal
+	 */
+	public int pickSeedState() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		boolean initialOnly = pickInitialSeed && numberOfInitialStates > 0;
+		int limit = initialOnly ? numberOfInitialStates : numberOfStates;
+		if(limit == 0) {
+			throw new IllegalStateException("no seed state, the chain is empty");
+		}
+		for(int attempts=0; attempts<limit; attempts++) {
+			int state = seedState(random.nextInt(0, limit), initialOnly);
+			if(!isTerminal(state)) {
+				return state;
+			}
+		}
+		for(int pick=0; pick<limit; pick++) {
+			int state = seedState(pick, initialOnly);
+			if(!isTerminal(state)) {
+				return state;
+			}
+		}
+		throw new IllegalStateException("no seed state, all " + limit + (initialOnly ? " initial" : "") + " states are terminal");
+	}
+
+	private int seedState(int pick, boolean initialOnly) {
+		return initialOnly ? buffer.getInt(initialStates + pick * 4) : pick;
+	}
+
+	/**
+	 * Same as getState(int[], int, int) with the key tokens unpacked from key as needed.
+	 */
+	@Override
+	public int getState(long key) {
+		int hash = 0;
+		for(int i=order-1; i>=0; i--) {
+			hash = 31 * hash + (int)((key >>> (16 * i)) & 0xFFFF);
+		}
+		for(int slot = mix(hash) & stateTableMask; ; slot = (slot + 1) & stateTableMask) {
+			int state = buffer.getInt(stateTable + slot * 4);
+			if(state == NO_STATE) {
+				return NO_STATE;
+			}
+			int record = record(state);
+			if(buffer.getInt(record + R_KEY_LENGTH) == order) {
+				int keyPosition = record + RECORD_HEADER_SIZE * 4;
+				int i = 0;
+				while(i < order && buffer.getInt(keyPosition + i * 4) == (int)((key >>> (16 * (order - 1 - i))) & 0xFFFF)) {
+					i++;
+				}
+				if(i == order) {
+					return state;
+				}
+			}
+		}
+	}
+
+	@Override
+	public long getKey(int state) {
+		long key = 0;
+		for(int i=0; i<getKeyLength(state); i++) {
+			key = (key << 16) | getKeyToken(state, i);
+		}
+		return key;
+	}
+
+	@Override
+	public int getTotalOccurrence(int state) {
+		return buffer.getInt(record(state) + R_TOTAL);
+	}
+
+	@Override
+	public int getFanout(int state) {
+		return buffer.getInt(record(state) + R_FANOUT);
+	}
+
+	@Override
+	public char getSuccessor(int state, int index) {
+		return (char)getSuccessorToken(state, index);
+	}
+
+	@Override
+	public int getOccurrence(int state, int index) {
+		int cumulative = successorPosition(state) + getFanout(state) * 4;
+		int through = buffer.getInt(cumulative + index * 4);
+		return (index == 0) ? through : through - buffer.getInt(cumulative + (index - 1) * 4);
+	}
+
+	@Override
+	public boolean isInitial(int state) {
+		return (buffer.getInt(record(state) + R_FLAGS) & MarkovChainSerializer.INITIAL) != 0;
+	}
+
+	@Override
+	public boolean isTerminal(int state) {
+		return (buffer.getInt(record(state) + R_FLAGS) & MarkovChainSerializer.TERMINAL) != 0;
+	}
+
+	@Override
+	public char pickSuccessor(int state, int pick) {
+		return (char)pickSuccessorToken(state, pick);
+	}
+
+	@Override
+	public char pickSuccessor(int state, ThreadLocalRandom random) {
+		return (char)pickSuccessorToken(state, random);
+	}
+
+	@Override
+	public long pickSeedKey() {
+		return getKey(pickSeedState());
+	}
+
+	@Override
+	public boolean isPickInitialSeed() {
+		return pickInitialSeed;
+	}
+
+	@Override
+	public void setPickInitialSeed(boolean pickInitialSeed) {
+		this.pickInitialSeed = pickInitialSeed;
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int tableSize(int n) {
+		int size = 2;
+		while(size < n * 2) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes a chain in the MarkovChainSerializer format to a file in the mapped layout.
+	 * @param in a serialized character or word chain, not closed
+	 * @param filename
+	 * @throws IOException
+	 */
+	public static void write(InputStream in, String filename) throws IOException {
+		MarkovChainSerializer.ChainReader reader = new MarkovChainSerializer.ChainReader(in, (byte)0);
+		boolean characterChain = reader.type == MarkovChainSerializer.CHARACTER_CHAIN;
+		int numberOfStates = reader.numberOfStates;
+		int[][] records = new int[numberOfStates][];
+		int[] initial = new int[numberOfStates];
+		int numberOfInitialStates = 0;
+		int[] tokenNumbers = new int[reader.numberOfTokens()];	// serialized token number to mapped token number
+		for(int i=0; i<tokenNumbers.length; i++) {
+			tokenNumbers[i] = characterChain ? reader.token(i).charAt(0) : i;
+		}
+		for(int state=0; reader.nextState(); state++) {
+			int keyLength = reader.keyLength;
+			int fanout = reader.fanout;
+			int[] record = new int[RECORD_HEADER_SIZE + keyLength + 2 * fanout];
+			record[0] = reader.flags;
+			record[1] = keyLength;
+			record[2] = fanout;
+			for(int i=0; i<keyLength; i++) {
+				record[RECORD_HEADER_SIZE + i] = tokenNumbers[reader.keyTokens[i]];
+			}
+			int total = 0;
+			for(int i=0; i<fanout; i++) {
+				total += reader.counts[i];
+				record[RECORD_HEADER_SIZE + keyLength + i] = tokenNumbers[reader.successors[i]];
+				record[RECORD_HEADER_SIZE + keyLength + fanout + i] = total;
+			}
+			record[3] = total;
+			records[state] = record;
+			if((reader.flags & MarkovChainSerializer.INITIAL) != 0) {
+				initial[numberOfInitialStates++] = state;
+			}
+		}
+		int numberOfTokens = characterChain ? 0 : tokenNumbers.length;
+		long tokenCharsLength = 0;
+		for(int i=0; i<numberOfTokens; i++) {
+			tokenCharsLength += reader.token(i).length();
+		}
+		int stateTableSize = tableSize(numberOfStates);
+		int tokenTableSize = characterChain ? 1 : tableSize(numberOfTokens);
+		int[] stateTable = new int[stateTableSize];
+		Arrays.fill(stateTable, NO_STATE);
+		for(int state=0; state<numberOfStates; state++) {
+			int[] record = records[state];
+			int hash = 0;
+			for(int i=0; i<record[1]; i++) {
+				hash = 31 * hash + record[RECORD_HEADER_SIZE + i];
+			}
+			int slot = mix(hash) & (stateTableSize - 1);
+			while(stateTable[slot] != NO_STATE) {
+				slot = (slot + 1) & (stateTableSize - 1);
+			}
+			stateTable[slot] = state;
+		}
+		int[] tokenTable = new int[tokenTableSize];
+		Arrays.fill(tokenTable, NO_TOKEN);
+		for(int number=0; number<numberOfTokens; number++) {
+			int slot = mix(reader.token(number).hashCode()) & (tokenTableSize - 1);
+			while(tokenTable[slot] != NO_TOKEN) {
+				slot = (slot + 1) & (tokenTableSize - 1);
+			}
+			tokenTable[slot] = number;
+		}
+		// section positions, which must fit in an int
+		long tokenOffsetsPosition = HEADER_SIZE * 4;
+		long tokenCharsPosition = tokenOffsetsPosition + (numberOfTokens + 1) * 4L;
+		long tokenTablePosition = tokenCharsPosition + ((tokenCharsLength * 2 + 3) & ~3L);
+		long stateTablePosition = tokenTablePosition + tokenTableSize * 4L;
+		long stateIndexPosition = stateTablePosition + stateTableSize * 4L;
+		long initialPosition = stateIndexPosition + numberOfStates * 4L;
+		long recordsPosition = initialPosition + numberOfInitialStates * 4L;
+		int[] recordPositions = new int[numberOfStates];
+		long position = recordsPosition;
+		for(int state=0; state<numberOfStates; state++) {
+			recordPositions[state] = position(position, filename);
+			position += records[state].length * 4L;
+		}
+		position(position, filename);
+
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			int[] header = {MAGIC, VERSION, reader.type, reader.order, numberOfTokens, numberOfStates, numberOfInitialStates,
+					stateTableSize, tokenTableSize, position(tokenOffsetsPosition, filename), position(tokenCharsPosition, filename),
+					position(tokenTablePosition, filename), position(stateTablePosition, filename), position(stateIndexPosition, filename),
+					position(initialPosition, filename), position(recordsPosition, filename)};
+			writeInts(out, header, header.length);
+			int offset = 0;
+			for(int i=0; i<numberOfTokens; i++) {
+				out.writeInt(offset);
+				offset += reader.token(i).length();
+			}
+			out.writeInt(offset);
+			for(int i=0; i<numberOfTokens; i++) {
+				out.writeChars(reader.token(i));
+			}
+			if((tokenCharsLength & 1) != 0) {
+				out.writeChar(0);	// align to int
+			}
+			writeInts(out, tokenTable, tokenTableSize);
+			writeInts(out, stateTable, stateTableSize);
+			writeInts(out, recordPositions, numberOfStates);
+			writeInts(out, initial, numberOfInitialStates);
+			for(int state=0; state<numberOfStates; state++) {
+				writeInts(out, records[state], records[state].length);
+			}
+		}
+		log.debug("wrote " + numberOfStates + " states to " + filename);
+	}
+
+	/**
+	 * @return position as an int
+	 * @throws IOException if the file would be larger than an int can address
+	 */
+	private static int position(long position, String filename) throws IOException {
+		if(position > Integer.MAX_VALUE) {
+			throw new IOException("the model is too large for a mapped file: " + filename + " would be over " + Integer.MAX_VALUE + " bytes");
+		}
+		return (int)position;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+		for(int i=0; i<length; i++) {
+			out.writeInt(values[i]);
+		}
+	}
+
+	public static void write(String serializedFilename, String filename) throws IOException {
+		try(InputStream in = new FileInputStream(serializedFilename)) {
+			write(in, filename);
+		}
+	}
+
+	public static void writeCharacterChain(MarkovChain<Character, Word, Sentence> markovChain, String filename) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MarkovChainSerializer.saveCharacterChain(markovChain, out);
+		write(new ByteArrayInputStream(out.toByteArray()), filename);
+	}
+
+	public static void write(CharacterMarkovChain markovChain, String filename) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MarkovChainSerializer.save(markovChain, out);
+		write(new ByteArrayInputStream(out.toByteArray()), filename);
+	}
+
+	public static void writeWordChain(MarkovChain<Word, Sentence, Book> markovChain, String filename) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MarkovChainSerializer.saveWordChain(markovChain, out);
+		write(new ByteArrayInputStream(out.toByteArray()), filename);
+	}
+
+}
@@ -0,0 +1,459 @@
+package org.dwbzen.text.cp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dwbzen.common.cp.CollectorStats;
+import org.dwbzen.common.cp.MarkovChain;
+import org.dwbzen.common.math.OccurrenceProbability;
+import org.dwbzen.text.element.Book;
+import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.Word;
+
+/**
+ * Saves and loads trained Markov chains in a compact, versioned binary format
+ * so a producer can start from a saved model instead of collecting the source text again.<br>
+ * Character chains (MarkovChain&lt;Character, Word, Sentence&gt; or CharacterMarkovChain) and
+ * Word chains (MarkovChain&lt;Word, Sentence, Book&gt;) are supported.
+ * A saved character chain can be loaded either way.</p>
+ *
+ * Layout, where all counts and numbers are unsigned LEB128 varints and strings are UTF-8 with a varint length:
+ * <pre>
+ *  magic "TXMC", version, type ('C' character chain or 'W' word chain), order
+ *  token table: number of tokens, then each token String (a Character or Word)
+ *  number of states, then for each state:
+ *    flags (INITIAL, TERMINAL, APPENDED), key length, key token numbers,
+ *    number of successors, then each successor token number and occurrence count
+ * </pre>
+ * Each distinct Character or Word is written once, in the token table, and referred to by number.
+ * APPENDED marks a word chain terminal key whose last Word (TERMINAL) is not part of the key source,
+ * as WordCollector creates them.</p>
+ *
+ * The supplier (provenance) of each occurrence is not saved.</p>
+ *
+ * Loading into a commonlib MarkovChain, loadCharacterChain and loadWordChain, replays addOccurrence once per saved occurrence,
+ * since CollectorStats has no way to add a count in one call. The time to load is proportional to the
+ * total occurrences rather than the number of successors. loadCharacterMarkovChain adds each count with
+ * CharacterMarkovChain.addOccurrences and is the faster way to load a character chain.
+ *
+ * @see WordCollectorRunner
+ * @see CharacterCollectorRunner
+ */
+public class MarkovChainSerializer {
+	protected static final Logger log = LogManager.getLogger(MarkovChainSerializer.class);
+
+	public static final int MAGIC = 0x54584D43;	// "TXMC"
+	public static final int VERSION = 1;
+	public static final byte CHARACTER_CHAIN = 'C';
+	public static final byte WORD_CHAIN = 'W';
+	static final int INITIAL = 0x01;
+	static final int TERMINAL = 0x02;
+	static final int APPENDED = 0x04;
+
+	private MarkovChainSerializer() {
+	}
+
+	/**
+	 * Saves a character chain collected by CharacterCollector.
+	 * @param markovChain
+	 * @param out not closed
+	 * @throws IOException
+	 */
+	public static void saveCharacterChain(MarkovChain<Character, Word, Sentence> markovChain, OutputStream out) throws IOException {
+		ChainWriter writer = new ChainWriter();
+		for(Map.Entry<Word, CollectorStats<Character, Word, Sentence>> entry : markovChain.entrySet()) {
+			CollectorStats<Character, Word, Sentence> cstats = entry.getValue();
+			Word key = entry.getKey();
+			List<String> keyTokens = new ArrayList<>(key.size());
+			for(Character c : key) {
+				keyTokens.add(String.valueOf(c));
+			}
+			writer.writeKey(flags(cstats, false), keyTokens);
+			Map<Character, OccurrenceProbability> occurrenceProbabilityMap = cstats.getOccurrenceProbabilityMap();
+			writer.writeVarint(occurrenceProbabilityMap.size());
+			for(Map.Entry<Character, OccurrenceProbability> successor : occurrenceProbabilityMap.entrySet()) {
+				writer.writeSuccessor(String.valueOf(successor.getKey()), successor.getValue().getOccurrence());
+			}
+		}
+		writer.writeTo(out, CHARACTER_CHAIN);
+	}
+
+	/**
+	 * Saves a CharacterMarkovChain in the character chain format.
+	 * @param markovChain
+	 * @param out not closed
+	 * @throws IOException
+	 */
+	public static void save(CharacterMarkovChain markovChain, OutputStream out) throws IOException {
+		ChainWriter writer = new ChainWriter();
+		for(int state=0; state<markovChain.size(); state++) {
+			String key = markovChain.toWord(markovChain.getKey(state)).getWordString();
+			List<String> keyTokens = new ArrayList<>(key.length());
+			for(int i=0; i<key.length(); i++) {
+				keyTokens.add(String.valueOf(key.charAt(i)));
+			}
+			int flags = (markovChain.isInitial(state) ? INITIAL : 0) | (markovChain.isTerminal(state) ? TERMINAL : 0);
+			writer.writeKey(flags, keyTokens);
+			int fanout = markovChain.getFanout(state);
+			writer.writeVarint(fanout);
+			for(int i=0; i<fanout; i++) {
+				writer.writeSuccessor(String.valueOf(markovChain.getSuccessor(state, i)), markovChain.getOccurrence(state, i));
+			}
+		}
+		writer.writeTo(out, CHARACTER_CHAIN);
+	}
+
+	/**
+	 * Saves a word chain collected by WordCollector.
+	 * @param markovChain
+	 * @param out not closed
+	 * @throws IOException
+	 */
+	public static void saveWordChain(MarkovChain<Word, Sentence, Book> markovChain, OutputStream out) throws IOException {
+		ChainWriter writer = new ChainWriter();
+		for(Map.Entry<Sentence, CollectorStats<Word, Sentence, Book>> entry : markovChain.entrySet()) {
+			CollectorStats<Word, Sentence, Book> cstats = entry.getValue();
+			Sentence key = entry.getKey();
+			List<String> keyTokens = new ArrayList<>(key.size());
+			StringBuilder source = new StringBuilder();
+			for(int i=0; i<key.size(); i++) {
+				keyTokens.add(key.get(i).toString());
+				source.append(key.get(i)).append(' ');
+			}
+			boolean appended = !source.toString().trim().equals(key.getSource());
+			writer.writeKey(flags(cstats, appended), keyTokens);
+			Map<Word, OccurrenceProbability> occurrenceProbabilityMap = cstats.getOccurrenceProbabilityMap();
+			writer.writeVarint(occurrenceProbabilityMap.size());
+			for(Map.Entry<Word, OccurrenceProbability> successor : occurrenceProbabilityMap.entrySet()) {
+				writer.writeSuccessor(successor.getKey().toString(), successor.getValue().getOccurrence());
+			}
+		}
+		writer.writeTo(out, WORD_CHAIN);
+	}
+
+	/**
+	 * Loads a character chain into a MarkovChain, adding each occurrence one at a time.<br>
+	 * loadCharacterMarkovChain(InputStream) loads the same file faster.
+	 * @param in not closed
+	 * @return MarkovChain&lt;Character, Word, Sentence&gt;
+	 * @throws IOException if the input is not a character chain or is not readable
+	 */
+	public static MarkovChain<Character, Word, Sentence> loadCharacterChain(InputStream in) throws IOException {
+		ChainReader reader = new ChainReader(in, CHARACTER_CHAIN);
+		MarkovChain<Character, Word, Sentence> markovChain = new MarkovChain<Character, Word, Sentence>(reader.order);
+		while(reader.nextState()) {
+			StringBuilder key = new StringBuilder();
+			for(int i=0; i<reader.keyLength; i++) {
+				key.append(reader.token(reader.keyTokens[i]));
+			}
+			Word subset = new Word(key.toString());
+			CollectorStats<Character, Word, Sentence> collectorStats = new CollectorStats<Character, Word, Sentence>();
+			collectorStats.setSubset(subset);
+			for(int i=0; i<reader.fanout; i++) {
+				Character successor = reader.token(reader.successors[i]).charAt(0);
+				// CollectorStats has no bulk count, see the class comment
+				for(int n=0; n<reader.counts[i]; n++) {
+					collectorStats.addOccurrence(successor);
+				}
+			}
+			collectorStats.setTerminal((reader.flags & TERMINAL) != 0);
+			collectorStats.setInitial((reader.flags & INITIAL) != 0);
+			markovChain.put(subset, collectorStats);
+		}
+		return markovChain;
+	}
+
+	/**
+	 * Loads a character chain into a CharacterMarkovChain.<br>
+	 * The chain order must be CharacterMarkovChain.MAX_ORDER or less.
+	 * @param in not closed
+	 * @return CharacterMarkovChain
+	 * @throws IOException if the input is not a character chain or is not readable
+	 */
+	public static CharacterMarkovChain loadCharacterMarkovChain(InputStream in) throws IOException {
+		ChainReader reader = new ChainReader(in, CHARACTER_CHAIN);
+		if(reader.order > CharacterMarkovChain.MAX_ORDER) {
+			throw new IOException("order " + reader.order + " chain does not fit a CharacterMarkovChain");
+		}
+		CharacterMarkovChain markovChain = new CharacterMarkovChain(reader.order);
+		while(reader.nextState()) {
+			if(reader.keyLength != reader.order) {
+				throw new IOException("key length " + reader.keyLength + " != order " + reader.order);
+			}
+			long key = 0;
+			for(int i=0; i<reader.keyLength; i++) {
+				key = markovChain.roll(key, reader.token(reader.keyTokens[i]).charAt(0));
+			}
+			int state = CharacterMarkovChain.NO_STATE;
+			for(int i=0; i<reader.fanout; i++) {
+				state = markovChain.addOccurrences(key, reader.token(reader.successors[i]).charAt(0), reader.counts[i]);
+			}
+			if((reader.flags & INITIAL) != 0 && state != CharacterMarkovChain.NO_STATE) {
+				markovChain.setInitial(state);
+			}
+		}
+		return markovChain;
+	}
+
+	/**
+	 * Loads a word chain into a MarkovChain.
+	 * @param in not closed
+	 * @return MarkovChain&lt;Word, Sentence, Book&gt;
+	 * @throws IOException if the input is not a word chain or is not readable
+	 */
+	public static MarkovChain<Word, Sentence, Book> loadWordChain(InputStream in) throws IOException {
+		ChainReader reader = new ChainReader(in, WORD_CHAIN);
+		MarkovChain<Word, Sentence, Book> markovChain = new MarkovChain<Word, Sentence, Book>(reader.order);
+		Word[] words = new Word[reader.tokens.length];	// Words are immutable once collected, so they can be shared
+		while(reader.nextState()) {
+			boolean appended = (reader.flags & APPENDED) != 0;
+			int sourceLength = appended ? reader.keyLength - 1 : reader.keyLength;
+			Sentence subset = new Sentence();
+			for(int i=0; i<sourceLength; i++) {
+				subset.add(word(words, reader, reader.keyTokens[i]));
+			}
+			subset.setSource();
+			if(appended) {
+				subset.append(word(words, reader, reader.keyTokens[sourceLength]));
+			}
+			CollectorStats<Word, Sentence, Book> collectorStats = new CollectorStats<>();
+			collectorStats.setSubset(subset);
+			for(int i=0; i<reader.fanout; i++) {
+				Word successor = word(words, reader, reader.successors[i]);
+				// CollectorStats has no bulk count, see the class comment
+				for(int n=0; n<reader.counts[i]; n++) {
+					collectorStats.addOccurrence(successor);
+				}
+			}
+			collectorStats.setTerminal((reader.flags & TERMINAL) != 0);
+			collectorStats.setInitial((reader.flags & INITIAL) != 0);
+			markovChain.put(subset, collectorStats);
+		}
+		return markovChain;
+	}
+
+	public static void saveCharacterChain(MarkovChain<Character, Word, Sentence> markovChain, String filename) throws IOException {
+		try(OutputStream out = new BufferedOutputStream(new FileOutputStream(filename))) {
+			saveCharacterChain(markovChain, out);
+		}
+	}
+
+	public static void saveWordChain(MarkovChain<Word, Sentence, Book> markovChain, String filename) throws IOException {
+		try(OutputStream out = new BufferedOutputStream(new FileOutputStream(filename))) {
+			saveWordChain(markovChain, out);
+		}
+	}
+
+	public static MarkovChain<Character, Word, Sentence> loadCharacterChain(String filename) throws IOException {
+		try(InputStream in = new FileInputStream(filename)) {
+			return loadCharacterChain(in);
+		}
+	}
+
+	public static CharacterMarkovChain loadCharacterMarkovChain(String filename) throws IOException {
+		try(InputStream in = new FileInputStream(filename)) {
+			return loadCharacterMarkovChain(in);
+		}
+	}
+
+	public static MarkovChain<Word, Sentence, Book> loadWordChain(String filename) throws IOException {
+		try(InputStream in = new FileInputStream(filename)) {
+			return loadWordChain(in);
+		}
+	}
+
+	private static int flags(CollectorStats<?, ?, ?> cstats, boolean appended) {
+		return (cstats.isInitial() ? INITIAL : 0) | (cstats.isTerminal() ? TERMINAL : 0) | (appended ? APPENDED : 0);
+	}
+
+	private static Word word(Word[] words, ChainReader reader, int token) {
+		if(words[token] == null) {
+			words[token] = new Word(reader.token(token));
+		}
+		return words[token];
+	}
+
+	/**
+	 * Writes states to a buffer while building the token table, which is written ahead of them.
+	 */
+	private static class ChainWriter {
+		private Map<String, Integer> tokenNumbers = new HashMap<>();
+		private List<String> tokens = new ArrayList<>();
+		private ByteArrayOutputStream states = new ByteArrayOutputStream();
+		private int numberOfStates = 0;
+		private int order = 0;
+
+		void writeKey(int flags, List<String> keyTokens) {
+			numberOfStates++;
+			order = Math.max(order, keyTokens.size());
+			states.write(flags);
+			writeVarint(keyTokens.size());
+			for(String token : keyTokens) {
+				writeVarint(tokenNumber(token));
+			}
+		}
+
+		void writeSuccessor(String token, int occurrence) {
+			writeVarint(tokenNumber(token));
+			writeVarint(occurrence);
+		}
+
+		void writeVarint(int value) {
+			writeVarint(states, value);
+		}
+
+		private int tokenNumber(String token) {
+			Integer number = tokenNumbers.get(token);
+			if(number == null) {
+				number = tokens.size();
+				tokenNumbers.put(token, number);
+				tokens.add(token);
+			}
+			return number;
+		}
+
+		void writeTo(OutputStream out, byte type) throws IOException {
+			DataOutputStream dataOut = new DataOutputStream(out);
+			dataOut.writeInt(MAGIC);
+			writeVarint(dataOut, VERSION);
+			dataOut.write(type);
+			writeVarint(dataOut, order);
+			writeVarint(dataOut, tokens.size());
+			for(String token : tokens) {
+				byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+				writeVarint(dataOut, bytes.length);
+				dataOut.write(bytes);
+			}
+			writeVarint(dataOut, numberOfStates);
+			states.writeTo(dataOut);
+			dataOut.flush();
+			log.debug("saved " + numberOfStates + " states, " + tokens.size() + " tokens");
+		}
+
+		private static void writeVarint(OutputStream out, int value) {
+			try {
+				while((value & ~0x7F) != 0) {
+					out.write((value & 0x7F) | 0x80);
+					value >>>= 7;
+				}
+				out.write(value);
+			}
+			catch(IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the header and token table, then one state at a time into reusable arrays.
+	 */
+	static class ChainReader {
+		private DataInputStream in;
+		private String[] tokens;
+		private int statesRead = 0;
+		int numberOfStates;
+		byte type;
+		int order;
+		int flags;
+		int keyLength;
+		int[] keyTokens = new int[8];
+		int fanout;
+		int[] successors = new int[64];
+		int[] counts = new int[64];
+
+		/**
+		 * @param inputStream
+		 * @param type the expected chain type, or 0 for either
+		 */
+		ChainReader(InputStream inputStream, byte type) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(inputStream));
+			if(in.readInt() != MAGIC) {
+				throw new IOException("not a MarkovChain file");
+			}
+			int version = readVarint();
+			if(version > VERSION) {
+				throw new IOException("unsupported version " + version);
+			}
+			this.type = in.readByte();
+			if(type != 0 && this.type != type) {
+				throw new IOException("expected chain type '" + (char)type + "' but was '" + (char)this.type + "'");
+			}
+			order = readVarint();
+			tokens = new String[readVarint()];
+			for(int i=0; i<tokens.length; i++) {
+				byte[] bytes = new byte[readVarint()];
+				in.readFully(bytes);
+				tokens[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			numberOfStates = readVarint();
+		}
+
+		String token(int number) {
+			return tokens[number];
+		}
+
+		int numberOfTokens() {
+			return tokens.length;
+		}
+
+		/**
+		 * @return false after the last state
+		 */
+		boolean nextState() throws IOException {
+			if(statesRead == numberOfStates) {
+				return false;
+			}
+			statesRead++;
+			flags = in.readUnsignedByte();
+			keyLength = readVarint();
+			if(keyLength > keyTokens.length) {
+				keyTokens = new int[keyLength];
+			}
+			for(int i=0; i<keyLength; i++) {
+				keyTokens[i] = readVarint();
+			}
+			fanout = readVarint();
+			if(fanout > successors.length) {
+				successors = new int[fanout];
+				counts = new int[fanout];
+			}
+			for(int i=0; i<fanout; i++) {
+				successors[i] = readVarint();
+				counts[i] = readVarint();
+			}
+			return true;
+		}
+
+		private int readVarint() throws IOException {
+			int value = 0;
+			for(int shift=0; shift<35; shift+=7) {
+				int b = in.read();
+				if(b < 0) {
+					throw new EOFException();
+				}
+				value |= (b & 0x7F) << shift;
+				if((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("malformed varint");
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.dwbzen.text.cp;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import org.dwbzen.common.cp.CollectorStats;
+import org.dwbzen.common.cp.MarkovChain;
+import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.Word;
+
+/**
+ * Finds seeds for Words that start with a given prefix, so WordProducer can generate them directly
+ * instead of generating Words and filtering them.</p>
+ *
+ * The keys of the initial states of a character chain (those that start a Word, with a leading DELIM_CHARACTER)
+ * are kept in sorted order, so the keys starting with a prefix are a range found by binary search.
+ * Keys in the range are picked in proportion to their total occurrences through a running total.</p>
+ *
+ * A prefix shorter than the order is completed with a key from its range.
+ * A prefix of order characters or more is its own seed if it starts with an initial key
+ * and every order characters of it are a key of the chain: generation then continues from the last of them.</p>
+ *
+ * Like CharacterContextIndex this is a snapshot of the keys of the chain: isCurrent tells when to build a new index.
+ */
+class PrefixIndex {
+
+	private final int order;
+	private final int chainSize;
+	private final String[] keys;		// sorted initial keys
+	private final long[] totals;		// running total of occurrences through each key
+	private final Predicate<String> isKey;
+
+	private PrefixIndex(int order, int chainSize, Map<String, Integer> initialKeys, Predicate<String> isKey) {
+		this.order = order;
+		this.chainSize = chainSize;
+		this.isKey = isKey;
+		keys = initialKeys.keySet().toArray(new String[initialKeys.size()]);
+		totals = new long[keys.length];
+		long total = 0;
+		for(int i=0; i<keys.length; i++) {
+			total += initialKeys.get(keys[i]);
+			totals[i] = total;
+		}
+	}
+
+	static PrefixIndex of(ICharacterMarkovChain characterMarkovChain) {
+		Map<String, Integer> initialKeys = new TreeMap<>();
+		for(int state=0; state<characterMarkovChain.size(); state++) {
+			if(characterMarkovChain.isInitial(state)) {
+				initialKeys.put(characterMarkovChain.toWord(characterMarkovChain.getKey(state)).getWordString(), characterMarkovChain.getTotalOccurrence(state));
+			}
+		}
+		return new PrefixIndex(characterMarkovChain.getOrder(), characterMarkovChain.size(), initialKeys,
+				key -> characterMarkovChain.getState(characterMarkovChain.key(key, 0)) != ICharacterMarkovChain.NO_STATE);
+	}
+
+	static PrefixIndex of(MarkovChain<Character, Word, Sentence> markovChain, int order) {
+		Map<String, Integer> initialKeys = new TreeMap<>();
+		for(Map.Entry<Word, CollectorStats<Character, Word, Sentence>> entry : markovChain.entrySet()) {
+			if(entry.getValue().isInitial() && entry.getKey().size() == order) {
+				initialKeys.put(entry.getKey().getWordString(), entry.getValue().getTotalOccurrance());
+			}
+		}
+		return new PrefixIndex(order, markovChain.size(), initialKeys, key -> markovChain.containsKey(new Word(key)));
+	}
+
+	/**
+	 * @param prefix the start of a Word, with or without the leading DELIM_CHARACTER
+	 * @param random
+	 * @return a seed starting with the prefix or null if no Word of the chain can start with it
+	 */
+	Word pickSeed(String prefix, ThreadLocalRandom random) {
+		if(!prefix.startsWith(Word.DELIM_STRING)) {
+			prefix = Word.DELIM_STRING + prefix;
+		}
+		if(prefix.length() >= order) {
+			return isSeed(prefix) ? new Word(prefix) : null;
+		}
+		int from = lowerBound(prefix);
+		int to = lowerBound(prefix + Character.MAX_VALUE);
+		long low = (from == 0) ? 0 : totals[from - 1];
+		long high = (to == 0) ? 0 : totals[to - 1];
+		if(high <= low) {
+			return null;
+		}
+		// the first key with a running total greater than the pick
+		long pick = random.nextLong(low, high);
+		while(from < to) {
+			int mid = (from + to) >>> 1;
+			if(totals[mid] > pick) {
+				to = mid;
+			}
+			else {
+				from = mid + 1;
+			}
+		}
+		return new Word(keys[from]);
+	}
+
+	private boolean isSeed(String prefix) {
+		if(Arrays.binarySearch(keys, prefix.substring(0, order)) < 0) {
+			return false;
+		}
+		for(int i=1; i + order <= prefix.length(); i++) {
+			if(!isKey.test(prefix.substring(i, i + order))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the index of the first key not less than key
+	 */
+	private int lowerBound(String key) {
+		int index = Arrays.binarySearch(keys, key);
+		return (index < 0) ? -index - 1 : index;
+	}
+
+	/**
+	 * @param size the number of states of the chain this was built from
+	 * @return false if states have been added to the chain since
+	 */
+	boolean isCurrent(int size) {
+		return size == chainSize;
+	}
+
+}
@@ -0,0 +1,174 @@
+package org.dwbzen.text.cp;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.dwbzen.common.cp.CollectorStats;
+import org.dwbzen.common.math.OccurrenceProbability;
+
+/**
+ * A Walker/Vose alias table over the successors of one Markov chain state.<br>
+ * Picks a successor in O(1) with a single random number, where walking the
+ * CollectorStats occurrence ranges costs O(number of successors).</p>
+ *
+ * Weights are integer occurrence counts and the table is built with integer arithmetic,
+ * so each successor is picked with probability exactly occurrence / total occurrence,
+ * the same as picking a number in 1 to total and finding the range containing it.</p>
+ *
+ * Producers build tables lazily, the first time a state is visited.
+ * A table built from CollectorStats is a snapshot: isCurrent(CollectorStats) tells if the stats have since changed.
+ *
+ * @param <K> the successor type, Character for Word chains and Word for Sentence chains
+ */
+public class SamplingTable<K> {
+
+	private final Object[] keys;		// may be null if the caller maps indexes itself
+	private final int[] alias;
+	private final long[] threshold;
+	private final long total;
+
+	/**
+	 * @param keys successors, parallel to weights. May be null.
+	 * @param weights occurrence counts, all > 0
+	 * @param size number of weights to use
+	 */
+	public SamplingTable(K[] keys, int[] weights, int size) {
+		if(size < 1) {
+			throw new IllegalArgumentException("no successors");
+		}
+		this.keys = keys;
+		alias = new int[size];
+		threshold = new long[size];
+		long sum = 0;
+		for(int i=0; i<size; i++) {
+			sum += weights[i];
+		}
+		total = sum;
+		/*
+		 * Vose's method: each column has a scaled weight of weight*size and a capacity of total.
+		 * Underfull columns are topped up from an overfull column, which becomes their alias.
+		 */
+		int[] small = new int[size];
+		int[] large = new int[size];
+		int nsmall = 0;
+		int nlarge = 0;
+		long[] scaled = new long[size];
+		for(int i=0; i<size; i++) {
+			scaled[i] = (long)weights[i] * size;
+			if(scaled[i] < total) {
+				small[nsmall++] = i;
+			}
+			else {
+				large[nlarge++] = i;
+			}
+		}
+		while(nsmall > 0 && nlarge > 0) {
+			int s = small[--nsmall];
+			int l = large[--nlarge];
+			threshold[s] = scaled[s];
+			alias[s] = l;
+			scaled[l] -= total - scaled[s];
+			if(scaled[l] < total) {
+				small[nsmall++] = l;
+			}
+			else {
+				large[nlarge++] = l;
+			}
+		}
+		while(nlarge > 0) {
+			int l = large[--nlarge];
+			threshold[l] = total;
+			alias[l] = l;
+		}
+		while(nsmall > 0) {
+			int s = small[--nsmall];
+			threshold[s] = total;
+			alias[s] = s;
+		}
+	}
+
+	/**
+	 * Builds a SamplingTable from the occurrence counts of a CollectorStats.
+	 * Successors are indexed in the occurrence probability map key order.
+	 * @param cstats
+	 * @return SamplingTable
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K> SamplingTable<K> of(CollectorStats<K, ?, ?> cstats) {
+		Map<K, OccurrenceProbability> occurrenceProbabilityMap = cstats.getOccurrenceProbabilityMap();
+		int size = occurrenceProbabilityMap.size();
+		Object[] keys = new Object[size];
+		int[] weights = new int[size];
+		int i = 0;
+		for(Map.Entry<K, OccurrenceProbability> entry : occurrenceProbabilityMap.entrySet()) {
+			keys[i] = entry.getKey();
+			weights[i++] = entry.getValue().getOccurrence();
+		}
+		return new SamplingTable<K>((K[])keys, weights, size);
+	}
+
+	/**
+	 * Maps r to a successor index.
+	 * Each index i is the result for exactly weight(i) * size() of the values of r.
+	 * @param r 0 to size() * getTotal() exclusive
+	 * @return successor index
+	 */
+	public int indexOf(long r) {
+		int column = (int)(r / total);
+		return (r % total) < threshold[column] ? column : alias[column];
+	}
+
+	/**
+	 * @return a successor index picked according to the weights
+	 */
+	public int pickIndex(ThreadLocalRandom random) {
+		return indexOf(random.nextLong(total * alias.length));
+	}
+
+	/**
+	 * @return a successor picked according to the weights
+	 */
+	@SuppressWarnings("unchecked")
+	public K pick(ThreadLocalRandom random) {
+		return (K)keys[pickIndex(random)];
+	}
+
+	/**
+	 * @return a successor picked with equal probability, ignoring the weights
+	 */
+	@SuppressWarnings("unchecked")
+	public K pickUniform(ThreadLocalRandom random) {
+		return (K)keys[random.nextInt(0, alias.length)];
+	}
+
+	/**
+	 * Decides whether a producer picks from a context or backs off to the next shorter one,
+	 * interpolating the orders of a multi-order chain (Witten-Bell).<br>
+	 * A context seen total times with fanout distinct successors is used with probability total / (total + fanout),
+	 * so a context that is sparse for the variety of its successors backs off more often.
+	 * @param total occurrences of the context
+	 * @param fanout number of distinct successors of the context
+	 * @param random
+	 * @return true to pick from the context
+	 */
+	public static boolean useContext(long total, int fanout, ThreadLocalRandom random) {
+		return random.nextLong(total + fanout) < total;
+	}
+
+	/**
+	 * @param cstats the CollectorStats this table was built from
+	 * @return false if successors have been added to cstats since
+	 */
+	public boolean isCurrent(CollectorStats<K, ?, ?> cstats) {
+		return cstats.getTotalOccurrance() == total && cstats.size() == alias.length;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public int size() {
+		return alias.length;
+	}
+
+}
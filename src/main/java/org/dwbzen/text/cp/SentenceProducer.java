@@ -1,15 +1,18 @@
 package org.dwbzen.text.cp;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.dwbzen.common.cp.*;
-import org.dwbzen.common.math.OccurrenceProbability;
 import org.dwbzen.text.element.Book;
 import org.dwbzen.text.element.Sentence;
 import org.dwbzen.text.element.Word;
@@ -53,6 +56,16 @@ public class SentenceProducer  implements IProducer<MarkovChain<Word, Sentence,
 	private int minimumLength = 3;	// doesn't save Sentences with fewer words than this
 	private int maximumLength = 10;
 	private int count = 0;
+	private Map<CollectorStats<Word, Sentence, Book>, SamplingTable<Word>> samplingTables = new IdentityHashMap<>();
+	private ReadWriteLock lock = null;	// if set, held for reading by produce()
+	private boolean interpolate = true;	// interpolate the orders of a multi-order chain
+	private MappedMarkovChain mappedMarkovChain = null;	// used instead of markovChain if set
+	private int[] context = null;		// nextSeed as MappedMarkovChain token numbers
+	private WordContextIndex contextIndex = null;	// markovChain states by context Words
+	private Word[] contextWords = null;	// the last order Words, right-aligned
+	private int[] wordHashes = null;		// Word.hashCode() of each context Word
+	private int[] contextHashes = null;	// NGram hash code of the context suffix of each length
+	private List<Word> generatedWords = new ArrayList<>();	// reused for each Sentence
 
 	public static SentenceProducer getSentenceProducer(int order, MarkovChain<Word, Sentence, Book> cstatsMap, Sentence seed ) {
 		SentenceProducer producer = new SentenceProducer(order, cstatsMap);
@@ -61,13 +74,64 @@ public class SentenceProducer  implements IProducer<MarkovChain<Word, Sentence,
 		return producer;
 	}
 	
+	/**
+	 * Creates a SentenceProducer that generates from a memory-mapped word chain instead of a MarkovChain.<br>
+	 * produce() and apply() work the same way, however the MarkovChain argument to apply() is not used.
+	 * @param order
+	 * @param mappedMarkovChain a word chain
+	 * @param seed
+	 * @return SentenceProducer
+	 */
+	public static SentenceProducer getSentenceProducer(int order, MappedMarkovChain mappedMarkovChain, Sentence seed ) {
+		if(mappedMarkovChain.isCharacterChain()) {
+			throw new IllegalArgumentException("SentenceProducer needs a word chain");
+		}
+		SentenceProducer producer = new SentenceProducer(order, (MarkovChain<Word, Sentence, Book>)null);
+		producer.mappedMarkovChain = mappedMarkovChain;
+		producer.context = new int[order];
+		producer.setSeed(seed);
+		producer.setOriginalSeed(seed);
+		return producer;
+	}
+	
 	protected SentenceProducer(int order, MarkovChain<Word, Sentence, Book> cstatsMap ) {
 		this.order = order;
 		this.markovChain = cstatsMap;
 	}
+	
+	/**
+	 * @param mappedMarkovChain
+	 * @return a random seed from a MappedMarkovChain as a Sentence
+	 */
+	public static Sentence pickSeed(MappedMarkovChain mappedMarkovChain) {
+		int state = mappedMarkovChain.pickSeedState();
+		Sentence seed = new Sentence();
+		for(int i=0; i<mappedMarkovChain.getKeyLength(state); i++) {
+			seed.add(new Word(mappedMarkovChain.getToken(mappedMarkovChain.getKeyToken(state, i))));
+		}
+		seed.setSource();
+		return seed;
+	}
 
+	/**
+	 * Produces Sentences. If a lock is set its read lock is held throughout,
+	 * so all the Sentences are generated from the same version of a chain that is being updated.
+	 */
 	@Override
 	public Set<Sentence> produce(boolean enableDisplay) {
+		if(lock == null) {
+			return produceSentences(enableDisplay);
+		}
+		lock.readLock().lock();
+		try {
+			return produceSentences(enableDisplay);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	protected Set<Sentence> produceSentences(boolean enableDisplay) {
 		Set<Sentence> generatedSentences = sortedResult ? new TreeSet<Sentence>() : new LinkedHashSet<Sentence>(numberToGenerate);
 		nextSeed = seed;
 		for(count=0; count<numberToGenerate; count++) {
@@ -84,7 +148,7 @@ public class SentenceProducer  implements IProducer<MarkovChain<Word, Sentence,
 				nextSeed = seed;
 			}
 			else {
-				seed = markovChain.pickSeed();
+				seed = (mappedMarkovChain != null) ? pickSeed(mappedMarkovChain) : markovChain.pickSeed();
 				nextSeed = seed;
 				recycleSeedCount = 0;
 			}
@@ -92,61 +156,169 @@ public class SentenceProducer  implements IProducer<MarkovChain<Word, Sentence,
 		return generatedSentences;
 	}
 
+	/**
+	 * Generates a Sentence starting from nextSeed.<br>
+	 * The context is kept as an array of Words and states are looked up without creating a Sentence key per Word.
+	 * Only the finished Sentence is created.
+	 */
 	@Override
 	public Sentence apply(MarkovChain<Word, Sentence, Book> cstatsMap) {
-		Sentence generatedSentence = new Sentence(nextSeed);
+		generatedWords.clear();
+		for(Word word : nextSeed) {
+			generatedWords.add(word);
+		}
+		if(mappedMarkovChain != null) {
+			applyMapped();
+		}
+		else {
+			applyMarkovChain();
+		}
+		Sentence generatedSentence = new Sentence();
+		generatedSentence.addAll(generatedWords);
+		generatedSentence.setSource();
+		return generatedSentence;
+	}
+	
+	/**
+	 * apply() for a MarkovChain. The context is the last contextLength Words of contextWords[],
+	 * shifted left as each Word is picked. A context shorter than order grows to order.
+	 */
+	protected void applyMarkovChain() {
+		if(contextIndex == null || !contextIndex.isCurrent(markovChain)) {
+			contextIndex = new WordContextIndex(markovChain);
+		}
+		if(contextWords == null || contextWords.length != order) {
+			contextWords = new Word[order];
+			wordHashes = new int[order];
+			contextHashes = new int[order + 1];
+		}
+		int contextLength = Math.min(nextSeed.size(), order);
+		for(int i=0; i<contextLength; i++) {
+			Word word = nextSeed.get(nextSeed.size() - contextLength + i);
+			contextWords[order - contextLength + i] = word;
+			wordHashes[order - contextLength + i] = word.hashCode();
+		}
 		int nwords = 0;
-		Word nextWord = null;
-		do {
-			nextWord = getNextWord();
-			log.debug("next word: '" + nextWord + "'");
-			if(!nextWord.equals(Sentence.TERMINAL) && nwords <= maximumLength) {
-				generatedSentence.add(nextWord);
+		while(true) {
+			CollectorStats<Word, Sentence, Book> cstats = getContextStats(contextLength);
+			if(cstats == null) {
+				log.debug("no CollectorStats for the context or a shorter one");
+				break;
+			}
+			SamplingTable<Word> samplingTable = getSamplingTable(cstats);
+			Word nextWord = statisticalPick ? samplingTable.pick(random) : samplingTable.pickUniform(random);
+			if(nextWord.equals(Sentence.TERMINAL) || nextWord.equals(Sentence.NULL_VALUE)) {
+				break;
+			}
+			if(nwords <= maximumLength) {
+				generatedWords.add(nextWord);
 				nwords++;
 			}
-		}while(!nextWord.equals(Sentence.TERMINAL));  	// determine when to stop adding words.
-		return generatedSentence;
+			System.arraycopy(contextWords, 1, contextWords, 0, order - 1);
+			System.arraycopy(wordHashes, 1, wordHashes, 0, order - 1);
+			contextWords[order - 1] = nextWord;
+			wordHashes[order - 1] = nextWord.hashCode();
+			contextLength = Math.min(contextLength + 1, order);
+		}
 	}
 	
-	protected Word getNextWord() {
-		Word nextWord = null;
-		CollectorStats<Word, Sentence, Book> cstats = markovChain.get(nextSeed);
-		/*
-		 * it's impossible that nextSeed does not occur in collectorStatsMap
-		 * This would indicate some kind of internal error so throw a RuntimeException
-		 */
-		if(cstats == null) {
-			System.err.println("getNextCharacter(): cstats null for nextSeed: " + nextSeed);
-			cstats = markovChain.get(originalSeed);
-			nextSeed = originalSeed;
-			return new Word(Sentence.TERMINAL);
+	/**
+	 * Gets the CollectorStats to pick the next Word from.<br>
+	 * A MarkovChain collected with WordCollector.setMinimumOrder holds shorter keys as well.
+	 * If the context does not occur, shorter suffixes of it are tried instead of giving up on the Sentence.
+	 * If interpolate is set, each context that does occur is also passed over for a shorter one
+	 * with the probability given by SamplingTable.useContext.
+	 * @param contextLength the context is the last contextLength Words of contextWords[]
+	 * @return CollectorStats or null if neither the context nor any suffix of it occurs
+	 */
+	protected CollectorStats<Word, Sentence, Book> getContextStats(int contextLength) {
+		// NGram hash code of each suffix, built from the last Word back
+		int hash = 0;
+		int power = 1;
+		for(int length=1; length<=contextLength; length++) {
+			hash += wordHashes[order - length] * power;
+			power *= 31;
+			contextHashes[length] = power + hash;
 		}
-		int occur = cstats.getTotalOccurrance();
-		int keysize = cstats.size();
-		int spick = random.nextInt(1, occur+1);
-		int npick = random.nextInt(0, keysize);
-		int i = 0;
-		Map<Word, OccurrenceProbability> occurrenceProbabilityMap = cstats.getOccurrenceProbabilityMap();
-		for(Word nc :  occurrenceProbabilityMap.keySet()) {
-			OccurrenceProbability op = occurrenceProbabilityMap.get(nc);
-			int[] range = op.getRange();
-			if(statisticalPick) {
-				if(spick >= range[CollectorStats.LOW] && spick <= range[CollectorStats.HIGH]) {
-					// found the next character
-					nextWord = nc;
+		CollectorStats<Word, Sentence, Book> cstats = null;
+		for(int length=contextLength; length>0; length--) {
+			CollectorStats<Word, Sentence, Book> contextStats = contextIndex.get(contextWords, order - length, length, contextHashes[length]);
+			if(contextStats != null) {
+				cstats = contextStats;
+				if(!interpolate || SamplingTable.useContext(cstats.getTotalOccurrance(), cstats.size(), random)) {
 					break;
 				}
 			}
-			else if(npick == i++) {
-					// found the next character
-					nextWord = nc;
+		}
+		return cstats;
+	}
+	
+	/**
+	 * Gets the state of a MappedMarkovChain to pick the next Word from, backing off as getContextStats does.
+	 * @param length the context is the last length tokens of context[]
+	 * @return the state or NO_STATE
+	 */
+	protected int getContextState(int length) {
+		int state = MappedMarkovChain.NO_STATE;
+		for(int contextLength=length; contextLength>0; contextLength--) {
+			int contextState = mappedMarkovChain.getState(context, order - contextLength, contextLength);
+			if(contextState != MappedMarkovChain.NO_STATE) {
+				state = contextState;
+				if(!interpolate || SamplingTable.useContext(mappedMarkovChain.getTotalOccurrence(state), mappedMarkovChain.getFanout(state), random)) {
 					break;
+				}
+			}
+		}
+		return state;
+	}
+	
+	/**
+	 * apply() for a MappedMarkovChain. The current state is the context of token numbers,
+	 * the last contextLength entries of context[], shifted left as each Word is picked.
+	 * A seed shorter than order (from a multi-order chain) grows to order as Words are picked.
+	 */
+	protected void applyMapped() {
+		int contextLength = Math.min(nextSeed.size(), order);
+		for(int i=0; i<contextLength; i++) {
+			context[order - contextLength + i] = mappedMarkovChain.getTokenNumber(nextSeed.get(nextSeed.size() - contextLength + i).toString());
+		}
+		int terminal = mappedMarkovChain.getTokenNumber(Sentence.TERMINAL.toString());
+		int nwords = 0;
+		while(true) {
+			int state = getContextState(contextLength);
+			if(state == MappedMarkovChain.NO_STATE) {
+				log.debug("No state for seed '" + nextSeed + "' or a shorter context");
+				break;
+			}
+			int nextToken = statisticalPick ? 
+					mappedMarkovChain.pickSuccessorToken(state, random) :
+					mappedMarkovChain.getSuccessorToken(state, random.nextInt(0, mappedMarkovChain.getFanout(state)));
+			if(nextToken == terminal) {
+				break;
 			}
+			if(nwords <= maximumLength) {
+				generatedWords.add(new Word(mappedMarkovChain.getToken(nextToken)));
+				nwords++;
+			}
+			System.arraycopy(context, 1, context, 0, order - 1);
+			context[order - 1] = nextToken;
+			contextLength = Math.min(contextLength + 1, order);
 		}
-		// set the nextSeed which is an instance variable
-		nextSeed = new Sentence(nextSeed.subset(1), nextWord);
-		log.debug("nextSeed now: {" + nextSeed + "}");
-		return nextWord;
+	}
+	
+	/**
+	 * Gets the SamplingTable for a state, building it the first time the state is visited
+	 * or if the state has changed since.
+	 * @param cstats
+	 * @return SamplingTable
+	 */
+	protected SamplingTable<Word> getSamplingTable(CollectorStats<Word, Sentence, Book> cstats) {
+		SamplingTable<Word> samplingTable = samplingTables.get(cstats);
+		if(samplingTable == null || !samplingTable.isCurrent(cstats)) {
+			samplingTable = SamplingTable.of(cstats);
+			samplingTables.put(cstats, samplingTable);
+		}
+		return samplingTable;
 	}
 
 	public Sentence getSeed() {
@@ -189,6 +361,10 @@ public class SentenceProducer  implements IProducer<MarkovChain<Word, Sentence,
 		return markovChain;
 	}
 
+	public MappedMarkovChain getMappedMarkovChain() {
+		return mappedMarkovChain;
+	}
+
 	public int getMinimumWordLength() {
 		return minimumLength;
 	}
@@ -269,6 +445,30 @@ public class SentenceProducer  implements IProducer<MarkovChain<Word, Sentence,
 		this.random = random;
 	}
 
+	public boolean isInterpolate() {
+		return interpolate;
+	}
+
+	/**
+	 * @param interpolate if true (the default) higher and lower orders of a multi-order chain are interpolated.
+	 * If false shorter contexts are only used when the context does not occur.
+	 */
+	public SentenceProducer setInterpolate(boolean interpolate) {
+		this.interpolate = interpolate;
+		return this;
+	}
+
+	public ReadWriteLock getLock() {
+		return lock;
+	}
+
+	/**
+	 * @param lock the lock of the collector updating the chain, see WordCollector.getLock()
+	 */
+	public void setLock(ReadWriteLock lock) {
+		this.lock = lock;
+	}
+
 	public int getMaximumLength() {
 		return maximumLength;
 	}
@@ -42,6 +42,8 @@ public class SentenceProducerRunner {
 		boolean pretty = false;
 		String schema = null;
 		boolean enableDisplay = true;	// display results as they are produced
+		String loadFile = null;
+		String mappedFile = null;
 		for(int i=0; i<args.length; i++) {
 			if(args[i].equalsIgnoreCase("-file")) {
 				inputFile = args[++i];
@@ -88,31 +90,53 @@ public class SentenceProducerRunner {
 			else if(args[i].equalsIgnoreCase("-pretty")) {
 				pretty = true;
 			}
+			else if(args[i].equalsIgnoreCase("-load")) {
+				// a chain saved by WordCollectorRunner -save, used instead of collecting
+				loadFile = args[++i];
+			}
+			else if(args[i].equalsIgnoreCase("-map")) {
+				// a memory-mapped chain written by WordCollectorRunner -saveMapped
+				mappedFile = args[++i];
+			}
 			else {
 				text = args[i];
 			}
 		}
 
 		Book.ContentType type = (textType != null && textType.equalsIgnoreCase("verse")) ? ContentType.VERSE : ContentType.PROSE;
-		// Run the WordCollector first
-		String[] collectorArg = new String[1];
-		collectorArg[0] = (inputFile != null) ? "file:" + inputFile : text;
-		Optional<String> optionalSchema = Optional.ofNullable(schema);
 		CollectorStats.trace = false;
-		collector = WordCollectorBuilder.build(order, ignoreCase, type, optionalSchema, collectorArg);
-		collector.collect();
-		MarkovChain<Word, Sentence, Book> markovChain = collector.getMarkovChain();
-		if(trace) {
+		MarkovChain<Word, Sentence, Book> markovChain = null;
+		MappedMarkovChain mappedMarkovChain = null;
+		if(mappedFile != null) {
+			mappedMarkovChain = MappedMarkovChain.openWordChain(mappedFile);
+			order = mappedMarkovChain.getOrder();
+		}
+		else if(loadFile != null) {
+			markovChain = MarkovChainSerializer.loadWordChain(loadFile);
+			order = markovChain.pickSeed().size();
+		}
+		else {
+			// Run the WordCollector first
+			String[] collectorArg = new String[1];
+			collectorArg[0] = (inputFile != null) ? "file:" + inputFile : text;
+			Optional<String> optionalSchema = Optional.ofNullable(schema);
+			collector = WordCollectorBuilder.build(order, ignoreCase, type, optionalSchema, collectorArg);
+			collector.collect();
+			markovChain = collector.getMarkovChain();
+		}
+		if(trace && markovChain != null) {
 			System.out.print(markovChain.getMarkovChainDisplayText());
 			System.out.print(markovChain.getSummaryMapText());
 		}
 		if(seed == null) {
-			seed = markovChain.pickSeed();
+			seed = (mappedMarkovChain != null) ? SentenceProducer.pickSeed(mappedMarkovChain) : markovChain.pickSeed();
 		}
 		
 		// run the producer on the results
 		for(int nr=1; nr<=repeats; nr++) {
-			SentenceProducer producer = SentenceProducer.getSentenceProducer(order, markovChain, seed);
+			SentenceProducer producer = (mappedMarkovChain != null) ?
+				SentenceProducer.getSentenceProducer(order, mappedMarkovChain, seed) :
+				SentenceProducer.getSentenceProducer(order, markovChain, seed);
 			producer.setSortedResult(sort);
 			producer.setNumberToGenerate(num);
 			producer.setRecycleSeedNumber(recycleSeedNumber);
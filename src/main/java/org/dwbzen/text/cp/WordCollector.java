@@ -1,11 +1,23 @@
 package org.dwbzen.text.cp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.dwbzen.text.element.Book;
+import org.dwbzen.text.element.NGram;
 import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.StreamingBook;
+import org.dwbzen.text.element.Vocabulary;
 import org.dwbzen.text.element.Word;
 import org.dwbzen.text.element.Book.ContentType;
 import org.dwbzen.text.util.Configuration;
@@ -29,6 +41,21 @@ import org.dwbzen.common.cp.MarkovChain;
  * A Word consist of one or more word characters, 0 or more dashes, 0 or more single quotes. 
  * i.e. regex [a-zA-Z_0-9-']</p>
  * 
+ * The Sentences of a Book can be collected in parallel, see setParallelism(int).
+ * The resulting chain is the same as when collected sequentially.</p>
+ * 
+ * With setStreaming(true) the Sentences are read from the IDataSource a line at a time and collected
+ * as they are formatted, so there is no Book and memory is bounded by the MarkovChain rather than the text.</p>
+ * 
+ * New text can be added to a chain that producers are using, see update(List).</p>
+ * 
+ * With setMinimumOrder(int) the keys of every order from the minimum to the order are collected
+ * together in one pass. Producers back off to shorter keys of such a chain, see SentenceProducer.</p>
+ * 
+ * The Words of formatted text are interned in a Vocabulary, the shared one unless setVocabulary is called,
+ * so each distinct Word of the chain is held once. Word.equals checks identity first, so keys of interned Words
+ * usually compare without looking at their characters. It falls back to comparing lengths, hashes and characters,
+ * so Words that are not interned still compare equal. A Book given to setBook is collected as it is, its Words are not interned.
  *
  * @author don_bacon
  *
@@ -37,7 +64,9 @@ public class WordCollector implements ICollector<Sentence, MarkovChain<Word, Sen
 	protected static final Logger log = LogManager.getLogger(WordCollector.class);
 	
 	private int order;
+	private int minimumOrder = 0;	// shortest keys collected, 0 is the same as order
 	private MarkovChain<Word, Sentence, Book> markovChain;
+	private Map<NGram, CollectorStats<Word, Sentence, Book>> states = null;	// markovChain states by key Words, only while collecting
 	private String text = null;
 	private Book book = null;
 	private Book.ContentType contentType = ContentType.PROSE;	// default
@@ -47,6 +76,10 @@ public class WordCollector implements ICollector<Sentence, MarkovChain<Word, Sen
 	private IDataSource<String> dataSource = null;
 	private boolean trace = false;
 	private TextConfigurator textConfigurator = null;
+	private Vocabulary vocabulary = Vocabulary.getShared();
+	private int parallelism = 1;	// number of ForkJoinPool workers, 1 collects sequentially
+	private boolean streaming = false;	// collect from dataSource.getNext() instead of the Book
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();	// guards updates to a live chain
 	
 	protected WordCollector() {
 		configure();
@@ -71,63 +104,239 @@ public class WordCollector implements ICollector<Sentence, MarkovChain<Word, Sen
 	public void configure()  {
 		textConfigurator  = new TextConfigurator(schemaName, contentType, ignoreCase);
 		configuration = textConfigurator.configure();
+		textConfigurator.setVocabulary(vocabulary);
 	}
 	
+	/**
+	 * The states looked up by key Words are held only while collecting, and dropped when it is done.
+	 */
 	@Override
 	public void collect() {
-		accept(book);
+		states = new HashMap<>();
+		try {
+			if(streaming) {
+				collectStream();
+			}
+			else if(parallelism > 1 && markovChain.isEmpty() && !(book instanceof StreamingBook)) {
+				collectParallel(book.getSentences());
+			}
+			else {
+				accept(book);
+			}
+		}
+		finally {
+			states = null;
+		}
+	}
+	
+	/**
+	 * Collects Sentences using parallelism workers in a ForkJoinPool.<br>
+	 * The keys of every Sentence are first assigned to the worker that owns them, by the hash of their Words
+	 * (see CharacterCollector.partition(int, int)), in one pass over the Sentences.
+	 * Each worker then adds only its own keys, in input order.
+	 * The partial chains have disjoint keys, and the CollectorStats of each key sees its occurrences in input order,
+	 * so the partial chains are simply put into the (empty) MarkovChain.
+	 * @param sentences
+	 */
+	protected void collectParallel(List<Sentence> sentences) {
+		Sentence[] sentenceArray = sentences.toArray(new Sentence[0]);
+		KeyPositions[] keyPositions = partition(sentenceArray);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Callable<MarkovChain<Word, Sentence, Book>>> workers = new ArrayList<>();
+			for(KeyPositions workerPositions : keyPositions) {
+				workers.add(() -> {
+					MarkovChain<Word, Sentence, Book> partialChain = new MarkovChain<Word, Sentence, Book>(order);
+					Map<NGram, CollectorStats<Word, Sentence, Book>> partialStates = new HashMap<>();
+					for(int n=0; n<workerPositions.size(); n++) {
+						long position = workerPositions.get(n);
+						addKey(partialChain, partialStates, sentenceArray[KeyPositions.index(position)], KeyPositions.start(position), KeyPositions.keyOrder(position));
+					}
+					return partialChain;
+				});
+			}
+			for(Future<MarkovChain<Word, Sentence, Book>> partialChain : pool.invokeAll(workers)) {
+				markovChain.putAll(partialChain.get());
+			}
+		}
+		catch(InterruptedException | ExecutionException e) {
+			log.error("parallel collect failed: " + e.toString());
+			throw new RuntimeException(e);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Assigns every key of the Sentences to the worker that owns it.
+	 * @param sentences
+	 * @return the key positions of each worker, in input order
+	 */
+	private KeyPositions[] partition(Sentence[] sentences) {
+		KeyPositions[] keyPositions = KeyPositions.of(parallelism);
+		boolean terminalStates = isCollectingTerminalStates();
+		for(int index=0; index<sentences.length; index++) {
+			Sentence sentence = sentences[index];
+			for(int keyOrder=getMinimumOrder(); keyOrder<=order; keyOrder++) {
+				int lastStart = lastStart(sentence, keyOrder, terminalStates);
+				for(int start=0; start<=lastStart; start++) {
+					keyPositions[CharacterCollector.partition(keyHash(sentence, start, keyOrder), parallelism)].add(index, start, keyOrder);
+				}
+			}
+		}
+		return keyPositions;
+	}
+	
+	/**
+	 * Collects the Sentences of the IDataSource as they are formatted, without creating a Book.
+	 * @return the number of Sentences collected
+	 * @see TextConfigurator#formatText(IDataSource, java.util.function.Consumer)
+	 */
+	protected int collectStream() {
+		if(dataSource == null) {
+			throw new IllegalStateException("streaming collect needs an IDataSource");
+		}
+		int numberOfSentences = textConfigurator.formatText(dataSource, this::apply);
+		log.debug("collected " + numberOfSentences + " sentences");
+		return numberOfSentences;
+	}
+	
+	/**
+	 * Adds more text to the chain already collected, for example new tweets or tickets.<br>
+	 * The lines are formatted the same way as streaming input, including the configured DataFormatter.</p>
+	 * 
+	 * Only the keys of the new Sentences change, each CollectorStats updating its own ranges.
+	 * Producers rebuild the SamplingTable of a changed key the next time they visit it (see SamplingTable.isCurrent).<br>
+	 * The update holds the write lock of getLock(). A producer given the same lock with setLock
+	 * sees the chain either before or after an update, never part way through.</p>
+	 * 
+	 * The states of the keys the new Sentences pass through are looked up once per update, as they are first seen.
+	 * @param lines
+	 * @return the number of Sentences added
+	 */
+	public int update(List<String> lines) {
+		Iterator<String> iterator = lines.iterator();
+		lock.writeLock().lock();
+		states = new HashMap<>();
+		try {
+			return textConfigurator.formatText(() -> iterator.hasNext() ? iterator.next() : null, this::apply);
+		}
+		finally {
+			states = null;
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return the lock that update(List) holds for writing. Producers of this chain hold it for reading.
+	 * @see SentenceProducer#setLock(ReadWriteLock)
+	 */
+	public ReadWriteLock getLock() {
+		return lock;
 	}
 	
 	@Override
 	public void accept(Book sourceBook) {
 		log.debug("accept book");
-		Sentence sentence = null;
-		while((sentence = sourceBook.get())  != null ) {
-			apply(sentence);
-		}
+		sourceBook.stream().forEach(this::apply);
 	}
 
     @Override
 	public MarkovChain<Word, Sentence, Book> apply(Sentence sentence) {
-    	Sentence subset = null;
-    	Word nextWord = null;
-    	if(sentence.size() > order-1) {	// blank line
-	    	log.debug("apply: '" + sentence + "'");
-	    	int numberOfTokens = sentence.size();
-			int lim = numberOfTokens - order + 1;
-			for(int i=0; i< lim; i++) {
-				int index = i+order;
-				if(index <= numberOfTokens) {		// don't run off the end of the List
-					subset = sentence.subset(i, index);
-					nextWord = (index == numberOfTokens) ? Sentence.TERMINAL : sentence.get(i+order);
-					addOccurrence(subset, nextWord);
-				}
-			}
-			// add terminal state
-			subset = sentence.subset(lim);
-			subset.append(Sentence.TERMINAL);
-			log.debug("  terminal subset: '" + subset + "'");
-			addOccurrence(subset, Sentence.NULL_VALUE);
-    	}
+    	apply(sentence, markovChain, states);
 		return markovChain;
 	}
 
-    private void addOccurrence(Sentence theSentence, Word theWord) {
-    	boolean terminal = theWord.equals(Sentence.NULL_VALUE);
-		if(markovChain.containsKey(theSentence)) {
-			CollectorStats<Word, Sentence, Book> collectorStats = markovChain.get(theSentence);
-			collectorStats.addOccurrence(theWord);
-			collectorStats.setTerminal(terminal);
+    /**
+     * Adds the keys of a Sentence to a MarkovChain, for each order minimumOrder to order.
+     * @param sentence
+     * @param chain the MarkovChain to add to
+     * @param chainStates the states of chain by key Words, or null to look each key up in chain
+     */
+    protected void apply(Sentence sentence, MarkovChain<Word, Sentence, Book> chain, Map<NGram, CollectorStats<Word, Sentence, Book>> chainStates) {
+    	log.debug("apply: '" + sentence + "'");
+    	boolean terminalStates = isCollectingTerminalStates();
+    	for(int keyOrder=getMinimumOrder(); keyOrder<=order; keyOrder++) {
+    		int lastStart = lastStart(sentence, keyOrder, terminalStates);
+    		for(int start=0; start<=lastStart; start++) {
+    			addKey(chain, chainStates, sentence, start, keyOrder);
+    		}
+    	}
+    }
+    
+    /*
+     * A terminal state key compares equal to the key of the same Words one order lower,
+     * so terminal states are only added to a single order chain. Producers stop at TERMINAL and don't need them.
+     */
+    private boolean isCollectingTerminalStates() {
+    	return getMinimumOrder() == order;
+    }
+    
+    /**
+     * @return the start of the last key of keyOrder Words, which is the terminal state if collecting them,
+     * or -1 if the Sentence is shorter than keyOrder (a blank line)
+     */
+    private static int lastStart(Sentence sentence, int keyOrder, boolean terminalStates) {
+    	int lim = sentence.size() - keyOrder + 1;
+    	if(lim < 1) {
+    		return -1;
+    	}
+    	return terminalStates ? lim : lim - 1;
+    }
+    
+    /*
+     * Each window of the Sentence is looked up as an NGram, which only copies the Word references.
+     * A Sentence key is created for the MarkovChain only when the window is a new state.
+     * The start after the last window, sentence.size() - keyOrder + 1, is the terminal state.
+     */
+    private void addKey(MarkovChain<Word, Sentence, Book> chain, Map<NGram, CollectorStats<Word, Sentence, Book>> chainStates, 
+    		Sentence sentence, int start, int keyOrder) {
+    	int numberOfTokens = sentence.size();
+		int lim = numberOfTokens - keyOrder + 1;
+		if(start < lim) {
+			int index = start + keyOrder;
+			Word nextWord = (index == numberOfTokens) ? Sentence.TERMINAL : sentence.get(index);
+			addOccurrence(chain, chainStates, NGram.of(sentence, start, index), nextWord);
 		}
 		else {
-			CollectorStats<Word, Sentence, Book> collectorStats = new CollectorStats<>();
-			collectorStats.setSubset(theSentence);
-			collectorStats.addOccurrence(theWord);
-			collectorStats.setTerminal(terminal);
-			markovChain.put(theSentence, collectorStats);
+			NGram key = NGram.of(sentence, lim, numberOfTokens, Sentence.TERMINAL);
+			log.debug("  terminal subset: '" + key + "'");
+			addOccurrence(chain, chainStates, key, Sentence.NULL_VALUE);
 		}
+	}
+    
+    /**
+     * @return the hash of the key Words addKey adds for start and keyOrder
+     */
+    private static int keyHash(Sentence sentence, int start, int keyOrder) {
+    	int numberOfTokens = sentence.size();
+		int lim = numberOfTokens - keyOrder + 1;
+		return (start < lim) ? NGram.hash(sentence, start, start + keyOrder) : 31 * NGram.hash(sentence, lim, numberOfTokens) + Sentence.TERMINAL.hashCode();
     }
 
+    /**
+     * @param key the key Words. The key of a terminal state ends with Sentence.TERMINAL, which is appended to the Sentence key.
+     */
+    private void addOccurrence(MarkovChain<Word, Sentence, Book> chain, Map<NGram, CollectorStats<Word, Sentence, Book>> chainStates, NGram key, Word theWord) {
+    	boolean terminal = theWord.equals(Sentence.NULL_VALUE);
+    	CollectorStats<Word, Sentence, Book> collectorStats = (chainStates == null) ? null : chainStates.get(key);
+		if(collectorStats == null) {
+			Sentence theSentence = terminal ? key.toSentence(key.size() - 1) : key.toSentence();
+			collectorStats = chain.get(theSentence);
+			if(collectorStats == null) {
+				collectorStats = new CollectorStats<>();
+				collectorStats.setSubset(theSentence);
+				chain.put(theSentence, collectorStats);
+			}
+			if(chainStates != null) {
+				chainStates.put(key, collectorStats);
+			}
+		}
+		collectorStats.addOccurrence(theWord);
+		collectorStats.setTerminal(terminal);
+    }
+    
 	public boolean isIgnoreCase() {
 		return ignoreCase;
 	}
@@ -144,6 +353,49 @@ public class WordCollector implements ICollector<Sentence, MarkovChain<Word, Sen
 		this.order = order;
 	}
 	
+	public int getMinimumOrder() {
+		return (minimumOrder > 0) ? minimumOrder : order;
+	}
+
+	/**
+	 * Collect keys of every order from minimumOrder to order in a single pass.<br>
+	 * This replaces collecting each order separately and adding the chains together.
+	 * @param minimumOrder 1 to order
+	 */
+	public void setMinimumOrder(int minimumOrder) {
+		if(minimumOrder < 1 || minimumOrder > order) {
+			throw new IllegalArgumentException("minimum order must be 1 to " + order + ": " + minimumOrder);
+		}
+		this.minimumOrder = minimumOrder;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @param parallelism number of ForkJoinPool workers used by collect(). Default is 1, which collects sequentially.
+	 * A StreamingBook is always collected sequentially.
+	 */
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+	
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * @param streaming if true collect() reads the IDataSource a line at a time. The Book and text are not set.
+	 * Streaming collection is sequential, parallelism does not apply.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
 	public MarkovChain<Word, Sentence, Book> getMarkovChain() {
 		return markovChain;
 	}
@@ -211,4 +463,17 @@ public class WordCollector implements ICollector<Sentence, MarkovChain<Word, Sen
 		return textConfigurator;
 	}
 
+	public Vocabulary getVocabulary() {
+		return vocabulary;
+	}
+
+	/**
+	 * @param vocabulary the Vocabulary Words are interned in as text is formatted, the shared Vocabulary by default.
+	 * A new Vocabulary is released with the collector. null turns interning off.
+	 */
+	public void setVocabulary(Vocabulary vocabulary) {
+		this.vocabulary = vocabulary;
+		textConfigurator.setVocabulary(vocabulary);
+	}
+
 }
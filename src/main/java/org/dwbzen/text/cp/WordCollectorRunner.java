@@ -3,9 +3,7 @@ package org.dwbzen.text.cp;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -26,6 +24,11 @@ import org.dwbzen.common.cp.OutputStyle;
  * <pre>
  * where displayFormats :: markov[chain] | summary[map] | inverted[map]
  *       pretyFlag :: true | yes | false | no
+ * -parallel n collects with n ForkJoinPool workers
+ * -save <file> saves the MarkovChain in the MarkovChainSerializer binary format
+ * -saveMapped <file> saves the MarkovChain in the MappedMarkovChain layout
+ * -stream collects a -file a line at a time without reading the whole text into a Book
+ * -order n | n,m,... with a list of orders, every order from the lowest to the highest is collected in one pass
  * </pre>
  * @author don_bacon
  *
@@ -51,6 +54,16 @@ public class WordCollectorRunner {
 		 * If the schema is specified, it maps to a configured implementation class.
 		 */
 		public static WordCollector build(int order, boolean ignorecaseflag, ContentType type, Optional<String> theschema, String... args)  {
+			return build(order, ignorecaseflag, type, theschema, false, args);
+		}
+		
+		/**
+		 * Builds a WordCollector that optionally streams its input file.
+		 * @param streaming if true and the input is a file, the file is not read here.
+		 * collect() reads it a line at a time, see WordCollector.setStreaming(boolean)
+		 * @see #build(int, boolean, ContentType, Optional, String...)
+		 */
+		public static WordCollector build(int order, boolean ignorecaseflag, ContentType type, Optional<String> theschema, boolean streaming, String... args)  {
 			String sourceText = null;
 			String inputFile = null;
 			DataSourceDescription dataSourceDescription = null;
@@ -74,7 +87,9 @@ public class WordCollectorRunner {
 				dataSourceDescription.setSchema(schemaName);
 				try {
 					dataSource = new TextFileDataSource(dataSourceDescription);
-					sourceText = dataSource.getData();
+					if(!streaming) {
+						sourceText = dataSource.getData();
+					}
 				} catch(Exception e) {
 					System.err.println(e.getMessage());
 					log.error(e.getMessage());
@@ -83,7 +98,12 @@ public class WordCollectorRunner {
 			}
 			WordCollector collector = new WordCollector(order, ignorecaseflag, schemaName, type, dataSource);
 			CollectorStats.trace = false;
-			collector.setText(sourceText);	// also filters unwanted words, substitutes word variants and creates the Book
+			if(streaming && dataSource != null) {
+				collector.setStreaming(true);
+			}
+			else {
+				collector.setText(sourceText);	// also filters unwanted words, substitutes word variants and creates the Book
+			}
 			collector.setMarkovChain(new MarkovChain<Word, Sentence, Book>(order));
 			return collector;
 		}
@@ -100,6 +120,10 @@ public class WordCollectorRunner {
 		String schema = "none";
 		boolean trace = false;
 		boolean showSupplierCounts = false;
+		int parallelism = 1;
+		String saveFile = null;
+		String mappedFile = null;
+		boolean streaming = false;
 		
 		for(int i=0; i<args.length; i++) {
 			if(args[i].equalsIgnoreCase("-file")) {
@@ -142,6 +166,18 @@ public class WordCollectorRunner {
 			else if(args[i].equalsIgnoreCase("-trace")) {
 				trace = args[++i].equalsIgnoreCase("true") ? true : false;
 			}
+			else if(args[i].equalsIgnoreCase("-parallel")) {
+				parallelism = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equalsIgnoreCase("-save")) {
+				saveFile = args[++i];
+			}
+			else if(args[i].equalsIgnoreCase("-saveMapped")) {
+				mappedFile = args[++i];
+			}
+			else if(args[i].equalsIgnoreCase("-stream")) {
+				streaming = true;
+			}
 			else {
 				text = args[i];
 			}
@@ -161,20 +197,25 @@ public class WordCollectorRunner {
 				orderList.add(Integer.parseInt(order));
 			}
 		}
-		Map<Integer, MarkovChain<Word,Sentence, Book>> markovChains = new TreeMap<Integer, MarkovChain<Word,Sentence, Book>>();
+		int maximumOrder = orderList.stream().max(Integer::compare).get();
+		int minimumOrder = orderList.stream().min(Integer::compare).get();
 		String[] collectorArg = new String[1];
 		collectorArg[0] = (inputFile != null) ? "file:" + inputFile : text;
 		Optional<String> optionalSchema = Optional.ofNullable(schema);
 		CollectorStats.trace = trace;
-		for(Integer order : orderList) {
-			WordCollector collector = WordCollectorBuilder.build(order, ignoreCase, type, optionalSchema, collectorArg);
-			collector.setTrace(trace);
-			collector.collect();
-			MarkovChain<Word, Sentence, Book> markovChain = collector.getMarkovChain();
-			markovChains.put(order, markovChain);
-		}
+		WordCollector collector = WordCollectorBuilder.build(maximumOrder, ignoreCase, type, optionalSchema, streaming, collectorArg);
+		collector.setMinimumOrder(minimumOrder);
+		collector.setTrace(trace);
+		collector.setParallelism(parallelism);
+		collector.collect();
+		MarkovChain<Word, Sentence, Book> markovChain = collector.getMarkovChain();
 		
-		MarkovChain<Word, Sentence, Book> markovChain = combineMultichains(markovChains);
+		if(saveFile != null) {
+			MarkovChainSerializer.saveWordChain(markovChain, saveFile);
+		}
+		if(mappedFile != null) {
+			MappedMarkovChain.writeWordChain(markovChain, mappedFile);
+		}
 		if(displayMarkovChain) {
 			if(sorted) {
 				String s = markovChain.getSortedDisplayText(outputStyle, showSupplierCounts);
@@ -193,17 +234,4 @@ public class WordCollectorRunner {
 		}
 
 	}
-	
-	private static MarkovChain<Word, Sentence, Book> combineMultichains(Map<Integer, MarkovChain<Word, Sentence, Book>> markovChains) {
-		MarkovChain<Word, Sentence, Book> markovChain = null;
-		for(Integer ord : markovChains.keySet()) {
-			if(markovChain == null) {
-				markovChain = markovChains.get(ord);
-			}
-			else {
-				markovChain.add(markovChains.get(ord));
-			}
-		}
-		return markovChain;
-	}
 }
@@ -0,0 +1,93 @@
+package org.dwbzen.text.cp;
+
+import java.util.Map;
+
+import org.dwbzen.common.cp.CollectorStats;
+import org.dwbzen.common.cp.MarkovChain;
+import org.dwbzen.text.element.Book;
+import org.dwbzen.text.element.NGram;
+import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.Word;
+import org.dwbzen.text.util.LongIntHashMap;
+
+/**
+ * Finds the CollectorStats of a word MarkovChain from context Words in a Word[],
+ * so SentenceProducer can look up each state without building a Sentence key.</p>
+ *
+ * States are indexed by key length and the NGram hash code of the key Words,
+ * which the producer computes from its context as it goes. Keys with the same length and hash are chained
+ * and compared Word by Word.</p>
+ *
+ * Like CharacterContextIndex this is a snapshot of the keys of the chain:
+ * isCurrent(MarkovChain) tells when to build a new index.
+ */
+class WordContextIndex {
+
+	private final LongIntHashMap stateMap;
+	private final CollectorStats<Word, Sentence, Book>[] stats;
+	private final Word[][] keys;
+	private final int[] next;	// the next state with the same length and hash, or NOT_FOUND
+
+	@SuppressWarnings("unchecked")
+	WordContextIndex(MarkovChain<Word, Sentence, Book> markovChain) {
+		int numberOfStates = markovChain.size();
+		stateMap = new LongIntHashMap(numberOfStates);
+		stats = (CollectorStats<Word, Sentence, Book>[]) new CollectorStats<?, ?, ?>[numberOfStates];
+		keys = new Word[numberOfStates][];
+		next = new int[numberOfStates];
+		int state = 0;
+		for(Map.Entry<Sentence, CollectorStats<Word, Sentence, Book>> entry : markovChain.entrySet()) {
+			Sentence sentence = entry.getKey();
+			Word[] key = new Word[sentence.size()];
+			for(int i=0; i<key.length; i++) {
+				key[i] = sentence.get(i);
+			}
+			keys[state] = key;
+			stats[state] = entry.getValue();
+			next[state] = stateMap.put(indexKey(key.length, NGram.hash(sentence, 0, key.length)), state);
+			state++;
+		}
+	}
+
+	private static long indexKey(int length, int hash) {
+		return ((long)length << 32) | (hash & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param context
+	 * @param fromIndex start of the key in context
+	 * @param length key length
+	 * @param hash NGram hash code of the key Words
+	 * @return CollectorStats or null if the key does not occur
+	 */
+	CollectorStats<Word, Sentence, Book> get(Word[] context, int fromIndex, int length, int hash) {
+		for(int state = stateMap.get(indexKey(length, hash)); state != LongIntHashMap.NOT_FOUND; state = next[state]) {
+			if(matches(keys[state], context, fromIndex, length)) {
+				return stats[state];
+			}
+		}
+		return null;
+	}
+
+	private static boolean matches(Word[] key, Word[] context, int fromIndex, int length) {
+		if(key.length != length) {
+			return false;
+		}
+		for(int i=0; i<length; i++) {
+			if(!key[i].equals(context[fromIndex + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Keys are only ever added to a MarkovChain, so the index is current if the size is the same.
+	 * @param markovChain the chain this index was built from
+	 * @return false if keys have been added since
+	 */
+	boolean isCurrent(MarkovChain<Word, Sentence, Book> markovChain) {
+		return markovChain.size() == stats.length;
+	}
+
+}
@@ -6,19 +6,21 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.dwbzen.common.cp.*;
-import org.dwbzen.common.math.OccurrenceProbability;
 import org.dwbzen.text.element.Sentence;
 import org.dwbzen.text.element.Word;
+import org.dwbzen.text.util.BloomFilter;
 
 
 public class WordProducer implements IProducer<MarkovChain<Character, Word, Sentence>, Word > { 
@@ -31,6 +33,7 @@ public class WordProducer implements IProducer<MarkovChain<Character, Word, Sent
 	private Word nextSeed = null;
 	private int order;
 	private MarkovChain<Character, Word, Sentence> markovChain = null;
+	private ICharacterMarkovChain characterMarkovChain = null;	// used instead of markovChain if set
 	private ThreadLocalRandom random = ThreadLocalRandom.current();
 	private boolean sortedResult = false;
 	private boolean ignoreCase = true;
@@ -41,6 +44,19 @@ public class WordProducer implements IProducer<MarkovChain<Character, Word, Sent
 	private int maximumLength = 12;
 	private int count = 0;
 	private Collection<Word> wordListChain = new ArrayList<Word>();	// in order generated
+	private Map<CollectorStats<Character, Word, Sentence>, SamplingTable<Character>> samplingTables = new IdentityHashMap<>();
+	private ReadWriteLock lock = null;	// if set, held for reading by produce()
+	private boolean interpolate = true;	// interpolate the orders of a multi-order chain
+	private CharacterContextIndex contextIndex = null;	// markovChain states by context characters
+	private char[] context = null;		// the last order characters, right-aligned
+	private int[] contextHashes = null;	// String.hashCode() of the context suffix of each length
+	private StringBuilder generatedWord = new StringBuilder();	// reused for each Word
+	private boolean constrainLength = false;	// only pick successors that can end the Word within the length limits
+	private LengthConstraint lengthConstraint = null;
+	private List<String> prefixes = null;	// if set, every Word starts with one of these
+	private PrefixIndex prefixIndex = null;
+	private BloomFilter noveltyFilter = null;	// if set, Words it might contain are not produced
+	private boolean reverse = false;	// the chain was collected right to left, see CharacterCollector.setReverse
 	
 	public static WordProducer instance(int order, MarkovChain<Character, Word, Sentence> cstatsMap, Word seed ) {
 		WordProducer producer = new WordProducer(order, cstatsMap);
@@ -49,6 +65,28 @@ public class WordProducer implements IProducer<MarkovChain<Character, Word, Sent
 		return producer;
 	}
 	
+	/**
+	 * Creates a WordProducer that generates from a CharacterMarkovChain or MappedMarkovChain instead of a MarkovChain.<br>
+	 * produce() and apply() work the same way, however the MarkovChain argument to apply() is not used.
+	 * @param order
+	 * @param characterMarkovChain
+	 * @param seed
+	 * @return WordProducer
+	 * @throws IllegalArgumentException if characterMarkovChain is a mapped word chain or its order is more than MAX_ORDER
+	 */
+	public static WordProducer instance(int order, ICharacterMarkovChain characterMarkovChain, Word seed ) {
+		if(characterMarkovChain instanceof MappedMarkovChain && !((MappedMarkovChain)characterMarkovChain).isCharacterChain()) {
+			throw new IllegalArgumentException("WordProducer needs a character chain");
+		}
+		if(characterMarkovChain.getOrder() > ICharacterMarkovChain.MAX_ORDER) {
+			throw new IllegalArgumentException("order must be " + ICharacterMarkovChain.MAX_ORDER + " or less: " + characterMarkovChain.getOrder());
+		}
+		WordProducer producer = new WordProducer(order, characterMarkovChain);
+		producer.setSeed(seed);
+		producer.setOriginalSeed(seed);
+		return producer;
+	}
+	
 	/**
 	 * /reference/drugNames.txt" -num 50  -order 3 -list
 	 * @param order
@@ -83,13 +121,47 @@ public class WordProducer implements IProducer<MarkovChain<Character, Word, Sent
 		this.markovChain = cstatsMap;
 	}
 	
+	protected WordProducer(int order, ICharacterMarkovChain characterMarkovChain ) {
+		this.order = order;
+		this.characterMarkovChain = characterMarkovChain;
+	}
+	
+	/**
+	 * Produces Words. If a lock is set its read lock is held throughout,
+	 * so all the Words are generated from the same version of a chain that is being updated.
+	 */
 	@Override
 	public Set<Word> produce(boolean enableDisplay) {
+		if(lock == null) {
+			return produceWords(enableDisplay);
+		}
+		lock.readLock().lock();
+		try {
+			return produceWords(enableDisplay);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	protected Set<Word> produceWords(boolean enableDisplay) {
 		Set<Word> generatedWords = sortedResult ? new TreeSet<Word>() : new HashSet<Word>();
+		if(prefixes != null) {
+			seed = pickSeed();
+			if(seed == null) {
+				logger.warn("no Word can start with any of " + prefixes);
+				return generatedWords;
+			}
+		}
 		nextSeed = seed;
+		boolean initialOnly = characterMarkovChain != null && characterMarkovChain.isPickInitialSeed() && prefixes == null;
+		if(constrainLength && !getLengthConstraint().isViableSeed(minimumLength, initialOnly)) {
+			logger.warn("no seed can make a Word of length " + minimumLength + " to " + maximumLength);
+			return generatedWords;
+		}
 		while(count<numberToGenerate) {
 			Word word = apply(markovChain);
-			if(word != null && word.trimmedSize() >= minimumLength) { // white space doesn't count when considering length
+			if(word != null && word.trimmedSize() >= minimumLength && isNovel(word)) { // white space doesn't count when considering length
 				logger.debug("adding: '" + word + "'");
 				if(enableDisplay) {
 					System.out.println(word);
@@ -98,12 +170,12 @@ public class WordProducer implements IProducer<MarkovChain<Character, Word, Sent
 				wordListChain.add(word);
 				count++;
 			}
-			if(++recycleSeedCount < recycleSeedNumber) {
+			if(++recycleSeedCount < recycleSeedNumber && (word != null || !constrainLength)) {
 				// reuse the current seed
 				nextSeed = seed;
 			}
 			else {
-				seed = markovChain.pickSeed();
+				seed = pickSeed();
 				nextSeed = seed;
 				recycleSeedCount = 0;
 			}
@@ -111,65 +183,269 @@ public class WordProducer implements IProducer<MarkovChain<Character, Word, Sent
 		return generatedWords;
 	}
 	
+	/**
+	 * @param word
+	 * @return true if there is no novelty filter or the Word is definitely not in it
+	 */
+	protected boolean isNovel(Word word) {
+		return noveltyFilter == null || !noveltyFilter.mightContain(noveltyKey(word.getWordString()));
+	}
+	
+	/**
+	 * Builds a novelty filter from known words, such as the training words or the keys of DictionaryManager.getPosMap().<br>
+	 * Words are compared trimmed and in lower case.
+	 * @param words
+	 * @param falsePositiveRate the fraction of novel Words rejected as known
+	 * @return BloomFilter
+	 * @see #setNoveltyFilter(BloomFilter)
+	 */
+	public static BloomFilter noveltyFilter(Collection<String> words, double falsePositiveRate) {
+		BloomFilter bloomFilter = new BloomFilter(words.size(), falsePositiveRate);
+		words.forEach(w -> bloomFilter.put(noveltyKey(w)));
+		return bloomFilter;
+	}
+	
+	private static String noveltyKey(String word) {
+		return word.trim().toLowerCase();
+	}
+	
+	protected Word pickSeed() {
+		if(prefixes != null) {
+			return pickPrefixSeed();
+		}
+		return (characterMarkovChain != null) ? characterMarkovChain.pickSeed() : markovChain.pickSeed();
+	}
+	
+	/**
+	 * Picks a seed starting with one of the prefixes, trying them all from a random one.
+	 * @return the seed, which may be longer than order, or null if no Word can start with any of the prefixes
+	 */
+	protected Word pickPrefixSeed() {
+		int size = (characterMarkovChain != null) ? characterMarkovChain.size() : markovChain.size();
+		if(prefixIndex == null || !prefixIndex.isCurrent(size)) {
+			prefixIndex = (characterMarkovChain != null) ? PrefixIndex.of(characterMarkovChain) : PrefixIndex.of(markovChain, order);
+		}
+		int first = random.nextInt(0, prefixes.size());
+		for(int i=0; i<prefixes.size(); i++) {
+			Word prefixSeed = prefixIndex.pickSeed(prefixes.get((first + i) % prefixes.size()), random);
+			if(prefixSeed != null) {
+				return prefixSeed;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Generates a Word starting from nextSeed.<br>
+	 * The context is kept as characters and states are looked up without creating a key per character.
+	 * Only the finished Word is created.
+	 */
 	@Override
 	public Word apply(MarkovChain<Character, Word, Sentence> cstatsMap) {
 		if(nextSeed.contains(Word.TERMINAL)) {
 			return new Word();
 		}
-		Word generatedWord = new Word(nextSeed);
-		Character nextChar = null;
+		generatedWord.setLength(0);
+		generatedWord.append(nextSeed.getWordString());
+		if(constrainLength) {
+			if(!applyConstrained()) {
+				return null;
+			}
+		}
+		else if(characterMarkovChain != null) {
+			applyCompact();
+		}
+		else {
+			applyMarkovChain();
+		}
+		if(reverse) {
+			reverseGeneratedWord();
+		}
+		return new Word(generatedWord.toString());
+	}
+	
+	/**
+	 * Puts a Word generated from a reversed chain in normal order, keeping the leading delimiter in front.
+	 */
+	private void reverseGeneratedWord() {
+		int first = (generatedWord.length() > 0 && generatedWord.charAt(0) == Word.DELIM_CHARACTER) ? 1 : 0;
+		for(int last = generatedWord.length() - 1; first < last; first++, last--) {
+			char c = generatedWord.charAt(first);
+			generatedWord.setCharAt(first, generatedWord.charAt(last));
+			generatedWord.setCharAt(last, c);
+		}
+	}
+	
+	/**
+	 * apply() with setConstrainLength(true). Only successors that can still end the Word
+	 * with a length of minimumLength to maximumLength are picked, so every viable seed makes a Word.<br>
+	 * The length is Word.trimmedSize(), the same length produceWords() accepts.
+	 * @return false if the seed cannot make a Word of that length
+	 */
+	protected boolean applyConstrained() {
+		LengthConstraint constraint = getLengthConstraint();
+		int state = ICharacterMarkovChain.NO_STATE;
+		String seedString = nextSeed.getWordString();
+		if(seedString.length() >= order) {
+			state = (characterMarkovChain != null) ? 
+					characterMarkovChain.getState(characterMarkovChain.key(seedString, seedString.length() - order)) :
+					constraint.getState(seedString.substring(seedString.length() - order));
+		}
+		int length = generatedWord.length();
+		if(length > 0 && generatedWord.charAt(0) == Word.DELIM_CHARACTER) {
+			length--;	// the leading delimiter doesn't count
+		}
+		if(!constraint.isViable(state, length, minimumLength)) {
+			logger.debug("'" + nextSeed + "' cannot make a Word of length " + minimumLength + " to " + maximumLength);
+			return false;
+		}
+		while(true) {
+			int index = constraint.pickIndex(state, length, minimumLength, statisticalPick, random);
+			char nextChar = constraint.getSuccessor(state, index);
+			if(nextChar == Word.TERMINAL) {
+				return true;
+			}
+			generatedWord.append(nextChar);
+			length++;
+			state = constraint.getNextState(state, index);
+		}
+	}
+	
+	/**
+	 * Gets the LengthConstraint, building it the first time or if the chain or maximumLength has changed since.
+	 */
+	private LengthConstraint getLengthConstraint() {
+		int size = (characterMarkovChain != null) ? characterMarkovChain.size() : markovChain.size();
+		if(lengthConstraint == null || !lengthConstraint.isCurrent(size, maximumLength)) {
+			lengthConstraint = (characterMarkovChain != null) ?
+					LengthConstraint.of(characterMarkovChain, maximumLength) :
+					LengthConstraint.of(markovChain, order, maximumLength);
+		}
+		return lengthConstraint;
+	}
+	
+	/**
+	 * apply() for a MarkovChain. The context is the last contextLength characters of context[],
+	 * shifted left as each character is picked.
+	 */
+	protected void applyMarkovChain() {
+		if(contextIndex == null || !contextIndex.isCurrent(markovChain)) {
+			contextIndex = new CharacterContextIndex(markovChain);
+		}
+		if(context == null || context.length != order) {
+			context = new char[order];
+			contextHashes = new int[order + 1];
+		}
+		int contextLength = setContext(nextSeed.getWordString());
+		char nextChar;
 		do {
-			nextChar = getNextCharacter();
-			logger.debug("next char: '" + nextChar + "'");
-			if(! (nextChar.equals(Word.TERMINAL) || nextChar.equals(Word.NULL_VALUE))) {	// ''  ''
+			CollectorStats<Character, Word, Sentence> cstats = getContextStats(contextLength);
+			if(cstats == null) {
+				logger.debug("No CollectorStats value for the context or a shorter one, returning TERMINAL");
+				break;
+			}
+			SamplingTable<Character> samplingTable = getSamplingTable(cstats);
+			nextChar = statisticalPick ? samplingTable.pick(random) : samplingTable.pickUniform(random);
+			if(nextChar == Word.NULL_VALUE) {
+				contextLength = setContext(markovChain.pickSeed().getWordString());
+			}
+			else if(nextChar != Word.TERMINAL) {
 				generatedWord.append(nextChar);
+				System.arraycopy(context, 1, context, 0, order - 1);
+				context[order - 1] = nextChar;
+				// a context shorter than order grows back to order
+				contextLength = Math.min(contextLength + 1, order);
 			}
-		} while(!nextChar.equals(Word.TERMINAL) && generatedWord.size() < maximumLength);		// determines when to stop adding Characters
-		return generatedWord;
+		} while(nextChar != Word.TERMINAL && generatedWord.length() < maximumLength);		// determines when to stop adding Characters
+	}
+	
+	/**
+	 * Sets context[] to the last order (or fewer) characters of a seed.
+	 * @return the context length
+	 */
+	private int setContext(String seedString) {
+		int contextLength = Math.min(seedString.length(), order);
+		seedString.getChars(seedString.length() - contextLength, seedString.length(), context, order - contextLength);
+		return contextLength;
 	}
 	
-	protected Character getNextCharacter() {
-		Character nextChar = null;
-		CollectorStats<Character, Word, Sentence> cstats = markovChain.get(nextSeed);
-		/*
-		 * it's impossible that nextSeed does not occur in the MarkovChain
-		 * This would indicate some kind of internal error so return a TERMINAL character and log an error
-		 */
-		if(cstats == null) {
-			logger.error("No CollectorStats value for '" + nextSeed + "' returning TERMINAL");
-			return Word.TERMINAL;
+	/**
+	 * Gets the CollectorStats to pick the next character from.<br>
+	 * A MarkovChain collected with CharacterCollector.setMinimumOrder holds shorter keys as well.
+	 * If the context does not occur, shorter suffixes of it are tried, down to the minimum order.
+	 * If interpolate is set, each context that does occur is also passed over for a shorter one
+	 * with the probability given by SamplingTable.useContext.
+	 * @param contextLength the context is the last contextLength characters of context[]
+	 * @return CollectorStats or null if neither the context nor any suffix of it occurs
+	 */
+	protected CollectorStats<Character, Word, Sentence> getContextStats(int contextLength) {
+		// String.hashCode() of each suffix, built from the last character back
+		int hash = 0;
+		int power = 1;
+		for(int length=1; length<=contextLength; length++) {
+			hash += context[order - length] * power;
+			power *= 31;
+			contextHashes[length] = hash;
 		}
-
-		int occur = cstats.getTotalOccurrance();
-		int keysize = cstats.size();
-		int spick = random.nextInt(1, occur+1);
-		int npick = random.nextInt(0, keysize);
-		int i = 0;
-		Map<Character, OccurrenceProbability> occurrenceProbabilityMap = cstats.getOccurrenceProbabilityMap();
-		for(Character nc : occurrenceProbabilityMap.keySet()) {
-			OccurrenceProbability op = occurrenceProbabilityMap.get(nc);
-			int[] range = op.getRange();
-			if(statisticalPick) {
-				if(spick >= range[CollectorStats.LOW] && spick <= range[CollectorStats.HIGH]) {
-					// found the next character
-					nextChar = nc;
+		CollectorStats<Character, Word, Sentence> cstats = null;
+		for(int length=contextLength; length>0; length--) {
+			CollectorStats<Character, Word, Sentence> contextStats = contextIndex.get(context, order - length, length, contextHashes[length]);
+			if(contextStats != null) {
+				cstats = contextStats;
+				if(!interpolate || SamplingTable.useContext(cstats.getTotalOccurrance(), cstats.size(), random)) {
 					break;
 				}
 			}
-			else if(npick == i++) {
-					// found the next character
-					nextChar = nc;
-					break;
-				}
-			}
-		// set the nextSeed which is an instance variable
-		if(nextChar != Word.NULL_VALUE) {
-			nextSeed = new Word(nextSeed.getWordString().substring(1) + nextChar);
 		}
-		else {
-			nextSeed = markovChain.pickSeed();
+		return cstats;
+	}
+	
+	/**
+	 * Gets the SamplingTable for a state, building it the first time the state is visited
+	 * or if the state has changed since.
+	 * @param cstats
+	 * @return SamplingTable
+	 */
+	protected SamplingTable<Character> getSamplingTable(CollectorStats<Character, Word, Sentence> cstats) {
+		SamplingTable<Character> samplingTable = samplingTables.get(cstats);
+		if(samplingTable == null || !samplingTable.isCurrent(cstats)) {
+			samplingTable = SamplingTable.of(cstats);
+			samplingTables.put(cstats, samplingTable);
 		}
-		return nextChar;
+		return samplingTable;
+	}
+	
+	/**
+	 * apply() for an ICharacterMarkovChain. The context is the packed key of the current state,
+	 * rolled forward one character at a time.
+	 */
+	protected void applyCompact() {
+		String seedString = nextSeed.getWordString();
+		if(seedString.length() < order) {
+			throw new IllegalArgumentException("'" + nextSeed + "' is shorter than order " + order);
+		}
+		long key = characterMarkovChain.key(seedString, seedString.length() - order);
+		char nextChar;
+		do {
+			int state = characterMarkovChain.getState(key);
+			if(state == ICharacterMarkovChain.NO_STATE) {
+				logger.error("No state for '" + characterMarkovChain.toWord(key) + "' returning TERMINAL");
+				break;
+			}
+			if(statisticalPick) {
+				nextChar = characterMarkovChain.pickSuccessor(state, random);
+			}
+			else {
+				nextChar = characterMarkovChain.getSuccessor(state, random.nextInt(0, characterMarkovChain.getFanout(state)));
+			}
+			if(nextChar == Word.NULL_VALUE) {
+				key = characterMarkovChain.pickSeedKey();
+			}
+			else if(nextChar != Word.TERMINAL) {
+				generatedWord.append(nextChar);
+				key = characterMarkovChain.roll(key, nextChar);
+			}
+		} while(nextChar != Word.TERMINAL && generatedWord.length() < maximumLength);		// determines when to stop adding Characters
 	}
 	
 	public int getNumberOfWords() {
@@ -216,6 +492,10 @@ public class WordProducer implements IProducer<MarkovChain<Character, Word, Sent
 		return markovChain;
 	}
 
+	public ICharacterMarkovChain getCharacterMarkovChain() {
+		return characterMarkovChain;
+	}
+
 	public Word getNextSeed() {
 		return nextSeed;
 	}
@@ -260,6 +540,96 @@ public class WordProducer implements IProducer<MarkovChain<Character, Word, Sent
 		this.originalSeed = originalSeed;
 	}
 
+	public boolean isInterpolate() {
+		return interpolate;
+	}
+
+	/**
+	 * @param interpolate if true (the default) higher and lower orders of a multi-order chain are interpolated.
+	 * If false shorter contexts are only used when the context does not occur.
+	 */
+	public void setInterpolate(boolean interpolate) {
+		this.interpolate = interpolate;
+	}
+
+	public ReadWriteLock getLock() {
+		return lock;
+	}
+
+	/**
+	 * @param lock the lock of the collector updating the chain, see CharacterCollector.getLock()
+	 */
+	public void setLock(ReadWriteLock lock) {
+		this.lock = lock;
+	}
+
+	public List<String> getPrefixes() {
+		return prefixes;
+	}
+
+	/**
+	 * @param prefixes if not null every Word starts with one of these, of any length.
+	 * A leading DELIM_CHARACTER is added if not present. Prefixes no Word of the chain can start with are skipped.
+	 */
+	public void setPrefixes(Collection<String> prefixes) {
+		this.prefixes = (prefixes == null) ? null : new ArrayList<>(prefixes);
+	}
+
+	public void setPrefix(String prefix) {
+		setPrefixes(List.of(prefix));
+	}
+
+	/**
+	 * Generates Words that end with one of the suffixes.<br>
+	 * The chain must be collected in reverse (CharacterCollector.setReverse) so the Words are generated
+	 * right to left from the reversed suffixes, then put in normal order.
+	 * This sets reverse and the prefixes to the reversed suffixes.
+	 * @param suffixes
+	 */
+	public void setSuffixes(Collection<String> suffixes) {
+		List<String> reversedSuffixes = new ArrayList<>();
+		for(String suffix : suffixes) {
+			reversedSuffixes.add(new StringBuilder(suffix).reverse().toString());
+		}
+		setReverse(true);
+		setPrefixes(reversedSuffixes);
+	}
+
+	public BloomFilter getNoveltyFilter() {
+		return noveltyFilter;
+	}
+
+	/**
+	 * @param noveltyFilter if not null, Words in the filter are not produced. See noveltyFilter(Collection, double).
+	 */
+	public void setNoveltyFilter(BloomFilter noveltyFilter) {
+		this.noveltyFilter = noveltyFilter;
+	}
+
+	public boolean isReverse() {
+		return reverse;
+	}
+
+	/**
+	 * @param reverse true if the chain was collected in reverse. Generated Words are reversed into normal order.
+	 */
+	public void setReverse(boolean reverse) {
+		this.reverse = reverse;
+	}
+
+	public boolean isConstrainLength() {
+		return constrainLength;
+	}
+
+	/**
+	 * @param constrainLength if true every Word is generated with a length of minimumLength to maximumLength
+	 * (maximumLength at most 63) instead of discarding Words that are too short and cutting off Words that are too long.
+	 * Length counts all characters, including white space.
+	 */
+	public void setConstrainLength(boolean constrainLength) {
+		this.constrainLength = constrainLength;
+	}
+
 	public int getMaximumLength() {
 		return maximumLength;
 	}
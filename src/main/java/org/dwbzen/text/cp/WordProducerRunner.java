@@ -3,6 +3,7 @@ package org.dwbzen.text.cp;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +16,8 @@ import org.dwbzen.common.cp.*;
 import org.dwbzen.common.math.OccurrenceProbability;
 import org.dwbzen.text.element.Sentence;
 import org.dwbzen.text.element.Word;
+import org.dwbzen.text.pos.DictionaryManager;
+import org.dwbzen.text.util.BloomFilter;
 
 /**
  * Produces made-up Words based on the MarkovChain result from a CharacterCollector.<br>
@@ -27,6 +30,8 @@ import org.dwbzen.text.element.Word;
  *  		If not provided, source is taken from the command line
  *  -num n	Maximum number of unique Words to produce. The actual number produced will be <= n.
  *  -min n	Minimum word length, default is 4 characters
+ *  -max n	Maximum word length, default is 10 characters
+ *  -constrain	Generate only Words of -min to -max characters instead of discarding short Words and cutting off long ones
  *  -recycle n	How often to pick a new seed, default is pick a new seed after each word produced
  *  -ignoreCase	Ignores case (converts input to lower)
  *  -repeat n	#times to run the producer - each run produces <num> Words
@@ -35,8 +40,17 @@ import org.dwbzen.text.element.Word;
  *  -trace true|false	Traces seed picking. Sets trace mode on CharacterCollector, default is false
  *  -format	post-processing: TC = title case, UC = upper case, LC = lower case
  *  -init		choose initial seed only (start of word)
+ *  -novel <rate>	Only produce Words not in the source Words, checked with a Bloom filter with this false positive rate, for example 0.01
+ *  -novelDictionary	With -novel, also exclude the Words of the configured POS dictionary
+ *  -prefix <prefix list>	Comma-delimited list of prefixes of any length. Every Word starts with one of them
+ *  -suffix <suffix list>	Comma-delimited list of suffixes, for example rhymes. Every Word ends with one of them.
+ *  		The chain is collected in reverse. A chain given by -load or -map must have been saved with CharacterCollectorRunner -reverse
  *  -pos		Specify parts of speech. Assumes file list includes a POS file.
  *  -stat true|false	Use Markov chain probabilities in production, otherwise selects a successor at random. Default is 'true'
+ *  -compact	Collect into a CharacterMarkovChain (order 4 or less) which uses a fraction of the heap
+ *  -load <file>	Load a character chain saved by CharacterCollectorRunner -save instead of collecting.
+ *  		The order is taken from the chain.
+ *  -map <file>	Generate from a memory-mapped chain written by CharacterCollectorRunner -saveMapped instead of collecting.
  *  </pre>
  *  
  * If you wanted to use the same seed, for example " KA" for womens names, specify -recycle number<br>
@@ -77,6 +91,14 @@ import org.dwbzen.text.element.Word;
 		CharacterCollector collector = null;
 		boolean trace = false;
 		boolean pickInitialSeed = false;
+		boolean compact = false;
+		boolean constrainLength = false;
+		List<String> prefixes = null;
+		List<String> suffixes = null;
+		double noveltyRate = 0;		// the false positive rate of the novelty filter, 0 for none
+		boolean novelDictionary = false;
+		String loadFile = null;
+		String mappedFile = null;
 		boolean enableDisplay = false;	// display results as they are produced
 		String seedPickerClassName = null;
 		String orderstring = null;
@@ -137,6 +159,30 @@ import org.dwbzen.text.element.Word;
 				// pick initial seeds - that start words
 				pickInitialSeed = true;
 			}
+			else if(args[i].equalsIgnoreCase("-novel")) {
+				noveltyRate = Double.parseDouble(args[++i]);
+			}
+			else if(args[i].equalsIgnoreCase("-novelDictionary")) {
+				novelDictionary = true;
+			}
+			else if(args[i].equalsIgnoreCase("-suffix")) {
+				suffixes = Arrays.asList(args[++i].split(","));
+			}
+			else if(args[i].equalsIgnoreCase("-prefix")) {
+				prefixes = Arrays.asList(args[++i].split(","));
+			}
+			else if(args[i].equalsIgnoreCase("-constrain")) {
+				constrainLength = true;
+			}
+			else if(args[i].equalsIgnoreCase("-compact")) {
+				compact = true;
+			}
+			else if(args[i].equalsIgnoreCase("-load")) {
+				loadFile = args[++i];
+			}
+			else if(args[i].equalsIgnoreCase("-map")) {
+				mappedFile = args[++i];
+			}
 			else if(args[i].equalsIgnoreCase("-pos")) {
 				// file is a part of speech file
 				posOption = Optional.of(args[++i]);
@@ -154,38 +200,94 @@ import org.dwbzen.text.element.Word;
 			}
 		}
 		int order = orderList.get(0);
-		// Run the CharacterCollector first
-		collector = posOption.isPresent() ? 
-			CharacterCollectorRunner.CharacterCollectorBuilder.build(order, filenames, ignoreCase, posOption.get()) :
-			CharacterCollectorRunner.CharacterCollectorBuilder.build(order, filenames, ignoreCase);
-			
-		collector.setTrace(trace);
+		ICharacterMarkovChain characterMarkovChain = null;
+		MarkovChain<Character, Word, Sentence> markovChain = null;
 		CollectorStats.trace = trace;
-		if(filenames.length == 0) {
-			text = ignoreCase ? text.toLowerCase() : text;
-			collector.setText(text);
+		if(mappedFile != null) {
+			characterMarkovChain = MappedMarkovChain.openCharacterChain(mappedFile);
+			order = characterMarkovChain.getOrder();
+			compact = true;
 		}
-		collector.setTrace(trace);
-		collector.collect();
-		MarkovChain<Character, Word, Sentence> markovChain = collector.getMarkovChain();
-		markovChain.setPickInitialSeed(pickInitialSeed);
-		if(seed == null) {
-			seed = markovChain.pickSeed();
+		else if(loadFile != null) {
+			if(compact) {
+				characterMarkovChain = MarkovChainSerializer.loadCharacterMarkovChain(loadFile);
+				order = characterMarkovChain.getOrder();
+			}
+			else {
+				markovChain = MarkovChainSerializer.loadCharacterChain(loadFile);
+				order = markovChain.pickSeed().size();
+			}
 		}
-		if(trace) {
-			displaySortedMarkovChainText(markovChain, OutputStyle.TEXT);
-			System.out.print(markovChain.getSummaryMapText());
+		else {
+			// Run the CharacterCollector first
+			collector = posOption.isPresent() ? 
+				CharacterCollectorRunner.CharacterCollectorBuilder.build(order, filenames, ignoreCase, posOption.get()) :
+				CharacterCollectorRunner.CharacterCollectorBuilder.build(order, filenames, ignoreCase);
+				
+			collector.setTrace(trace);
+			collector.setReverse(suffixes != null);
+			if(filenames.length == 0) {
+				text = ignoreCase ? text.toLowerCase() : text;
+				collector.setText(text);
+			}
+			if(compact) {
+				CharacterMarkovChain collectedChain = new CharacterMarkovChain(order);
+				collector.setCharacterMarkovChain(collectedChain);
+				characterMarkovChain = collectedChain;
+			}
+			collector.collect();
+			markovChain = collector.getMarkovChain();
+		}
+		if(compact) {
+			characterMarkovChain.setPickInitialSeed(pickInitialSeed);
+			if(seed == null) {
+				seed = characterMarkovChain.pickSeed();
+			}
+			if(trace) {
+				if(characterMarkovChain instanceof CharacterMarkovChain) {
+					System.out.print(((CharacterMarkovChain)characterMarkovChain).getDisplayText());
+				}
+			}
+		}
+		else {
+			markovChain.setPickInitialSeed(pickInitialSeed);
+			if(seed == null) {
+				seed = markovChain.pickSeed();
+			}
+			if(trace) {
+				displaySortedMarkovChainText(markovChain, OutputStyle.TEXT);
+				System.out.print(markovChain.getSummaryMapText());
+			}
+		}
+		BloomFilter noveltyFilter = null;
+		if(noveltyRate > 0) {
+			List<String> knownWords = new ArrayList<>();
+			if(collector != null) {
+				knownWords.addAll(Arrays.asList(collector.getText().trim().split("\\s+")));
+			}
+			if(novelDictionary) {
+				knownWords.addAll(DictionaryManager.instance().getPosMap().keySet());
+			}
+			noveltyFilter = WordProducer.noveltyFilter(knownWords, noveltyRate);
 		}
 		// Run the WordProducer on the results
 		minLength = (minLength == 0) ? order + 1 : minLength;
 		for(int nr=1; nr<=repeats; nr++) {
-			WordProducer producer = WordProducer.instance(order, markovChain, seed);
+			WordProducer producer = compact ? 
+				WordProducer.instance(order, characterMarkovChain, seed) :
+				WordProducer.instance(order, markovChain, seed);
 			producer.setSortedResult(sort);
 			producer.setNumberOfWords(num);
 			producer.setRecycleSeedNumber(recycleSeedNumber);
 			producer.setStatisticalPick(statistical);
 			producer.setMinimumWordLength(minLength);
 			producer.setMaximumLength(maxLength);
+			producer.setConstrainLength(constrainLength);
+			producer.setNoveltyFilter(noveltyFilter);
+			producer.setPrefixes(prefixes);
+			if(suffixes != null) {
+				producer.setSuffixes(suffixes);
+			}
 			Set<Word> words = producer.produce(enableDisplay);
 			Collection<Word> wordCollection = showOrderGenerated ?  producer.getWordListChain() : words;
 			if(showOrderGenerated || !enableDisplay) {
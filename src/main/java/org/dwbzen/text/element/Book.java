@@ -1,16 +1,21 @@
 package org.dwbzen.text.element;
 
 import java.io.IOException;
-import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Spliterator;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.dwbzen.text.element.TextTokenizer.Segmentation;
 import org.dwbzen.text.util.TextFileReader;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -27,6 +32,12 @@ import org.dwbzen.common.util.*;
  * 
  * All the text is treated equally.
  * 
+ * A Book keeps all its Sentences. To read Sentences from a Reader or IDataSource
+ * as they are needed, see StreamingBook.
+ * 
+ * get() moves through the Sentences once. stream() and parallelStream() don't move it,
+ * and can be used any number of times and by several threads while the Book is not changed.
+ * 
  * @author don_bacon
  *
  */
@@ -49,7 +60,6 @@ public class Book implements Supplier<Sentence>, IJson, INameable {
 	@JsonProperty			private List<Sentence> sentences = new ArrayList<>();		// ALL the sentences
 	@JsonProperty			private Map<String, Chapter> chapters = new HashMap<>();	// optional chapters
 	@JsonProperty			private String sourceText = null;
-	@JsonIgnore				private StringBuilder sb = new StringBuilder();
 	@JsonProperty			private Properties properties = new Properties();			// optional properties can be whatever
 	@JsonProperty("contentType")	private ContentType type = ContentType.PROSE;
 	@JsonIgnore 	private int currentIndex = -1;
@@ -77,13 +87,41 @@ public class Book implements Supplier<Sentence>, IJson, INameable {
 		return  (currentIndex > sentences.size()-1) ? null : sentences.get(currentIndex);
 	}
 	
+	/**
+	 * @return a SIZED, SUBSIZED and ORDERED Spliterator over the Sentences. It has its own position, unlike get().
+	 */
+	public Spliterator<Sentence> spliterator() {
+		return sentences.spliterator();
+	}
+	
+	public Stream<Sentence> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	/**
+	 * @return a parallel Stream of the Sentences, split evenly by index.
+	 */
+	public Stream<Sentence> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
 	public String toString() {
 		return getSourceText();
 	}
 	
+	/**
+	 * @return all the Sentences, read-only. Unlike get() this does not move the current position.
+	 */
+	public List<Sentence> getSentences() {
+		return Collections.unmodifiableList(sentences);
+	}
+	
+	/**
+	 * @return the text the Book was created from, or if it was built with add(Sentence) the text of the Sentences
+	 */
 	public String getSourceText() {
 		if(sourceText == null) {
-			sourceText = sb.toString();
+			return sentences.stream().map(Sentence::toString).collect(Collectors.joining());
 		}
 		return sourceText;
 	}
@@ -106,21 +144,19 @@ public class Book implements Supplier<Sentence>, IJson, INameable {
 	}
 	
 	/*
-	 * Parses the sourceText into Sentences according to ContentType
+	 * Parses the sourceText into Sentences according to ContentType, a line at a time for VERSE.
+	 * The TextTokenizer breaks out the Words of each Sentence as it finds it.
 	 */
 	protected void createSentences() {
 		Sentence sentence = null;
 		int start = 0;
 		int end = 0;
-		BreakIterator boundary = (type.equals(ContentType.VERSE)) ? 
-					TextBreakIterator.getVerseInstance() :
-					TextBreakIterator.getSentenceInstance();
-		boundary.setText(sourceText);
-		start = boundary.first();
+		TextTokenizer tokenizer = new TextTokenizer(sourceText, 
+				type.equals(ContentType.VERSE) ? Segmentation.LINE : Segmentation.SENTENCE);
 		
-		while((end = boundary.next()) != BreakIterator.DONE) {
+		while((end = tokenizer.next()) != TextTokenizer.DONE) {
 			log.debug("start,end: " + start + ", " + end);
-			sentence = new Sentence(sourceText.substring(start, end), true);
+			sentence = tokenizer.sentence(start, end);
 			log.trace(sentence);
 			sentences.add(sentence);
 			start = end;
@@ -177,7 +213,6 @@ public class Book implements Supplier<Sentence>, IJson, INameable {
 
 
 	public boolean add(Sentence sentence) {
-		sb.append(sentence.toString());
 		return sentences.add(sentence);
 	}
 
@@ -0,0 +1,133 @@
+package org.dwbzen.text.element;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable sequence of Words used as a Markov chain state key.<br>
+ * Unlike a Sentence it has value semantics: two NGrams are equal if their Words are equal,
+ * and the hash code is computed once when the NGram is created.
+ * Creating one copies the Word references into an array, nothing else.</p>
+ *
+ * The hash code is 31 * hash + Word.hashCode() over the Words, the same as List.hashCode,
+ * so it can also be computed from Words in place, see hash(List, int, int).
+ *
+ */
+public final class NGram {
+
+	private final Word[] words;
+	private final int hash;
+
+	public NGram(Word... words) {
+		this(words.clone(), hash(Arrays.asList(words), 0, words.length));
+	}
+
+	private NGram(Word[] words, int hash) {
+		this.words = words;
+		this.hash = hash;
+	}
+
+	/**
+	 * @param words for example a Sentence
+	 * @param fromIndex inclusive
+	 * @param toIndex exclusive
+	 * @return NGram of the Words fromIndex to toIndex
+	 */
+	public static NGram of(List<Word> words, int fromIndex, int toIndex) {
+		return of(words, fromIndex, toIndex, null);
+	}
+
+	/**
+	 * @param words for example a Sentence
+	 * @param fromIndex inclusive
+	 * @param toIndex exclusive
+	 * @param lastWord if not null, appended after the Words, for example Sentence.TERMINAL
+	 * @return NGram of the Words fromIndex to toIndex followed by lastWord
+	 */
+	public static NGram of(List<Word> words, int fromIndex, int toIndex, Word lastWord) {
+		Word[] ngramWords = new Word[toIndex - fromIndex + (lastWord == null ? 0 : 1)];
+		int h = 1;
+		for(int i=fromIndex; i<toIndex; i++) {
+			ngramWords[i - fromIndex] = words.get(i);
+			h = 31 * h + words.get(i).hashCode();
+		}
+		if(lastWord != null) {
+			ngramWords[ngramWords.length - 1] = lastWord;
+			h = 31 * h + lastWord.hashCode();
+		}
+		return new NGram(ngramWords, h);
+	}
+
+	/**
+	 * @return the hash code of NGram.of(words, fromIndex, toIndex) without creating it
+	 */
+	public static int hash(List<Word> words, int fromIndex, int toIndex) {
+		int h = 1;
+		for(int i=fromIndex; i<toIndex; i++) {
+			h = 31 * h + words.get(i).hashCode();
+		}
+		return h;
+	}
+
+	public int size() {
+		return words.length;
+	}
+
+	public Word get(int index) {
+		return words[index];
+	}
+
+	/**
+	 * @return a new Sentence of the Words
+	 */
+	public Sentence toSentence() {
+		return toSentence(words.length);
+	}
+
+	/**
+	 * @param sourceLength the number of Words in the source of the Sentence.
+	 * The rest are appended after the source is set, as a terminal state key is built.
+	 * @return a new Sentence of the Words
+	 */
+	public Sentence toSentence(int sourceLength) {
+		Sentence sentence = new Sentence();
+		for(int i=0; i<sourceLength; i++) {
+			sentence.add(words[i]);
+		}
+		sentence.setSource();
+		for(int i=sourceLength; i<words.length; i++) {
+			sentence.append(words[i]);
+		}
+		return sentence;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(this == other) {
+			return true;
+		}
+		if(!(other instanceof NGram)) {
+			return false;
+		}
+		NGram ngram = (NGram)other;
+		return hash == ngram.hash && Arrays.equals(words, ngram.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for(Word word : words) {
+			if(sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(word.toString());
+		}
+		return sb.toString();
+	}
+
+}
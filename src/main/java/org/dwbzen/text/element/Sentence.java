@@ -1,15 +1,14 @@
 package org.dwbzen.text.element;
 
 import java.io.IOException;
-import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.function.Predicate;
+import java.util.RandomAccess;
+import java.util.Spliterator;
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -36,6 +35,7 @@ import org.dwbzen.common.util.INameable;
  * White space can be ignored (not stored as words) by setting the ignoreWhiteSpace to true.
  * Punctuation is defined by the Pattern "\\p{Punct}"
  * White space is defined by the Pattern "\\s+"
+ * Words are broken out by a TextTokenizer, which tests for both as it goes.
  * 
  * For correct behavior use left and right single () and double quote characters ()
  * for quotations and normal straight quote for contractions.
@@ -46,22 +46,23 @@ import org.dwbzen.common.util.INameable;
  * A Sentence has an optional unique id that is provided in the constructor.
  * If null, then one is assigned to be the hash of the source (which cannot be null)
  * 
+ * get() moves through the Words once. stream(), parallelStream() and iterator() don't move it,
+ * and can be used by several threads while the Sentence is not changed.
+ * 
+ * @see TextTokenizer
  * @see java.text.BreakIterator
  * @see java.util.regex.Pattern
  * @author don_bacon
  *
  */
-public class Sentence implements Comparable<Sentence>, List<Word>, Supplier<Word>, ICollectable<Word>, INameable, IJson {
+public class Sentence implements Comparable<Sentence>, List<Word>, RandomAccess, Supplier<Word>, ICollectable<Word>, INameable, IJson {
 
 	private static final long serialVersionUID = 5982270956795205537L;
-	private static Pattern WHITE_SPACE = Pattern.compile("\\s+");	// white space
-	private static Pattern PUNCTUATION = Pattern.compile("\\p{Punct}", Pattern.UNICODE_CHARACTER_CLASS);
 	static Word DELIM = new Word(".");
 	
 	@JsonIgnore			private ArrayList<Word> words = new ArrayList<Word>();
 	@JsonIgnore			private String source = null;
 	@JsonProperty("text")	private String rawText = null;		// original, unaltered text
-	@JsonIgnore			private BreakIterator boundary = null;
 	@JsonIgnore			private int index = -1;
 	@JsonIgnore			private boolean ignoreWhiteSpace = true;
 	@JsonIgnore			private boolean ignorePunctuation = false;
@@ -159,23 +160,29 @@ public class Sentence implements Comparable<Sentence>, List<Word>, Supplier<Word
 		id = createId();
 	}
 
+	/**
+	 * A Sentence of Words already broken out of text by a TextTokenizer.
+	 * @param text
+	 * @param sentenceWords
+	 */
+	Sentence(String text, List<Word> sentenceWords) {
+		source = text;
+		rawText = text;
+		words.addAll(sentenceWords);
+		name = createName(null);
+		id = createId();
+	}
+
 	private void breakIntoWords(String stringToExamine) {
-		Predicate<String> whiteSpaceTester = WHITE_SPACE.asPredicate();
-		Predicate<String> punctuationTester = PUNCTUATION.asPredicate();
-		boundary = BreakIterator.getWordInstance();
-        boundary.setText(stringToExamine);
-        int start = boundary.first();
-        for (int end = boundary.next(); end != BreakIterator.DONE; start = end, end = boundary.next()) {
-        	String s = source.substring(start, end);
-        	if(ignoreWhiteSpace && whiteSpaceTester.test(s)) {
-       			continue;
-        	}
-        	if(ignorePunctuation && punctuationTester.test(s)) {
-       			continue;
-        	}
-        	Word word = new Word(s);
-        	this.add(word);
-        }
+		TextTokenizer.words(stringToExamine, 0, stringToExamine.length(), (start, end, flags) -> {
+			if(ignoreWhiteSpace && (flags & TextTokenizer.WHITE_SPACE) != 0) {
+				return;
+			}
+			if(ignorePunctuation && (flags & TextTokenizer.PUNCTUATION) != 0) {
+				return;
+			}
+			add(new Word(stringToExamine.substring(start, end)));
+		});
 	}
 	
 	/**
@@ -380,16 +387,22 @@ public class Sentence implements Comparable<Sentence>, List<Word>, Supplier<Word
 		return words.iterator();
 	}
 
+	/**
+	 * @return a SIZED, SUBSIZED and ORDERED Spliterator over the Words, used by stream() and parallelStream()
+	 */
+	@Override
+	public Spliterator<Word> spliterator() {
+		return words.spliterator();
+	}
+
 	@Override
 	public Object[] toArray() {
-		// TODO Auto-generated method stub
-		return null;
+		return words.toArray();
 	}
 
 	@Override
 	public <T> T[] toArray(T[] a) {
-		// TODO Auto-generated method stub
-		return null;
+		return words.toArray(a);
 	}
 
 	@Override
@@ -404,8 +417,7 @@ public class Sentence implements Comparable<Sentence>, List<Word>, Supplier<Word
 
 	@Override
 	public boolean containsAll(Collection<?> c) {
-		// TODO Auto-generated method stub
-		return false;
+		return words.containsAll(c);
 	}
 
 	@Override
@@ -0,0 +1,286 @@
+package org.dwbzen.text.element;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A Book that reads its text a line at a time and creates Sentences as they are asked for with get().<br>
+ * Nothing is kept once a Sentence has been supplied: there is no List of Sentences and no source text,
+ * so text larger than the heap can be collected.
+ * A StreamingBook can only be read once, by get() or by a stream().</p>
+ *
+ * Lines are joined and broken into Sentences with a TextTokenizer, as Book does.
+ * A Sentence is only supplied once the line following it has been read,
+ * since a Sentence can continue on the next line.
+ * The text of the Sentence in progress is only tokenized again when a line could end it:
+ * the line has a character that can end a Sentence, or the text before it ended with one.
+ * Text without Sentence terminators, such as logs, is supplied as a Sentence once it is longer
+ * than the maximum Sentence length (see setMaximumSentenceLength), so memory stays bounded.
+ * For VERSE, and when there is a line formatter, each line is a Sentence.<br>
+ * Blank lines and lines starting with "#" are skipped, as TextFileReader.getFileText() does.
+ *
+ * @author don_bacon
+ *
+ */
+public class StreamingBook extends Book {
+	private static final long serialVersionUID = 2416418870512947513L;
+	public static final int DEFAULT_MAXIMUM_SENTENCE_LENGTH = 10000;	// characters
+
+	private final Supplier<String> lines;
+	private final Deque<Sentence> sentences = new ArrayDeque<>();	// complete Sentences not yet supplied
+	private final StringBuilder pending = new StringBuilder();		// text of the Sentence in progress
+	private Function<String, Sentence> lineFormatter = null;
+	private Vocabulary vocabulary = null;
+	private boolean endOfText = false;
+	private boolean pendingMayEnd = false;	// the pending text ends with a character that can end a Sentence
+	private int maximumSentenceLength = DEFAULT_MAXIMUM_SENTENCE_LENGTH;
+	private int numberOfSentences = 0;
+
+	/**
+	 * @param lines supplies lines until it returns null, for example IDataSource::getNext
+	 */
+	public StreamingBook(Supplier<String> lines) {
+		this(lines, ContentType.PROSE);
+	}
+
+	public StreamingBook(Supplier<String> lines, ContentType type) {
+		this.lines = lines;
+		setType(type);
+	}
+
+	/**
+	 * @param reader read a line at a time. It is not closed.
+	 * @param type
+	 */
+	public StreamingBook(Reader reader, ContentType type) {
+		this(lineSupplier(reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader)), type);
+	}
+
+	private static Supplier<String> lineSupplier(BufferedReader reader) {
+		return () -> {
+			try {
+				return reader.readLine();
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	/**
+	 * Supplies a Sentence one at a time, reading only as many lines as needed.
+	 * @return Sentence, null when it runs out.
+	 */
+	@Override
+	public Sentence get() {
+		while(sentences.isEmpty() && !endOfText) {
+			readLine();
+		}
+		Sentence sentence = sentences.poll();
+		if(sentence != null) {
+			numberOfSentences++;
+		}
+		return sentence;
+	}
+
+	private void readLine() {
+		String line = lines.get();
+		if(line == null) {
+			endOfText = true;
+			if(pending.toString().trim().length() > 0) {
+				add(new Sentence(pending.toString(), true));
+			}
+			pending.setLength(0);
+		}
+		else if(line.trim().length() == 0 || line.startsWith("#")) {
+			return;
+		}
+		else if(lineFormatter != null) {
+			add(lineFormatter.apply(line));
+		}
+		else if(getType().equals(ContentType.VERSE)) {
+			add(new Sentence(line, true));
+		}
+		else {
+			boolean mayEnd = pendingMayEnd || hasTerminator(line);
+			pending.append(line).append(' ');
+			pendingMayEnd = endsWithTerminator(line);
+			if(mayEnd) {
+				String text = pending.toString();
+				TextTokenizer tokenizer = new TextTokenizer(text);
+				int start = 0;
+				int end;
+				while((end = tokenizer.next()) != TextTokenizer.DONE && end < text.length()) {
+					add(tokenizer.sentence(start, end));
+					start = end;
+				}
+				pending.delete(0, start);
+			}
+			if(pending.length() > maximumSentenceLength) {
+				add(new Sentence(pending.toString(), true));
+				pending.setLength(0);
+				pendingMayEnd = false;
+			}
+		}
+	}
+
+	/**
+	 * @return true if the line has a character that can end a Sentence. Characters other than ASCII
+	 * are left to the TextTokenizer to decide.
+	 */
+	private static boolean hasTerminator(String line) {
+		for(int i=0; i<line.length(); i++) {
+			if(isTerminator(line.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the last character of the line that isn't white space or closing punctuation can end a Sentence,
+	 * so whether it does depends on the next line
+	 */
+	private static boolean endsWithTerminator(String line) {
+		for(int i=line.length()-1; i>=0; i--) {
+			char c = line.charAt(i);
+			if(!Character.isWhitespace(c) && ")]}\"'".indexOf(c) < 0) {
+				return isTerminator(c);
+			}
+		}
+		return false;
+	}
+
+	private static boolean isTerminator(char c) {
+		return c == '.' || c == '!' || c == '?' || c >= 128;
+	}
+
+	/**
+	 * @return an ORDERED Spliterator of unknown size that supplies the Sentences with get().<br>
+	 * A parallel stream reads Sentences in batches and hands each batch to a worker.
+	 */
+	@Override
+	public Spliterator<Sentence> spliterator() {
+		return new Spliterators.AbstractSpliterator<Sentence>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super Sentence> action) {
+				Sentence sentence = get();
+				if(sentence == null) {
+					return false;
+				}
+				action.accept(sentence);
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Adds a Sentence to be supplied after the Sentences read so far.
+	 */
+	@Override
+	public boolean add(Sentence sentence) {
+		if(vocabulary != null) {
+			vocabulary.intern(sentence);
+		}
+		return sentences.add(sentence);
+	}
+
+	/**
+	 * @return the number of Sentences supplied so far
+	 */
+	@Override
+	public int size() {
+		return numberOfSentences;
+	}
+
+	/**
+	 * @return true if there are no Sentences left to supply. This can read ahead to the next Sentence.
+	 */
+	@Override
+	public boolean isEmpty() {
+		while(sentences.isEmpty() && !endOfText) {
+			readLine();
+		}
+		return sentences.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		sentences.clear();
+		pending.setLength(0);
+		pendingMayEnd = false;
+	}
+
+	/**
+	 * A StreamingBook does not keep its Sentences.
+	 * @throws UnsupportedOperationException
+	 */
+	@Override
+	public List<Sentence> getSentences() {
+		throw new UnsupportedOperationException("a StreamingBook does not keep its Sentences");
+	}
+
+	/**
+	 * A StreamingBook does not keep its text.
+	 * @return null
+	 */
+	@Override
+	public String getSourceText() {
+		return null;
+	}
+
+	@Override
+	public void setSource(String text) {
+		throw new UnsupportedOperationException("the text of a StreamingBook is read from its lines");
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+
+	public Function<String, Sentence> getLineFormatter() {
+		return lineFormatter;
+	}
+
+	/**
+	 * @param lineFormatter if not null, creates the Sentence for each line. Lines are not joined.
+	 */
+	public void setLineFormatter(Function<String, Sentence> lineFormatter) {
+		this.lineFormatter = lineFormatter;
+	}
+
+	public int getMaximumSentenceLength() {
+		return maximumSentenceLength;
+	}
+
+	/**
+	 * @param maximumSentenceLength the number of characters of prose after which the text read so far
+	 * is supplied as a Sentence, even if no Sentence boundary has been found
+	 */
+	public void setMaximumSentenceLength(int maximumSentenceLength) {
+		this.maximumSentenceLength = maximumSentenceLength;
+	}
+
+	public Vocabulary getVocabulary() {
+		return vocabulary;
+	}
+
+	/**
+	 * @param vocabulary if not null the Words of each Sentence are interned in it as the Sentence is created
+	 */
+	public void setVocabulary(Vocabulary vocabulary) {
+		this.vocabulary = vocabulary;
+	}
+
+}
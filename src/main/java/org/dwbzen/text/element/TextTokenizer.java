@@ -0,0 +1,397 @@
+package org.dwbzen.text.element;
+
+import java.text.BreakIterator;
+import java.text.StringCharacterIterator;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Breaks text into Sentences and Words without creating a String per candidate token
+ * or testing each token with regular expressions.</p>
+ *
+ * A TextTokenizer finds the Sentence boundaries of a text with next(), like a sentence BreakIterator,
+ * and words(int, int, TokenConsumer) gives the Word tokens between two boundaries
+ * with flags telling if a token contains white space or punctuation.
+ * Sentence.breakIntoWords tests tokens the same way with regular expressions.</p>
+ *
+ * ASCII text is scanned directly with the rules of the JDK word and sentence BreakIterators,
+ * so the boundaries are the same as theirs. Other text, and Sentences the direct scan
+ * cannot decide, use the BreakIterators.</p>
+ *
+ * With Segmentation.LINE every line is a Sentence, as for VERSE.
+ *
+ * @see java.text.BreakIterator
+ * @author don_bacon
+ *
+ */
+public class TextTokenizer {
+
+	public static final int DONE = BreakIterator.DONE;
+	private static final int UNDECIDED = -2;
+
+	/** The token contains white space, \s */
+	public static final int WHITE_SPACE = 1;
+
+	/** The token contains punctuation, \p{Punct} with UNICODE_CHARACTER_CLASS */
+	public static final int PUNCTUATION = 2;
+
+	public static enum Segmentation {SENTENCE, LINE};
+
+	/**
+	 * Accepts a token of the text from start, inclusive, to end, exclusive.
+	 */
+	@FunctionalInterface
+	public static interface TokenConsumer {
+		void accept(int start, int end, int flags);
+	}
+
+	/*
+	 * ASCII character classes of the JDK word and sentence break rules
+	 */
+	private static final int LETTER = 1;
+	private static final int UPPER = 1<<1;
+	private static final int DIGIT = 1<<2;
+	private static final int MID_WORD = 1<<3;
+	private static final int MID_NUM = 1<<4;
+	private static final int PRE_NUM = 1<<5;
+	private static final int POST_NUM = 1<<6;
+	private static final int WS = 1<<7;			// word rules white space
+	private static final int LS = 1<<8;			// word rules line separator
+	private static final int SPACE = 1<<9;		// sentence rules white space
+	private static final int START = 1<<10;		// punctuation that can start a sentence
+	private static final int END = 1<<11;		// punctuation that can end a sentence
+	private static final int TERM = 1<<12;
+	private static final int PERIOD = 1<<13;
+	private static final int SENT_START = 1<<14;
+	private static final int QUOTE = 1<<15;
+	private static final int WHITE = 1<<16;		// \s
+	private static final int PUNCT = 1<<17;		// \p{Punct}
+	private static final int[] CLASSES = new int[128];
+
+	static {
+		for(char c=0; c<128; c++) {
+			int type = Character.getType(c);
+			int classes = 0;
+			if(Character.isLetter(c)) {
+				classes |= LETTER;
+				if(type == Character.UPPERCASE_LETTER) {
+					classes |= UPPER;
+				}
+			}
+			if(type == Character.DECIMAL_DIGIT_NUMBER) {
+				classes |= DIGIT;
+			}
+			if(isPunctuation(c)) {
+				classes |= PUNCT;
+			}
+			if(type == Character.DASH_PUNCTUATION || type == Character.CONNECTOR_PUNCTUATION || "\"'.".indexOf(c) >= 0) {
+				classes |= MID_WORD;
+			}
+			if("\"',.".indexOf(c) >= 0) {
+				classes |= MID_NUM;
+			}
+			if(type == Character.CURRENCY_SYMBOL || c == '#' || c == '.') {
+				classes |= PRE_NUM;
+			}
+			if(c == '%' || c == '&') {
+				classes |= POST_NUM;
+			}
+			if(c == ' ' || c == '\t') {
+				classes |= WS;
+			}
+			if(c == '\n' || c == '\f') {
+				classes |= LS;
+			}
+			if(" \t\r\f\n".indexOf(c) >= 0) {
+				classes |= SPACE;
+			}
+			if(type == Character.START_PUNCTUATION || c == '"' || c == '\'') {
+				classes |= START;
+			}
+			if(type == Character.END_PUNCTUATION || c == '"' || c == '\'') {
+				classes |= END;
+			}
+			if(c == '"' || c == '\'') {
+				classes |= QUOTE;
+			}
+			if(c == '!' || c == '?') {
+				classes |= TERM;
+			}
+			if(c == '.') {
+				classes |= PERIOD;
+			}
+			if((classes & (LETTER | SPACE | START | END | DIGIT | TERM | PERIOD)) == 0 && c != ',') {
+				classes |= SENT_START;
+			}
+			if(" \t\n\u000B\f\r".indexOf(c) >= 0) {
+				classes |= WHITE;
+			}
+			CLASSES[c] = classes;
+		}
+	}
+
+	private final String text;
+	private final Segmentation segmentation;
+	private BreakIterator sentenceIterator = null;	// for Sentences that can't be scanned directly
+	private int current = 0;
+
+	public TextTokenizer(String text) {
+		this(text, Segmentation.SENTENCE);
+	}
+
+	public TextTokenizer(String text, Segmentation segmentation) {
+		this.text = text;
+		this.segmentation = segmentation;
+	}
+
+	/**
+	 * @return the end of the next Sentence, or DONE at the end of the text
+	 */
+	public int next() {
+		if(current >= text.length()) {
+			return DONE;
+		}
+		int end;
+		if(segmentation == Segmentation.LINE) {
+			end = text.indexOf('\n', current) + 1;
+			if(end == 0) {
+				end = text.length();
+			}
+		}
+		else {
+			end = nextSentence(current);
+			if(end == UNDECIDED) {
+				// the BreakIterator only looks forward from a boundary, so it can start at this one
+				if(sentenceIterator == null) {
+					sentenceIterator = BreakIterator.getSentenceInstance();
+				}
+				sentenceIterator.setText(new StringCharacterIterator(text, current, text.length(), current));
+				end = sentenceIterator.next();
+			}
+		}
+		current = end;
+		return end;
+	}
+
+	/**
+	 * @return the start of the Sentence next() will return the end of
+	 */
+	public int current() {
+		return current;
+	}
+
+	/**
+	 * Scans a Sentence of ASCII text with the JDK sentence rules, as far as they are unambiguous:<br>
+	 * break after !? followed by any !?. and ending punctuation and white space;<br>
+	 * break after a period followed by white space then an upper case letter,
+	 * or by more than one white space character then any letter,
+	 * but not if it is followed by a lower case letter or digit otherwise.</p>
+	 * Anything else after a period, such as quotes or brackets, is left to the BreakIterator,
+	 * whose state table breaks such text in ways the rules alone do not describe.
+	 * @return the end of the Sentence starting at start, or UNDECIDED
+	 */
+	private int nextSentence(int start) {
+		int length = text.length();
+		for(int i=start; i<length; i++) {
+			char c = text.charAt(i);
+			if(c >= 128) {
+				return UNDECIDED;
+			}
+			int classes = CLASSES[c];
+			if((classes & TERM) != 0) {
+				int end = skip(skip(i + 1, TERM | PERIOD | END), SPACE);
+				return (end < length && text.charAt(end) >= 128) ? UNDECIDED : end;
+			}
+			if((classes & PERIOD) != 0) {
+				int spaceEnd = skip(i + 1, SPACE);
+				if(spaceEnd == length) {
+					return length;
+				}
+				char next = text.charAt(spaceEnd);
+				if((spaceEnd > i + 1 && is(next, UPPER)) || (spaceEnd > i + 2 && is(next, LETTER))) {
+					return spaceEnd;
+				}
+				if(!is(next, LETTER | DIGIT) || is(next, UPPER)) {
+					return UNDECIDED;
+				}
+			}
+		}
+		return length;
+	}
+
+	private int skip(int index, int classes) {
+		while(index < text.length() && is(text.charAt(index), classes)) {
+			index++;
+		}
+		return index;
+	}
+
+	private static boolean is(char c, int classes) {
+		return c < 128 && (CLASSES[c] & classes) != 0;
+	}
+
+	private static boolean isAscii(String text, int from, int to) {
+		for(int i=from; i<to; i++) {
+			if(text.charAt(i) >= 128) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the Word tokens of text from, inclusive, to to, exclusive, as the JDK word BreakIterator
+	 * would break text.substring(from, to).
+	 * @param text
+	 * @param from
+	 * @param to
+	 * @param consumer given the start and end of each token in text
+	 */
+	public static void words(String text, int from, int to, TokenConsumer consumer) {
+		if(isAscii(text, from, to)) {
+			for(int start=from, end; start<to; start=end) {
+				end = nextWord(text, start, to);
+				consumer.accept(start, end, flags(text, start, end));
+			}
+		}
+		else {
+			BreakIterator wordIterator = BreakIterator.getWordInstance();
+			wordIterator.setText(text.substring(from, to));
+			int start = wordIterator.first();
+			for(int end = wordIterator.next(); end != DONE; start = end, end = wordIterator.next()) {
+				consumer.accept(from + start, from + end, flags(text, from + start, from + end));
+			}
+		}
+	}
+
+	/**
+	 * @param start the start of the Sentence, current() before next()
+	 * @param end the end of the Sentence returned by next()
+	 * @return the Sentence, with the same Words as new Sentence(String, true)
+	 */
+	public Sentence sentence(int start, int end) {
+		List<Word> sentenceWords = new ArrayList<>();
+		words(text, start, end, (from, to, flags) -> {
+			if((flags & WHITE_SPACE) == 0) {
+				sentenceWords.add(new Word(text.substring(from, to)));
+			}
+		});
+		return new Sentence(text.substring(start, end), sentenceWords);
+	}
+
+	/**
+	 * The Word tokens of the next Sentence.
+	 * @param start the start of the Sentence, current() before next()
+	 * @param end the end of the Sentence returned by next()
+	 * @param consumer
+	 */
+	public void words(int start, int end, TokenConsumer consumer) {
+		words(text, start, end, consumer);
+	}
+
+	/*
+	 * The JDK word rules: a word is letters with single dashes, underscores, quotes or periods between them,
+	 * a number is digits with single quotes, commas or periods between them, and tokens are words and numbers
+	 * one after the other, optionally ending with % or &.
+	 * A currency sign, # or period can start a number. Runs of spaces and tabs are tokens, ending with an optional \r
+	 * and a single line separator. Anything else is a token by itself.
+	 */
+	private static int nextWord(String text, int start, int to) {
+		int classes = CLASSES[text.charAt(start)];
+		if((classes & (LETTER | DIGIT)) != 0) {
+			return wordsAndNumbers(text, start, to);
+		}
+		if((classes & PRE_NUM) != 0 && start + 1 < to && is(text.charAt(start + 1), DIGIT)) {
+			return wordsAndNumbers(text, start + 1, to);
+		}
+		if((classes & (WS | LS)) != 0 || text.charAt(start) == '\r') {
+			int end = start;
+			while(end < to && is(text.charAt(end), WS)) {
+				end++;
+			}
+			if(end < to && text.charAt(end) == '\r') {
+				end++;
+			}
+			if(end < to && is(text.charAt(end), LS)) {
+				end++;
+			}
+			return end;
+		}
+		return start + 1;
+	}
+
+	private static int wordsAndNumbers(String text, int start, int to) {
+		int end = start;
+		if(is(text.charAt(end), LETTER)) {
+			end = run(text, end, to, LETTER, MID_WORD);
+		}
+		while(end < to && is(text.charAt(end), DIGIT)) {
+			end = run(text, end, to, DIGIT, MID_NUM);
+			if(end < to && is(text.charAt(end), LETTER)) {
+				end = run(text, end, to, LETTER, MID_WORD);
+			}
+			else {
+				if(end < to && is(text.charAt(end), POST_NUM)) {
+					end++;
+				}
+				break;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * @return the end of a run of characters of a class, with single separators between them
+	 */
+	private static int run(String text, int start, int to, int characters, int separators) {
+		int end = start;
+		while(end < to) {
+			if(is(text.charAt(end), characters)) {
+				end++;
+			}
+			else if(end + 1 < to && is(text.charAt(end), separators) && is(text.charAt(end + 1), characters)) {
+				end += 2;
+			}
+			else {
+				break;
+			}
+		}
+		return end;
+	}
+
+	private static int flags(String text, int start, int end) {
+		int flags = 0;
+		for(int i=start; i<end; i++) {
+			char c = text.charAt(i);
+			if(c < 128) {
+				int classes = CLASSES[c];
+				if((classes & WHITE) != 0) {
+					flags |= WHITE_SPACE;
+				}
+				if((classes & PUNCT) != 0) {
+					flags |= PUNCTUATION;
+				}
+			}
+			else if(isPunctuation(text.codePointAt(i))) {
+				flags |= PUNCTUATION;
+			}
+		}
+		return flags;
+	}
+
+	private static boolean isPunctuation(int codePoint) {
+		switch(Character.getType(codePoint)) {
+		case Character.CONNECTOR_PUNCTUATION:
+		case Character.DASH_PUNCTUATION:
+		case Character.START_PUNCTUATION:
+		case Character.END_PUNCTUATION:
+		case Character.INITIAL_QUOTE_PUNCTUATION:
+		case Character.FINAL_QUOTE_PUNCTUATION:
+		case Character.OTHER_PUNCTUATION:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package org.dwbzen.text.element;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each distinct Word an int id, and keeps one Word instance per id.<br>
+ * Interning the Words of Sentences as they are tokenized means equal Words in a MarkovChain
+ * or an OccurrenceRelationBag are the same instance: the text of a Word is held once however often it occurs,
+ * and comparing Words is usually an identity check (see Word.equals).
+ * A Sentence can also be represented by the int[] of its Word ids, see intern(List) and toSentence(int[]).</p>
+ *
+ * Ids start at 0 and are never reused. Sentence.TERMINAL and Sentence.NULL_VALUE are always
+ * TERMINAL_ID and NULL_VALUE_ID.
+ * Interned Words are Map keys and must not be changed afterwards.</p>
+ *
+ * A Vocabulary can be shared by several threads.</p>
+ *
+ * WordCollector and WordOccurrenceRelationBag intern into the shared Vocabulary of the process, see getShared(),
+ * so the Words of several chains or bags of the same text are held once between them.
+ * The shared Vocabulary lives as long as the process and only grows: its Words are kept after the chains
+ * that used them are gone. Give a collector or bag a new Vocabulary with setVocabulary
+ * if its Words should be released with it.
+ *
+ * @see org.dwbzen.text.util.TextConfigurator#setVocabulary(Vocabulary)
+ */
+public class Vocabulary {
+
+	public static final int NO_ID = -1;
+	public static final int TERMINAL_ID = 0;
+	public static final int NULL_VALUE_ID = 1;
+
+	private static final Vocabulary shared = new Vocabulary();
+
+	private final Map<Word, Integer> ids = new HashMap<>();
+	private final List<Word> words = new ArrayList<>();		// Word by id
+
+	public Vocabulary() {
+		id(Sentence.TERMINAL);
+		id(Sentence.NULL_VALUE);
+	}
+
+	/**
+	 * @return the Vocabulary WordCollectors and WordOccurrenceRelationBags use unless given another
+	 */
+	public static Vocabulary getShared() {
+		return shared;
+	}
+
+	/**
+	 * @param word
+	 * @return the id of word, adding it if not already in the Vocabulary
+	 */
+	public synchronized int id(Word word) {
+		Integer id = ids.get(word);
+		if(id == null) {
+			id = words.size();
+			ids.put(word, id);
+			words.add(word);
+		}
+		return id;
+	}
+
+	/**
+	 * @param word
+	 * @return the Vocabulary's instance of word, adding it if not already in the Vocabulary
+	 */
+	public synchronized Word intern(Word word) {
+		return words.get(id(word));
+	}
+
+	/**
+	 * Replaces each Word of a Sentence (or any List of Words) with the Vocabulary's instance.
+	 * @param sentence
+	 * @return the ids of the Words
+	 */
+	public synchronized int[] intern(List<Word> sentence) {
+		int[] sentenceIds = new int[sentence.size()];
+		for(int i=0; i<sentenceIds.length; i++) {
+			Word word = sentence.get(i);
+			int id = id(word);
+			Word internedWord = words.get(id);
+			if(internedWord != word) {
+				sentence.set(i, internedWord);
+			}
+			sentenceIds[i] = id;
+		}
+		return sentenceIds;
+	}
+
+	/**
+	 * @param word
+	 * @return the id of word or NO_ID if it is not in the Vocabulary
+	 */
+	public synchronized int getId(Word word) {
+		Integer id = ids.get(word);
+		return (id == null) ? NO_ID : id;
+	}
+
+	/**
+	 * @param id
+	 * @return the Word with the id
+	 */
+	public synchronized Word getWord(int id) {
+		return words.get(id);
+	}
+
+	/**
+	 * @param sentenceIds Word ids
+	 * @return a new Sentence of the Words
+	 */
+	public synchronized Sentence toSentence(int[] sentenceIds) {
+		Sentence sentence = new Sentence();
+		for(int id : sentenceIds) {
+			sentence.add(words.get(id));
+		}
+		sentence.setSource();
+		return sentence;
+	}
+
+	/**
+	 * @return the number of Words, including TERMINAL and NULL_VALUE
+	 */
+	public synchronized int size() {
+		return words.size();
+	}
+
+}
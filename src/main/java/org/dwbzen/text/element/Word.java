@@ -1,208 +1,392 @@
-package org.dwbzen.text.element;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.IntConsumer;
-import java.util.function.Supplier;
-
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.JsonProperty;
-
-import org.dwbzen.common.cp.ICollectable;
-import org.dwbzen.common.util.IJson;
-
-/**
- * A Word is a String that has an underlying structure of List<Character>.
- * 
- * @author don_bacon
- *
- */
-public class Word extends ArrayList<Character> 
-	implements Comparable<Word>, List<Character>, Supplier<Character>, IntConsumer, ICollectable<Character>, IJson {
-
-	private static final long serialVersionUID = 7157404340284643268L;
-	@JsonProperty("word")	private StringBuffer wordString = new StringBuffer();
-	
-	public static Character DELIM_CHARACTER =  ' ';
-	public static String DELIM_STRING = String.valueOf(DELIM_CHARACTER);
-	
-	/** 0xB6 Used to represent a Terminal character */
-	public static Character TERMINAL = '';
-	
-	/** 0xA7 Used to represent a NULL key in a Map - since it can't really be a null */
-	public static Character NULL_VALUE = '';
-	@JsonIgnore	private int index = -1;
-	
-	public Word() {
-	}
-	
-	public Word(Character c) {
-		if(c != null) {
-			wordString.append(c);
-			toCharacterList();
-		}
-	}
-	
-	public Word(String string) {
-		if(string != null) {
-			wordString.append(string);
-			toCharacterList();
-		}
-		else throw new NullPointerException();
-	}
-	
-	public Word(String padLeftString, Word ws) {
-		this(padLeftString, ws, null);
-	}
-
-	public Word( String padLeftString, Word ws, String padRightString) {
-		if(ws != null) {
-			if(padLeftString != null) {
-				wordString.append(padLeftString);
-			}
-			wordString.append(ws);
-			if(padRightString != null) {
-				wordString.append(padRightString);
-			}
-			toCharacterList();
-		}
-		else throw new NullPointerException();
-	}
-	
-	/**
-	 * Deep copy constructor.
-	 * @param otherWord
-	 */
-	public Word(Word otherWord) {
-		if(otherWord != null && otherWord.getWordString() != null) {
-			wordString.append(otherWord.getWordString());
-			toCharacterList();
-		}
-		else throw new NullPointerException();
-	}
-	
-	@Override
-	public int compareTo(Word other) throws NullPointerException {
-		int res = 0;
-		if(other.toString() != null && wordString != null) {
-			res = wordString.toString().compareTo(other.toString());
-		}
-		else throw new NullPointerException();
-		return res;
-	}
-	
-	private void toCharacterList() {
-		if(wordString != null) {
-			wordString.toString().chars().forEach(c -> accept(c));
-		}
-	}
-	
-	/**
-	 * Returns a new Word of the portion of this Word
-	 * between the specified fromIndex, inclusive, and toIndex, exclusive.
-	 * So it works like String.substring(start, end)
-	 * @param startIndex beginning index to get, inclusive
-	 * @param endIndex  end index to get, exclusive
-	 * @return Word
-	 */
-	public Word subset(int fromIndex, int toIndex) {
-		return new Word(wordString.substring(fromIndex, toIndex));
-	}
-	
-	/**
-	 * Returns a new Word of the portion of this Word
-	 * from the specified fromIndex, inclusive to the end of the String
-	 * So it works like String.substring(start)
-	 * @param startIndex beginning index to get, inclusive
-	 * @return Word
-	 */
-	public Word subset(int fromIndex) {
-		return new Word(wordString.substring(fromIndex));
-	}
-
-	public Word trim() {
-		wordString = new StringBuffer();
-		stream().filter(c -> c != ' ').forEach(c -> wordString.append(c) );
-		while(remove(DELIM_CHARACTER)) { remove(DELIM_CHARACTER); }
-		return this;
-	}
-	public static Character getDelimiter() {
-		return DELIM_CHARACTER;
-	}
-	
-	public int trimmedSize() {
-		int count = 0;
-		for(Character c : this) {
-			if(c == DELIM_CHARACTER || c == TERMINAL || c == NULL_VALUE) {
-				continue;
-			}
-			count++;
-		}
-		return count;
-	}
-	
-	@Override
-	public Character getTerminal() {
-		return Word.TERMINAL;
-	}
-	
-	@Override
-	public Character getNullValue() {
-		return Word.NULL_VALUE;
-	}
-	
-	
-	@Override
-	public String toString() {
-		return wordString.toString();
-	}
-	
-	public String getWordString() {
-		return wordString.toString();
-	}
-
-	public void setWordString(String wordString) {
-		this.wordString = new StringBuffer(wordString);
-	}
-	
-	public void append(Character c) {
-		add(c);
-		wordString.append(c);
-	}
-	
-	public String lower() {
-		return wordString.toString().toLowerCase();
-	}
-	
-	public Word toLowerCase() {
-		return new Word(lower());
-	}
-
-	@Override
-	public void accept(int value) {
-		add((char) value);
-	}
-
-	/**
-	 * Gets characters one at a time. Returns null when it runs out of characters.
-	 */
-	@Override
-	public Character get() {
-		Character c = null;
-		if(++index <= size()-1 ) {
-			c = get(index);
-		}
-		return c;
-	}
-	
-	@Override
-	public String toJson() {
-		return "[\"" + wordString.toString() + "\"]";
-	}
-	
-	@Override
-	public String toJson(boolean pretty) {
-		return this.toJson();
-	}
-
-}
+package org.dwbzen.text.element;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.dwbzen.common.cp.ICollectable;
+import org.dwbzen.common.util.IJson;
+
+/**
+ * A Word is a String that has an underlying structure of List<Character>.</p>
+ * 
+ * The characters are held once, in a char[], and the List is a view of them:
+ * Characters are only boxed when the List methods are used.
+ * The hash code (the same as List.hashCode) is cached until the Word changes.
+ * As in String, the cache is a single int, so a Word that is not changed can be hashed by several threads.
+ * subset() returns a Word sharing the characters of this one, which are copied
+ * only if either Word is changed afterwards.
+ * To know that, subset() marks this Word as sharing its characters: it is a write,
+ * so don't call it while another thread is changing the Word.
+ * 
+ * @author don_bacon
+ *
+ */
+public class Word extends AbstractList<Character> 
+	implements Comparable<Word>, List<Character>, RandomAccess, Supplier<Character>, IntConsumer, ICollectable<Character>, IJson, Serializable {
+
+	private static final long serialVersionUID = 7157404340284643268L;
+	private static final char[] EMPTY = {};
+	
+	public static Character DELIM_CHARACTER =  ' ';
+	public static String DELIM_STRING = String.valueOf(DELIM_CHARACTER);
+	
+	/** 0xB6 Used to represent a Terminal character */
+	public static Character TERMINAL = '';
+	
+	/** 0xA7 Used to represent a NULL key in a Map - since it can't really be a null */
+	public static Character NULL_VALUE = '';
+	@JsonIgnore	private int index = -1;
+	
+	private char[] chars = EMPTY;
+	private int offset = 0;
+	private int length = 0;
+	private boolean shared = false;		// chars may be used by another Word, copy before changing
+	private int hash = 0;				// 0 if not computed yet, as in String
+	private boolean hashIsZero = false;	// the hash was computed and is 0
+	
+	public Word() {
+	}
+	
+	public Word(Character c) {
+		if(c != null) {
+			chars = new char[] {c};
+			length = 1;
+		}
+	}
+	
+	public Word(String string) {
+		if(string != null) {
+			setChars(string);
+		}
+		else throw new NullPointerException();
+	}
+	
+	public Word(String padLeftString, Word ws) {
+		this(padLeftString, ws, null);
+	}
+
+	public Word( String padLeftString, Word ws, String padRightString) {
+		if(ws != null) {
+			StringBuilder sb = new StringBuilder();
+			if(padLeftString != null) {
+				sb.append(padLeftString);
+			}
+			sb.append(ws.chars, ws.offset, ws.length);
+			if(padRightString != null) {
+				sb.append(padRightString);
+			}
+			setChars(sb.toString());
+		}
+		else throw new NullPointerException();
+	}
+	
+	/**
+	 * Deep copy constructor.
+	 * @param otherWord
+	 */
+	public Word(Word otherWord) {
+		if(otherWord != null) {
+			chars = Arrays.copyOfRange(otherWord.chars, otherWord.offset, otherWord.offset + otherWord.length);
+			length = chars.length;
+		}
+		else throw new NullPointerException();
+	}
+	
+	/**
+	 * A Word sharing the characters of another.
+	 */
+	private Word(char[] chars, int offset, int length) {
+		this.chars = chars;
+		this.offset = offset;
+		this.length = length;
+		this.shared = true;
+	}
+	
+	private void setChars(String string) {
+		chars = string.toCharArray();
+		offset = 0;
+		length = chars.length;
+		shared = false;
+		changed();
+	}
+	
+	@Override
+	public int compareTo(Word other) throws NullPointerException {
+		if(other == null) {
+			throw new NullPointerException();
+		}
+		return Arrays.compare(chars, offset, offset + length, other.chars, other.offset, other.offset + other.length);
+	}
+	
+	/**
+	 * Returns a Word of the portion of this Word
+	 * between the specified fromIndex, inclusive, and toIndex, exclusive.
+	 * So it works like String.substring(start, end)
+	 * The characters are shared, not copied. This Word is marked as shared,
+	 * so its next change copies them first.
+	 * @param startIndex beginning index to get, inclusive
+	 * @param endIndex  end index to get, exclusive
+	 * @return Word
+	 */
+	public Word subset(int fromIndex, int toIndex) {
+		if(fromIndex < 0 || toIndex > length || fromIndex > toIndex) {
+			throw new StringIndexOutOfBoundsException("begin " + fromIndex + ", end " + toIndex + ", length " + length);
+		}
+		if(!shared) {
+			shared = true;
+		}
+		return new Word(chars, offset + fromIndex, toIndex - fromIndex);
+	}
+	
+	/**
+	 * Returns a Word of the portion of this Word
+	 * from the specified fromIndex, inclusive to the end of the String
+	 * So it works like String.substring(start)
+	 * @param startIndex beginning index to get, inclusive
+	 * @return Word
+	 */
+	public Word subset(int fromIndex) {
+		return subset(fromIndex, length);
+	}
+
+	public Word trim() {
+		char[] trimmed = new char[length];
+		int n = 0;
+		for(int i=0; i<length; i++) {
+			char c = chars[offset + i];
+			if(c != DELIM_CHARACTER) {
+				trimmed[n++] = c;
+			}
+		}
+		chars = trimmed;
+		offset = 0;
+		length = n;
+		shared = false;
+		modCount++;
+		changed();
+		return this;
+	}
+	public static Character getDelimiter() {
+		return DELIM_CHARACTER;
+	}
+	
+	public int trimmedSize() {
+		int count = 0;
+		for(int i=0; i<length; i++) {
+			char c = chars[offset + i];
+			if(c == DELIM_CHARACTER || c == TERMINAL || c == NULL_VALUE) {
+				continue;
+			}
+			count++;
+		}
+		return count;
+	}
+	
+	@Override
+	public Character getTerminal() {
+		return Word.TERMINAL;
+	}
+	
+	@Override
+	public Character getNullValue() {
+		return Word.NULL_VALUE;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return new String(chars, offset, length);
+	}
+	
+	@JsonProperty("word")
+	public String getWordString() {
+		return toString();
+	}
+
+	public void setWordString(String wordString) {
+		setChars(wordString);
+		modCount++;
+	}
+	
+	public void append(Character c) {
+		add(c);
+	}
+	
+	public String lower() {
+		return toString().toLowerCase();
+	}
+	
+	public Word toLowerCase() {
+		return new Word(lower());
+	}
+
+	@Override
+	public void accept(int value) {
+		add((char) value);
+	}
+
+	/**
+	 * Gets characters one at a time. Returns null when it runs out of characters.
+	 */
+	@Override
+	public Character get() {
+		Character c = null;
+		if(++index <= size()-1 ) {
+			c = get(index);
+		}
+		return c;
+	}
+	
+	/**
+	 * @param index
+	 * @return the character at index, without boxing it
+	 */
+	public char charAt(int index) {
+		if(index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+		}
+		return chars[offset + index];
+	}
+	
+	@Override
+	public Character get(int index) {
+		return charAt(index);
+	}
+	
+	@Override
+	public int size() {
+		return length;
+	}
+	
+	@Override
+	public Character set(int index, Character c) {
+		char previous = charAt(index);
+		ensureWritable(length);
+		chars[offset + index] = c;
+		changed();
+		return previous;
+	}
+	
+	@Override
+	public void add(int index, Character c) {
+		if(index < 0 || index > length) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+		}
+		ensureWritable(length + 1);
+		System.arraycopy(chars, offset + index, chars, offset + index + 1, length - index);
+		chars[offset + index] = c;
+		length++;
+		modCount++;
+		changed();
+	}
+	
+	@Override
+	public Character remove(int index) {
+		char removed = charAt(index);
+		ensureWritable(length);
+		System.arraycopy(chars, offset + index + 1, chars, offset + index, length - index - 1);
+		length--;
+		modCount++;
+		changed();
+		return removed;
+	}
+	
+	@Override
+	public void clear() {
+		chars = EMPTY;
+		offset = 0;
+		length = 0;
+		shared = false;
+		modCount++;
+		changed();
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		if(o instanceof Character) {
+			char c = (Character)o;
+			for(int i=0; i<length; i++) {
+				if(chars[offset + i] == c) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	/**
+	 * Makes chars this Word's own, with room for capacity characters.
+	 */
+	private void ensureWritable(int capacity) {
+		if(shared || offset + capacity > chars.length) {
+			char[] newChars = new char[Math.max(capacity, shared ? length : length * 2)];
+			System.arraycopy(chars, offset, newChars, 0, length);
+			chars = newChars;
+			offset = 0;
+			shared = false;
+		}
+	}
+	
+	private void changed() {
+		hash = 0;
+		hashIsZero = false;
+	}
+	
+	/**
+	 * The same as List.hashCode, computed from the characters and cached until the Word changes.
+	 */
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if(h == 0 && !hashIsZero) {
+			h = 1;
+			for(int i=0; i<length; i++) {
+				h = 31 * h + chars[offset + i];
+			}
+			if(h == 0) {
+				hashIsZero = true;
+			}
+			else {
+				hash = h;
+			}
+		}
+		return h;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if(this == other) {
+			return true;
+		}
+		if(other instanceof Word) {
+			Word word = (Word)other;
+			return length == word.length && hashCode() == word.hashCode() 
+					&& Arrays.equals(chars, offset, offset + length, word.chars, word.offset, word.offset + word.length);
+		}
+		return super.equals(other);
+	}
+	
+	@Override
+	public String toJson() {
+		return "[\"" + toString() + "\"]";
+	}
+	
+	@Override
+	public String toJson(boolean pretty) {
+		return this.toJson();
+	}
+
+}
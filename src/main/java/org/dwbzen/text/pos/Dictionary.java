@@ -1,17 +1,24 @@
 package org.dwbzen.text.pos;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import org.dwbzen.common.util.IJson;
 import org.dwbzen.text.util.PosUtil;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 /**
- * A collection of WordPos. 
+ * A collection of WordPos.</p>
+ * 
+ * A part of speech file can also be read without creating a Dictionary, see load(String, BiConsumer).
+ * The file is parsed a token at a time and each word is handed over as it is read.
  * 
  * @author don_bacon
  *
@@ -19,6 +26,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class Dictionary implements IJson {
     public static final String DEFAULT_NAME = "MyDictionary";
     public static final String POS_FILE_TYPE = "json";
+    private static final JsonFactory jsonFactory = new JsonFactory().enable(JsonParser.Feature.ALLOW_COMMENTS);
     
 	@JsonProperty("name")			private String name = "";
 	@JsonProperty("sourceFiles")	private List<String> sourceFiles = new ArrayList<>();
@@ -99,23 +107,96 @@ public class Dictionary implements IJson {
 	 * Creates a Dictionary instance from a JSON part of speech file.<br>
 	 * posFile does not need an extension. If present it us used otherwise ".json" is added.
 	 * @param posFile the JSON part of speech file base only (no extension).
-	 * @return Dictionary instance
+	 * @return Dictionary instance, null if the file can't be read
 	 * @throws RuntimeException if unable to deserialize the posFile
 	 */
 	public static Dictionary instance(String posFile) {
-		Dictionary dictionary = null;
+		Dictionary dictionary = new Dictionary();
+		boolean loaded = load(posFile, dictionary, (word, posList) -> {
+			WordPos wordPos = new WordPos(word);
+			wordPos.addAllPos(posList);
+			dictionary.addWordPos(wordPos);
+		});
+		return loaded ? dictionary : null;
+	}
+	
+	/**
+	 * Reads the words of a JSON part of speech file without creating a Dictionary or WordPos.<br>
+	 * posFile does not need an extension. If present it us used otherwise ".json" is added.
+	 * @param posFile the JSON part of speech file base only (no extension).
+	 * @param consumer given each word and its parts of speech, in file order.
+	 * The List is reused for the next word, so copy it to keep it.
+	 * @return the number of words
+	 * @throws RuntimeException if unable to deserialize the posFile
+	 */
+	public static int load(String posFile, BiConsumer<String, List<String>> consumer) {
+		int[] numberOfWords = {0};
+		load(posFile, null, (word, posList) -> {
+			consumer.accept(word, posList);
+			numberOfWords[0]++;
+		});
+		return numberOfWords[0];
+	}
+	
+	/*
+	 * Parses {"name" : ..., "sourceFiles" : [...], "words" : [{"word" : ..., "pos" : [...]}, ...]}
+	 * setting the name and sourceFiles of header, if not null.
+	 * Returns false if the file can't be read.
+	 */
+	private static boolean load(String posFile, Dictionary header, BiConsumer<String, List<String>> consumer) {
 		String posFileName = posFile.contains(".") ? posFile : posFile + "." + POS_FILE_TYPE;
-		StringBuilder sb = PosUtil.readFile(posFileName);
-		if(sb != null && sb.length() > 0) {
-			try {
-				dictionary = new ObjectMapper().readValue(sb.toString(), Dictionary.class);
-			} catch (JsonProcessingException e ) {
-				String message = "Could not deserialize " + posFile + " because " + e.getMessage();
-				System.err.println(message);
-				throw new RuntimeException(message, e);
-			} 
+		InputStream is = PosUtil.openPosFile(posFileName);
+		if(is == null) {
+			return false;
 		}
-		return dictionary;
+		List<String> posList = new ArrayList<>();
+		try(JsonParser parser = jsonFactory.createParser(is)) {
+			if(parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("expected a JSON object");
+			}
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if(fieldName.equals("words") && token == JsonToken.START_ARRAY) {
+					while(parser.nextToken() == JsonToken.START_OBJECT) {
+						String word = null;
+						posList.clear();
+						while(parser.nextToken() == JsonToken.FIELD_NAME) {
+							String wordFieldName = parser.getCurrentName();
+							JsonToken wordToken = parser.nextToken();
+							if(wordFieldName.equals("word")) {
+								word = parser.getValueAsString();
+							}
+							else if(wordFieldName.equals("pos") && wordToken == JsonToken.START_ARRAY) {
+								while(parser.nextToken() != JsonToken.END_ARRAY) {
+									posList.add(parser.getValueAsString());
+								}
+							}
+							else {
+								parser.skipChildren();
+							}
+						}
+						consumer.accept(word, posList);
+					}
+				}
+				else if(header != null && fieldName.equals("name")) {
+					header.setName(parser.getValueAsString());
+				}
+				else if(header != null && fieldName.equals("sourceFiles") && token == JsonToken.START_ARRAY) {
+					while(parser.nextToken() != JsonToken.END_ARRAY) {
+						header.getSourceFiles().add(parser.getValueAsString());
+					}
+				}
+				else {
+					parser.skipChildren();
+				}
+			}
+		} catch (IOException e ) {
+			String message = "Could not deserialize " + posFile + " because " + e.getMessage();
+			System.err.println(message);
+			throw new RuntimeException(message, e);
+		}
+		return true;
 	}
 	
 }
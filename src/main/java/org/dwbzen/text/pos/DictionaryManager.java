@@ -3,20 +3,48 @@ package org.dwbzen.text.pos;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * An IPartsOfSpeechManager of JSON part of speech files.<br>
+ * The files are read a token at a time straight into the word and part of speech maps (see Dictionary.load).
+ * A Dictionary of them is only created if getDictionary() is called.
+ * 
+ */
 public class DictionaryManager extends PartsOfSpeechManager {
 
 	private Dictionary dictionary = null;
+	private String name = Dictionary.DEFAULT_NAME;		// the name of the Dictionary getDictionary() creates
+	private Dictionary sourceDictionary = null;			// words loaded ahead of the configured files
+	private List<String> sourcePosFiles = new ArrayList<>();	// files loaded ahead of the configured files
+	private boolean sourcesLoaded = false;
 
 	/**
 	 * Creates DictionaryManager with the configured POS_FILE
 	 */
 	protected DictionaryManager() {
 		configure();
-		dictionary = Dictionary.instance(posFile);
 	}
 	
 	protected DictionaryManager(Dictionary dict) {
-		dictionary = dict;
+		sourceDictionary = dict;
+		if(dict != null && dict.getName() != null) {
+			name = dict.getName();
+		}
+		configure();
+	}
+	
+	protected DictionaryManager(List<String> posFiles) {
+		this(posFiles, null);
+	}
+	
+	/**
+	 * @param posFiles part of speech files loaded ahead of the configured files
+	 * @param name the name of the Dictionary getDictionary() creates, Dictionary.DEFAULT_NAME if null
+	 */
+	protected DictionaryManager(List<String> posFiles, String name) {
+		sourcePosFiles.addAll(posFiles);
+		if(name != null) {
+			this.name = name;
+		}
 		configure();
 	}
 	
@@ -25,8 +53,7 @@ public class DictionaryManager extends PartsOfSpeechManager {
 	}
 	
 	public static DictionaryManager instance(String posFile) {
-		Dictionary dict = Dictionary.instance(posFile);
-		return new DictionaryManager(dict);
+		return new DictionaryManager(List.of(posFile));
 	}
 	
 	public static DictionaryManager instance(List<String> posFiles) {
@@ -34,11 +61,9 @@ public class DictionaryManager extends PartsOfSpeechManager {
 	}
 	
 	public static DictionaryManager instance(List<String> posFiles, String name) {
-		Dictionary dict = null;
 		DictionaryManager dictionaryManager = null;
 		if(posFiles != null && posFiles.size()>0) {
-			dict = Dictionary.instance(posFiles, name);
-			dictionaryManager = new DictionaryManager(dict);
+			dictionaryManager = new DictionaryManager(posFiles, name);
 		}
 		else {
 			dictionaryManager = new DictionaryManager();
@@ -54,22 +79,54 @@ public class DictionaryManager extends PartsOfSpeechManager {
 		super.configure();
     }
 	
+	/**
+	 * Saves the words of posFileName as they are read. The first time, the Dictionary or files
+	 * this DictionaryManager was created with are loaded first.
+	 * @return the number of words read
+	 */
 	@Override
 	public int loadWords(String posFileName) {
-		if(dictionary == null) {
-			dictionary = Dictionary.instance(posFileName);
-		}
-		else {
-			dictionary.addDictionary(Dictionary.instance(posFileName));
+		int numberOfWords = 0;
+		if(!sourcesLoaded) {
+			sourcesLoaded = true;
+			if(sourceDictionary != null) {
+				for(WordPos wordPos : sourceDictionary.getWords()) {
+					numberOfWords += savePos(wordPos.getWord(), wordPos.getPos());
+				}
+			}
+			for(String sourcePosFile : sourcePosFiles) {
+				numberOfWords += Dictionary.load(sourcePosFile, this::savePos);
+			}
 		}
-		for(WordPos wordPos : dictionary.getWords()) {
-			wordPos.getPos().forEach(w -> saveWord(wordPos.getWord(),w));
+		numberOfWords += Dictionary.load(posFileName, this::savePos);
+		dictionary = null;
+		return numberOfWords;
+	}
+	
+	private int savePos(String word, List<String> posList) {
+		for(String pos : posList) {
+			saveWord(word, pos);
 		}
-		return dictionary.getWords().size();
+		return 1;
 	}
 
-	
+	/**
+	 * @return a Dictionary of all the words loaded, read again from the part of speech files the first time it is asked for
+	 */
 	public Dictionary getDictionary() {
+		if(dictionary == null) {
+			Dictionary allWords = new Dictionary(name);
+			if(sourceDictionary != null) {
+				allWords.addDictionary(sourceDictionary);
+			}
+			for(String posFileName : sourcePosFiles) {
+				allWords.addDictionary(Dictionary.instance(posFileName));
+			}
+			for(String posFileName : getPosFiles()) {
+				allWords.addDictionary(Dictionary.instance(posFileName));
+			}
+			dictionary = allWords;
+		}
 		return dictionary;
 	}
 	
@@ -33,20 +33,21 @@ public class TuppleWordDistanceMetric implements  BiFunction<Tupple<Word>, Sente
 		int count = 0;
 		// step 1 - get all the 2-Character combinations of tupple characters
 		Set<Tupple<Word>> tupplePartitions = getPartitions(tupple, 2);
-		// step 2 - for each combo, get the indexes in Word
+		// step 2 - for each combo, get the indexes in Word. The Words are converted to lower case once, not once per combo
+		Word[] words = new Word[sentence.size()];
+		for(int i=0; i<words.length; i++) {
+			words[i] = ignoreCase ? sentence.get(i).toLowerCase() : sentence.get(i);
+		}
 		Set<Integer> c1Indexes = new TreeSet<Integer>();
 		Set<Integer> c2Indexes = new TreeSet<Integer>();
 		for(Tupple<Word> tpart : tupplePartitions) {
-			int ind = 0;
-			for(Word w : sentence) {
-				Word word = ignoreCase ? w.toLowerCase() : w;
-				if(word.equals(tpart.index(0))) {
+			for(int ind=0; ind<words.length; ind++) {
+				if(words[ind].equals(tpart.index(0))) {
 					c1Indexes.add(ind);
 				}
-				if(word.equals(tpart.index(1))) {
+				if(words[ind].equals(tpart.index(1))) {
 					c2Indexes.add(ind);
 				}
-				ind++;
 			}
 		}
 		// step 3 - sum up the absolute values of the pairwise differences in the two index lists
@@ -11,6 +11,7 @@ import org.dwbzen.common.relation.OccurrenceRelationBag;
 import org.dwbzen.text.element.Book;
 import org.dwbzen.text.element.Book.ContentType;
 import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.Vocabulary;
 import org.dwbzen.text.element.Word;
 import org.dwbzen.text.util.Configuration;
 import org.dwbzen.text.util.IDataSource;
@@ -30,6 +31,7 @@ public class WordOccurrenceRelationBag extends OccurrenceRelationBag<Word, Sente
 	@JsonProperty	private String schemaName = "text";
 	@JsonIgnore		private IDataSource<String> dataSource = null;
 	@JsonIgnore		private TextConfigurator textConfigurator = null;
+	@JsonIgnore		private Vocabulary vocabulary = Vocabulary.getShared();	// Words of the text are interned as it is formatted
 	@JsonIgnore		private String text = null;
 	@JsonIgnore		private Book book = null;
 	@JsonIgnore		private SentenceIdExtractor sentenceIdExtractor = new SentenceIdExtractor();
@@ -57,6 +59,7 @@ public class WordOccurrenceRelationBag extends OccurrenceRelationBag<Word, Sente
 		super(otherBag.getDegree());
 		setConfiguration(otherBag.getConfiguration());
 		setTextConfigurator(otherBag.getTextConfigurator());
+		vocabulary = otherBag.getVocabulary();
 		setSupressSourceOutput(otherBag.isSupressSourceOutput());
 		setTotalOccurrences(otherBag.getTotalOccurrences());
 		setMetricFunction(new TuppleWordDistanceMetric());
@@ -75,6 +78,7 @@ public class WordOccurrenceRelationBag extends OccurrenceRelationBag<Word, Sente
 	public void configure()  {
 		textConfigurator  = new TextConfigurator(schemaName, contentType, ignoreCase);
 		configuration = textConfigurator.configure();
+		textConfigurator.setVocabulary(vocabulary);
 	}
 
 	public String getText() {
@@ -89,11 +93,7 @@ public class WordOccurrenceRelationBag extends OccurrenceRelationBag<Word, Sente
 	public Book setText(String sourceText) {
 		this.text = sourceText;
 		book = textConfigurator.formatText(sourceText);
-		Sentence sentence = null;
-		while((sentence = book.get()) != null) {
-			WordOccurranceRelation wor = new WordOccurranceRelation(sentence, getDegree(), ignoreCase);
-			addOccurrenceRelation(wor);
-		}
+		book.stream().forEach(sentence -> addOccurrenceRelation(new WordOccurranceRelation(sentence, getDegree(), ignoreCase)));
 		return book;
 	}
 	
@@ -199,6 +199,19 @@ public class WordOccurrenceRelationBag extends OccurrenceRelationBag<Word, Sente
 		this.book = book;
 	}
 
+	public Vocabulary getVocabulary() {
+		return vocabulary;
+	}
+
+	/**
+	 * @param vocabulary the Vocabulary Words are interned in as text is formatted, the shared Vocabulary by default.
+	 * null turns interning off.
+	 */
+	public void setVocabulary(Vocabulary vocabulary) {
+		this.vocabulary = vocabulary;
+		textConfigurator.setVocabulary(vocabulary);
+	}
+
 	public boolean isSupressIdOutput() {
 		return supressIdOutput;
 	}
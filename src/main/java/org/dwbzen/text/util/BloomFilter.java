@@ -0,0 +1,95 @@
+package org.dwbzen.text.util;
+
+/**
+ * A Bloom filter of Strings: a set that can answer "definitely not present" or "probably present"
+ * in a fixed number of bits per entry, whatever the length of the Strings.<br>
+ * Strings can be added but not removed.</p>
+ *
+ * For n expected Strings and a false positive rate p the filter has m = -n ln(p) / (ln 2)^2 bits
+ * and sets k = (m / n) ln 2 of them per String, about 9.6 bits per String for p = 0.01.
+ * The k bit positions are combined from two 64-bit hashes of the characters (h1 + i*h2).
+ *
+ */
+public class BloomFilter {
+
+	private final long[] bits;
+	private final long numberOfBits;
+	private final int numberOfHashes;
+	private int size = 0;
+
+	/**
+	 * @param expectedSize number of Strings expected. More can be added at the cost of a higher false positive rate.
+	 * @param falsePositiveRate probability that mightContain is true for a String not added, greater than 0 and less than 1
+	 */
+	public BloomFilter(int expectedSize, double falsePositiveRate) {
+		if(falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("false positive rate must be between 0 and 1: " + falsePositiveRate);
+		}
+		long n = Math.max(expectedSize, 1);
+		long m = (long)Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		bits = new long[(int)((m + Long.SIZE - 1) / Long.SIZE)];
+		numberOfBits = (long)bits.length * Long.SIZE;
+		numberOfHashes = Math.max(1, (int)Math.round((double)numberOfBits / n * Math.log(2)));
+	}
+
+	public void put(CharSequence string) {
+		long h1 = hash(string, 0x9e3779b97f4a7c15L);
+		long h2 = hash(string, 0xc2b2ae3d27d4eb4fL) | 1L;
+		for(int i=0; i<numberOfHashes; i++) {
+			long bit = Math.floorMod(h1 + i * h2, numberOfBits);
+			bits[(int)(bit >>> 6)] |= 1L << bit;
+		}
+		size++;
+	}
+
+	/**
+	 * @param string
+	 * @return false if string was definitely not added, true if it probably was
+	 */
+	public boolean mightContain(CharSequence string) {
+		long h1 = hash(string, 0x9e3779b97f4a7c15L);
+		long h2 = hash(string, 0xc2b2ae3d27d4eb4fL) | 1L;
+		for(int i=0; i<numberOfHashes; i++) {
+			long bit = Math.floorMod(h1 + i * h2, numberOfBits);
+			if((bits[(int)(bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Multiplies in each character then mixes the bits (the murmur3 64-bit finalizer), as in LongIntHashMap.
+	 */
+	private static long hash(CharSequence string, long seed) {
+		long h = seed ^ string.length();
+		for(int i=0; i<string.length(); i++) {
+			h = (h ^ string.charAt(i)) * 0x100000001b3L + seed;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * @return the number of Strings added
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the size of the filter in bits
+	 */
+	public long getNumberOfBits() {
+		return numberOfBits;
+	}
+
+	public int getNumberOfHashes() {
+		return numberOfHashes;
+	}
+
+}
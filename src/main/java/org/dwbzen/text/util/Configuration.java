@@ -2,6 +2,8 @@ package org.dwbzen.text.util;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.logging.log4j.LogManager;
@@ -13,12 +15,17 @@ import org.apache.logging.log4j.Logger;
  * Configuration config = Configuration.getInstance("/config.properties");
  * Properties properties = config.getProperties();
  * 
+ * There is one Configuration per resource, read the first time it is asked for.
+ * reload() reads it again into the same Properties.
+ * 
+ * @see ConfigurationRegistry
  * @author don_bacon
  *
  */
 public class Configuration {
 
 	protected static final Logger log = LogManager.getLogger(Configuration.class);
+	private static final Map<String, Configuration> instances = new HashMap<>();
 	private Properties properties = new Properties();
 	private String configurationFilename = null;
 	
@@ -27,12 +34,20 @@ public class Configuration {
 		configurationFilename = configFilename;
 	}
 	
+	/**
+	 * @param filename resource name. If none, a new empty Configuration.
+	 * @return the shared Configuration of the resource
+	 */
 	public static Configuration getInstance(String... filename) {
 		Configuration configuration = null;
 		if(filename.length > 0) {
 			synchronized(Configuration.class){
+				configuration = instances.get(filename[0]);
+				if(configuration == null) {
 					configuration = new Configuration(filename[0]);
 					configuration.loadProperties();
+					instances.put(filename[0], configuration);
+				}
 			}
 		}
 		else {
@@ -43,16 +58,34 @@ public class Configuration {
 	}
 	
 	private void loadProperties() {
+		properties.putAll(readProperties());
+	}
+	
+	private Properties readProperties() {
         URL url = getClass().getResource(configurationFilename);
         if(url == null) {
             throw new IllegalArgumentException("Could not load resource: \"" + configurationFilename + "\"");
         }
+        Properties loadedProperties = new Properties();
         try(InputStream stream = url.openStream()) {
-        	properties.load(stream);
+        	loadedProperties.load(stream);
         }
         catch(Exception e) {
         	log.error("Could not load " + configurationFilename + " " + e.toString());
         }
+        return loadedProperties;
+	}
+	
+	/**
+	 * Reads the resource again, replacing the properties in place so everything
+	 * holding getProperties() sees the new values. Properties added since it was read are dropped.
+	 */
+	public void reload() {
+		if(configurationFilename != null) {
+			Properties loadedProperties = readProperties();
+			properties.keySet().retainAll(loadedProperties.keySet());		// never empty while reloading
+			properties.putAll(loadedProperties);
+		}
 	}
 	
 	public void addConfiguration(Configuration someOtherConfiguration) {
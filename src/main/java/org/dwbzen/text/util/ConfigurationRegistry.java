@@ -0,0 +1,169 @@
+package org.dwbzen.text.util;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dwbzen.text.element.Book.ContentType;
+
+/**
+ * Everything TextConfigurator.configure() resolves from config.properties, worked out once per process.<br>
+ * The Configuration itself is shared (see Configuration.getInstance), and this adds:<br>
+ * the Settings of each ContentType, its filter flags and the words to ignore and punctuation, and<br>
+ * a factory for the IDataFormatter of each schema name, so the class is looked up once
+ * and a TextConfigurator only has to call its constructor.</p>
+ *
+ * reload() reads config.properties again and drops everything resolved from it.
+ * TextConfigurators already configured keep their settings until configure() is called again.
+ *
+ * @see TextConfigurator#configure()
+ */
+public class ConfigurationRegistry {
+	protected static final Logger log = LogManager.getLogger(ConfigurationRegistry.class);
+
+	private static final Map<ContentType, Settings> settings = new EnumMap<>(ContentType.class);
+	private static final Map<String, Supplier<IDataFormatter<String>>> formatterFactories = new HashMap<>();
+	private static final Supplier<IDataFormatter<String>> NO_FORMATTER = () -> null;
+
+	private ConfigurationRegistry() {
+	}
+
+	/**
+	 * The filter flags of a ContentType and the words they filter. Lists are read-only.
+	 */
+	public static class Settings {
+		public final boolean filteringInputText;
+		public final boolean filteringPunctuation;
+		public final boolean substituteWordVariants;
+		public final boolean ignoreWordsContainingNumbers;
+		public final boolean ignoreWordsInUppercase;
+		public final boolean ignoreInternetAndFileAddresses;
+		public final List<String> filterWords;
+		public final List<String> filterPunctuation;
+		public final String variantsMapFilename;
+
+		Settings(Properties properties, ContentType contentType) {
+			filteringInputText = getBooleanProperty(properties, "filterWordsToIgnore", contentType);
+			filteringPunctuation = getBooleanProperty(properties, "filterPunctuation", contentType);
+			substituteWordVariants = getBooleanProperty(properties, "substituteWordVariants", contentType);
+			ignoreWordsContainingNumbers = getBooleanProperty(properties, "ignoreWordsContainingNumbers", contentType);
+			ignoreWordsInUppercase = getBooleanProperty(properties, "ignoreWordsInUppercase", contentType);
+			ignoreInternetAndFileAddresses = getBooleanProperty(properties, "ignoreInternetAndFileAddresses", contentType);
+			List<String> words = new ArrayList<>();
+			for(String word : properties.getProperty("WORDS_TO_IGNORE", "").split(",")) { words.add(word); }
+			List<String> punctuation = new ArrayList<>();
+			for(String p : TextConfigurator.punctuation) { punctuation.add(p); }
+			for(String p : properties.getProperty("PUNCTUATION", "").split(",")) { punctuation.add(p); }
+			filterWords = Collections.unmodifiableList(words);
+			filterPunctuation = Collections.unmodifiableList(punctuation);
+			variantsMapFilename = properties.getProperty("VARIANTS_MAP_FILENAME");
+		}
+	}
+
+	/**
+	 * @return the shared Configuration of PosUtil.CONFIG_FILES
+	 */
+	public static Configuration getConfiguration() {
+		return PosUtil.getConfiguration();
+	}
+
+	/**
+	 * @param contentType
+	 * @return the Settings of contentType, resolved the first time it is asked for
+	 */
+	public static synchronized Settings getSettings(ContentType contentType) {
+		Settings contentTypeSettings = settings.get(contentType);
+		if(contentTypeSettings == null) {
+			contentTypeSettings = new Settings(getConfiguration().getProperties(), contentType);
+			settings.put(contentType, contentTypeSettings);
+		}
+		return contentTypeSettings;
+	}
+
+	/**
+	 * Get the boolean property value associated with a configuration base name.
+	 * The config value is the base name + "." + content type.
+	 * If there is no configured value for that name+content type, it looks for name+"ANY"
+	 * and if that doesn't exit it returns false;
+	 * @param properties
+	 * @param baseName property base name without the "." separator
+	 * @param contentType
+	 * @return configured boolean value
+	 */
+	public static boolean getBooleanProperty(Properties properties, String baseName, ContentType contentType) {
+		String value = properties.getProperty(baseName + "." + TextConfigurator.contentTypes.get(contentType));
+		if(value == null) {
+			value = properties.getProperty(baseName + "." + TextConfigurator.contentTypes.get(ContentType.ANY), TextConfigurator.FALSE);
+		}
+		return value.equalsIgnoreCase(TextConfigurator.TRUE);
+	}
+
+	/**
+	 * The factory is looked up from dataFormatterClass.&lt;schemaName&gt;, for example
+	 * dataFormatterClass.ticket=org.dwbzen.text.util.TicketDataFormatter
+	 * @param schemaName
+	 * @return a factory of new IDataFormatters for the schema. It supplies null if there is none, or it can't be created.
+	 */
+	@SuppressWarnings("unchecked")
+	public static synchronized Supplier<IDataFormatter<String>> getFormatterFactory(String schemaName) {
+		Supplier<IDataFormatter<String>> factory = formatterFactories.get(schemaName);
+		if(factory == null) {
+			factory = NO_FORMATTER;
+			String dataFormatterClassName = getDataFormatterClassName(schemaName);
+			if(dataFormatterClassName != null) {
+				try {
+					Class<IDataFormatter<String>> formatterClass = (Class<IDataFormatter<String>>)Class.forName(dataFormatterClassName);
+					Constructor<IDataFormatter<String>> constructor = formatterClass.getDeclaredConstructor();
+					factory = () -> newFormatter(constructor);
+				}
+				catch(Exception e) {
+					log.error("Could not create DataFormatter " + dataFormatterClassName);
+					log.error(e.toString());
+				}
+			}
+			formatterFactories.put(schemaName, factory);
+		}
+		return factory;
+	}
+
+	/**
+	 * @param schemaName
+	 * @return the configured IDataFormatter class name, or null if there is none
+	 */
+	public static String getDataFormatterClassName(String schemaName) {
+		String dataFormatterClassName = getConfiguration().getProperties().getProperty("dataFormatterClass." + schemaName);
+		if(dataFormatterClassName == null || dataFormatterClassName.equalsIgnoreCase("none") || schemaName.equalsIgnoreCase("none")) {
+			return null;
+		}
+		return dataFormatterClassName;
+	}
+
+	private static IDataFormatter<String> newFormatter(Constructor<IDataFormatter<String>> constructor) {
+		try {
+			return constructor.newInstance();
+		}
+		catch(Exception e) {
+			log.error("Could not create DataFormatter " + constructor.getDeclaringClass().getName());
+			log.error(e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Reads config.properties again and drops the Settings and formatter factories resolved from it.
+	 */
+	public static synchronized void reload() {
+		getConfiguration().reload();
+		settings.clear();
+		formatterFactories.clear();
+	}
+
+}
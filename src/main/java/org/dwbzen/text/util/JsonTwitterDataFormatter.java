@@ -29,14 +29,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class JsonTwitterDataFormatter  implements IDataFormatter<String>  {
 
 	static ObjectMapper mapper = new ObjectMapper();
+	static {
+		mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+	}
 	@JsonProperty	TwitterTweets twitterTweets = null;
 	@JsonProperty	TwitterTweet  twitterTweet = null;
 	@JsonProperty	boolean removeUrls = true;	// drop http://... and https://...
 	static char[] singleQuote = {0xC3,0xA2,0xE2,',',0xAC,0xE2,',', ',', 0xA2};
 	
-	public JsonTwitterDataFormatter() { 
-		mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+	public JsonTwitterDataFormatter() {
 	}
 	
 	
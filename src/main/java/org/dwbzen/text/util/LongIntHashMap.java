@@ -0,0 +1,153 @@
+package org.dwbzen.text.util;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing (linear probing) hash map of primitive long keys to int values.<br>
+ * Nothing is boxed, so a map with millions of entries is just two arrays.
+ * Entries can be added or updated but not removed.</p>
+ *
+ * get() returns NOT_FOUND (-1) for a missing key, so values are expected to be >= 0.<br>
+ * Key 0 is allowed: it is stored outside the table since 0 marks a free slot.
+ *
+ */
+public class LongIntHashMap {
+
+	public static final int NOT_FOUND = -1;
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size = 0;
+	private int resizeThreshold;
+	private boolean hasZeroKey = false;
+	private int zeroValue = NOT_FOUND;
+
+	public LongIntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize number of entries expected. The table is sized so they fit without rehashing.
+	 */
+	public LongIntHashMap(int expectedSize) {
+		allocate(tableSizeFor((int)Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR)));
+	}
+
+	/**
+	 * @param key
+	 * @return the value mapped to key, or NOT_FOUND
+	 */
+	public int get(long key) {
+		if(key == 0) {
+			return hasZeroKey ? zeroValue : NOT_FOUND;
+		}
+		int slot = hash(key) & mask;
+		long k;
+		while((k = keys[slot]) != 0) {
+			if(k == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return NOT_FOUND;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != NOT_FOUND;
+	}
+
+	/**
+	 * Maps key to value, replacing any previous value.
+	 * @param key
+	 * @param value must be >= 0
+	 * @return the previous value, or NOT_FOUND
+	 */
+	public int put(long key, int value) {
+		if(key == 0) {
+			int previous = hasZeroKey ? zeroValue : NOT_FOUND;
+			if(!hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+			}
+			zeroValue = value;
+			return previous;
+		}
+		int slot = hash(key) & mask;
+		long k;
+		while((k = keys[slot]) != 0) {
+			if(k == key) {
+				int previous = values[slot];
+				values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if(++size >= resizeThreshold) {
+			rehash(keys.length * 2);
+		}
+		return NOT_FOUND;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		size = 0;
+		hasZeroKey = false;
+		zeroValue = NOT_FOUND;
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(newCapacity);
+		for(int i=0; i<oldKeys.length; i++) {
+			long key = oldKeys[i];
+			if(key != 0) {
+				int slot = hash(key) & mask;
+				while(keys[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		resizeThreshold = (int)(capacity * LOAD_FACTOR);
+	}
+
+	/*
+	 * Packed character keys have most of their entropy in the low bits,
+	 * so mix the bits before masking (the murmur3 64-bit finalizer).
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+
+	private static int tableSizeFor(int n) {
+		int capacity = Integer.highestOneBit(Math.max(n, 2) - 1) << 1;
+		return Math.max(capacity, 2);
+	}
+
+}
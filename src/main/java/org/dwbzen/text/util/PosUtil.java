@@ -1,6 +1,7 @@
 package org.dwbzen.text.util;
 
 import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -139,6 +140,31 @@ public class PosUtil {
 		return util.readPosFile(filename);
 	}
 	
+	/**
+	 * Opens a part of speech file found the same way as readPosFile(String).
+	 * @param filename an absolute path or resource file
+	 * @return InputStream or null if the file can't be read
+	 */
+	public static InputStream openPosFile(String filename) {
+		InputStream is = null;
+		if(filename.contains(":")) {	// absolute path, as in "C:/data/text/"
+			try {
+				is = new FileInputStream(filename);
+			} catch (IOException e) {
+				System.err.println("Could not read " + filename);
+			}
+		}
+		else {	// relative to POS_DIR=/reference/pos/<posfile>
+			String posDir = configProperties.getProperty("POS_DIR", "/reference/pos/");
+			String resourceFilename = (filename.indexOf('/') == 0) ? filename : posDir + filename;
+			is = PosUtil.class.getResourceAsStream(resourceFilename);
+			if(is == null) {
+				System.err.println("Could not read " + resourceFilename);
+			}
+		}
+		return is;
+	}
+	
 	public static Configuration getConfiguration() {
 		return configuration;
 	}
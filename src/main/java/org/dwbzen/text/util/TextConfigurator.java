@@ -1,19 +1,20 @@
 package org.dwbzen.text.util;
 
-import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.dwbzen.text.element.Book;
 import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.StreamingBook;
+import org.dwbzen.text.element.Vocabulary;
 import org.dwbzen.text.element.Book.ContentType;
 
 /**
@@ -39,8 +40,12 @@ public class TextConfigurator {
 	private IDataFormatter<String> dataFormatter = null;
 	private ContentType contentType = null;
 	private Map<String, String> variantMap = null;
+	private List<String> filterWords = new ArrayList<String>();
+	private List<String> filterPunctuation = new ArrayList<String>();
+	private TextFilter textFilter = null;	// compiled from the above when first needed
 	
 	private Book book = null;	// formatted text as a Book instance
+	private Vocabulary vocabulary = null;	// if set, the Words of formatted Sentences are interned
 	
 	
 	public static Map<Book.ContentType, String> contentTypes = new HashMap<>();
@@ -48,8 +53,6 @@ public class TextConfigurator {
 	public final static String TRUE = "true";
 	public final static String FALSE = "false";
 	public static final Pattern numberPattern = Pattern.compile("^[0-9]+\\.?[0-9]*$");
-	private static List<String> filterWords = new ArrayList<String>();
-	private static List<String> filterPunctuation = new ArrayList<String>();
 	
 	static {
 		contentTypes.put(ContentType.PROSE, "PROSE");
@@ -69,41 +72,32 @@ public class TextConfigurator {
 		this.ignoreCase = ignoreCase;
 	}
 	
-	@SuppressWarnings("unchecked")
 	/**
 	 * Filtering out words to ignore and punctuation is configured by ContentType.<br>
-	 * Substitution of word variants is also configured by ContentType.
+	 * Substitution of word variants is also configured by ContentType.<br>
+	 * The settings are resolved once per process by the ConfigurationRegistry, so this costs little.
 	 * @return
 	 */
 	public Configuration configure()  {
 		try {
-			configuration = PosUtil.getConfiguration();
+			configuration = ConfigurationRegistry.getConfiguration();
 			configProperties = configuration.getProperties();
-			isFilteringInputText =  getBooleanProperty("filterWordsToIgnore");
-			isFilteringPunctuation  = getBooleanProperty("filterPunctuation");
-			substituteWordVariants = getBooleanProperty("substituteWordVariants");
-			ignoreWordsContainingNumbers = getBooleanProperty("ignoreWordsContainingNumbers");
-			ignoreWordsInUppercase = getBooleanProperty("ignoreWordsInUppercase");
-			ignoreInternetAndFileAddresses = getBooleanProperty("ignoreInternetAndFileAddresses");
+			ConfigurationRegistry.Settings settings = ConfigurationRegistry.getSettings(contentType);
+			isFilteringInputText =  settings.filteringInputText;
+			isFilteringPunctuation  = settings.filteringPunctuation;
+			substituteWordVariants = settings.substituteWordVariants;
+			ignoreWordsContainingNumbers = settings.ignoreWordsContainingNumbers;
+			ignoreWordsInUppercase = settings.ignoreWordsInUppercase;
+			ignoreInternetAndFileAddresses = settings.ignoreInternetAndFileAddresses;
 			// for example: dataFormatterClass.ticket=org.dwbzen.text.util.TicketDataFormatter
 			// schema name is "ticket"
 			dataFormatterClassName = configProperties.getProperty("dataFormatterClass." + schemaName);
-			if(dataFormatterClassName != null && !dataFormatterClassName.equalsIgnoreCase("none") && !schemaName.equalsIgnoreCase("none")) {
-				try {
-					Class<IDataFormatter<String>> formatterClass = (Class<IDataFormatter<String>>)Class.forName(dataFormatterClassName);
-					this.dataFormatter = formatterClass.getDeclaredConstructor().newInstance();
-				}
-				catch(Exception e) {
-	    			String errorMessage = "Could not create DataFormatter " + dataFormatterClassName;
-	    			log.error(errorMessage);
-	    			log.error(e.toString() );
-				}
-			}
-			for(String word : configProperties.getProperty("WORDS_TO_IGNORE").split(",")) { filterWords.add(word); 	}
-			for(String p : punctuation) { filterPunctuation.add(p); }
-			for(String word : configProperties.getProperty("PUNCTUATION").split(",")) {	filterPunctuation.add(word); }
+			dataFormatter = ConfigurationRegistry.getFormatterFactory(schemaName).get();
+			filterWords = settings.filterWords;
+			filterPunctuation = settings.filterPunctuation;
+			textFilter = null;
 			
-			variantMap = WordListUtils.getVariantMap(configProperties.getProperty("VARIANTS_MAP_FILENAME"));
+			variantMap = VariantIndex.getInstance(settings.variantsMapFilename);
 			
 		} catch(Exception e) {
 			System.err.println("Configuration error: " + e.getMessage());
@@ -121,15 +115,7 @@ public class TextConfigurator {
 	 * @return configured boolean value
 	 */
 	public boolean getBooleanProperty(String baseName) {
-		String propertyName = baseName + "." + contentTypes.get(contentType);
-		boolean value;
-		if(configProperties.containsKey(propertyName)) {
-			value = configProperties.getProperty(propertyName).equalsIgnoreCase(TRUE);
-		}
-		else {
-			value = configProperties.getProperty(baseName + "." + contentTypes.get(ContentType.ANY), FALSE).equalsIgnoreCase(TRUE);
-		}
-		return value;
+		return ConfigurationRegistry.getBooleanProperty(configProperties, baseName, contentType);
 	}
 
 	 /**
@@ -144,7 +130,7 @@ public class TextConfigurator {
 	 * 
 	 * The Sentence structure is preserved for TECHNICAL and PROSE content types.<br>
 	 * For TECHNCIAL, each line (defined as ending in "\n") is a Sentence.<br>
-	 * For PROSE, a SentenceInstance BreakIterator delimits sentences.<br>
+	 * For PROSE, a TextTokenizer delimits sentences.<br>
 	 * For VERSE the words are all delivered as a single sentence.<br>
 	 * 
 	 * <b>NOTE - invoke configure() first.</b>
@@ -182,66 +168,113 @@ public class TextConfigurator {
 		else {
 			book = new Book(sourceText);
 		}
+		if(vocabulary != null) {
+			book.getSentences().forEach(sentence -> vocabulary.intern(sentence));
+		}
 		return book;
 	}
 	
+	/**
+	 * Formats source text a line at a time, giving each Sentence to the consumer as soon as it is complete.<br>
+	 * Unlike formatText(String) this never holds the whole text or a Book, only the Sentence in progress.</p>
+	 * 
+	 * If there is a DataFormatter each line is formatted as a Sentence.<br>
+	 * Otherwise lines are joined and broken into Sentences with a TextTokenizer, as Book does.
+	 * A Sentence is only given to the consumer once the line following it has been read,
+	 * since a Sentence can continue on the next line.<br>
+	 * Blank lines and lines starting with "#" are skipped, as TextFileReader.getFileText() does.
+	 * 
+	 * <b>NOTE - invoke configure() first.</b>
+	 * @param dataSource supplies lines with getNext() until it returns null
+	 * @param consumer
+	 * @return the number of Sentences
+	 */
+	public int formatText(IDataSource<String> dataSource, Consumer<Sentence> consumer) {
+		return formatText(dataSource::getNext, consumer);
+	}
+	
+	/**
+	 * Formats lines as formatText(IDataSource, Consumer) does.
+	 * @param lines supplies lines until it returns null
+	 * @param consumer
+	 * @return the number of Sentences
+	 */
+	public int formatText(Supplier<String> lines, Consumer<Sentence> consumer) {
+		Book streamingBook = streamText(lines);
+		Sentence sentence = null;
+		while((sentence = streamingBook.get()) != null) {
+			consumer.accept(sentence);
+		}
+		return streamingBook.size();
+	}
+	
+	/**
+	 * Formats lines as formatText(IDataSource, Consumer) does, but only as Sentences are asked for.
+	 * <b>NOTE - invoke configure() first.</b>
+	 * @param lines supplies lines until it returns null
+	 * @return a StreamingBook supplying the formatted Sentences
+	 */
+	public StreamingBook streamText(Supplier<String> lines) {
+		IDataFormatter<String> dataFormatter = getDataFormatter();
+		StreamingBook streamingBook = new StreamingBook(lines);
+		streamingBook.setName(schemaName);
+		streamingBook.setVocabulary(vocabulary);
+		if(dataFormatter != null) {
+			streamingBook.setLineFormatter(line -> {
+				String formattedText = dataFormatter.format(line);
+				Sentence sentence = new Sentence(convertTextLine(formattedText), formattedText);
+				sentence.setId(dataFormatter.getId());
+				return sentence;
+			});
+		}
+		return streamingBook;
+	}
+	
 	/**
 	 * Filter punctuation. Convert to LC if ignoring case. Substitute word variants if configured.</br>
 	 * Filter numbers, internet addresses, words in UPPER CASE if configured.
+	 * @see TextFilter
 	 */
 	public String convertTextLine(String sourceText) {
-		String convertedText = isIgnoreCase() ? sourceText.toLowerCase() : sourceText;
-		boolean isFiltering = isFilteringPunctuation() || isIgnoreWordsContainingNumbers() || isIgnoreWordsInUppercase() || isIgnoreInternetAndFileAddresses();
-		if((isFilteringInputText() && getFilterWords().size() > 0) || isFiltering) {
-			
-			StringBuilder sb = new StringBuilder();
-			BreakIterator wordBoundry = BreakIterator.getWordInstance(Locale.US);
-			BreakIterator sentenceBoundry = BreakIterator.getSentenceInstance();
+		return getTextFilter().apply(sourceText);
+	}
 
-			int start = 0;
-			int end = 0;
-			sentenceBoundry.setText(convertedText);
-			wordBoundry.setText(convertedText);
-			while((end=wordBoundry.next()) != BreakIterator.DONE) {
-				boolean saveWord = true;	// if true, save temp
-				String temp = convertedText.substring(start, end).trim();
-				if(temp.length() > 0) {
-					if(isSubstituteWordVariants() && getVariantMap().containsKey(temp)) {
-						String variant = getVariantMap().get(temp);
-						saveWord = false;
-						if(!filterWords.contains(variant)) {
-							sb.append(variant + " ");
-						}
-					}
-					else if((isFilteringPunctuation() && filterPunctuation.contains(temp)) || (isFilteringInputText() && filterWords.contains(temp))  ) {
-							// skip the punctuation
-						saveWord = false;
-					}
-					else if(isIgnoreWordsContainingNumbers()) {
-						Matcher m = numberPattern.matcher(temp);
-						saveWord = !m.matches();
-					}
-					if(saveWord) {
-						sb.append(temp + " ");
-					}
-				}
-				start = end;
-			}
-			convertedText = sb.toString();
+	/**
+	 * @return the filters of this TextConfigurator compiled into a TextFilter.
+	 * It is compiled again after configure() or a setter changes them.
+	 */
+	public TextFilter getTextFilter() {
+		TextFilter filter = textFilter;
+		if(filter == null) {
+			filter = new TextFilter(this);
+			textFilter = filter;
 		}
-		return convertedText;
+		return filter;
 	}
 
 	public Book getBook() {
 		return book;
 	}
 
+	public Vocabulary getVocabulary() {
+		return vocabulary;
+	}
+
+	/**
+	 * @param vocabulary if not null the Words of every Sentence formatted are interned in it
+	 * as the Sentence is created, so equal Words are the same instance. Default is null.
+	 */
+	public void setVocabulary(Vocabulary vocabulary) {
+		this.vocabulary = vocabulary;
+	}
+
 	public boolean isIgnoreCase() {
 		return ignoreCase;
 	}
 
 	public void setIgnoreCase(boolean ignoreCase) {
 		this.ignoreCase = ignoreCase;
+		textFilter = null;
 	}
 
 	public boolean isFilteringInputText() {
@@ -250,6 +283,7 @@ public class TextConfigurator {
 
 	public void setFilteringInputText(boolean isFilteringInputText) {
 		this.isFilteringInputText = isFilteringInputText;
+		textFilter = null;
 	}
 
 	public boolean isFilteringPunctuation() {
@@ -258,6 +292,7 @@ public class TextConfigurator {
 
 	public void setFilteringPunctuation(boolean isFilteringPunctuation) {
 		this.isFilteringPunctuation = isFilteringPunctuation;
+		textFilter = null;
 	}
 
 	public boolean isIgnoreWordsContainingNumbers() {
@@ -266,6 +301,7 @@ public class TextConfigurator {
 
 	public void setIgnoreWordsContainingNumbers(boolean ignoreWordsContainingNumbers) {
 		this.ignoreWordsContainingNumbers = ignoreWordsContainingNumbers;
+		textFilter = null;
 	}
 
 	public boolean isIgnoreWordsInUppercase() {
@@ -274,6 +310,7 @@ public class TextConfigurator {
 
 	public void setIgnoreWordsInUppercase(boolean ignoreWordsInUppercase) {
 		this.ignoreWordsInUppercase = ignoreWordsInUppercase;
+		textFilter = null;
 	}
 
 	public boolean isIgnoreInternetAndFileAddresses() {
@@ -282,6 +319,7 @@ public class TextConfigurator {
 
 	public void setIgnoreInternetAndFileAddresses(boolean ignoreInternetAndFileAddresses) {
 		this.ignoreInternetAndFileAddresses = ignoreInternetAndFileAddresses;
+		textFilter = null;
 	}
 
 	public Configuration getConfiguration() {
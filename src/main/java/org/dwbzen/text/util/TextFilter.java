@@ -0,0 +1,244 @@
+package org.dwbzen.text.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.dwbzen.text.element.TextTokenizer;
+
+/**
+ * The word filters of a TextConfigurator compiled for convertTextLine.<br>
+ * Words to ignore and punctuation are HashSets built once, and numbers, words in UPPER CASE
+ * and internet and file addresses are recognized by scanning their characters, so a line is
+ * filtered in one pass over its tokens.</p>
+ *
+ * Each token is checked in this order:<br>
+ * 1. a token in an internet or file address is dropped, if ignoring addresses.
+ * An address is a run of non-white space characters such as http://dwbzen.org, www.dwbzen.org,
+ * don@dwbzen.org, /usr/local/bin or C:\temp<br>
+ * 2. a word in UPPER CASE, that has at least 2 letters and no lower case letters, is dropped if ignoring upper case words<br>
+ * 3. the token is converted to lower case if ignoring case<br>
+ * 4. a word with a variant is replaced by the variant, unless the variant is a word to ignore.
+ * As in convertTextLine, variants are only substituted when one of the other filters is on<br>
+ * 5. punctuation and words to ignore are dropped, if filtered<br>
+ * 6. a number, as matched by TextConfigurator.numberPattern, is dropped if ignoring numbers</p>
+ *
+ * A TextFilter does not change, and can be shared by several threads.
+ *
+ * @see TextConfigurator#getTextFilter()
+ */
+public class TextFilter {
+
+	private final Set<String> wordsToIgnore;
+	private final Set<String> punctuation;
+	private final Map<String, String> variantMap;	// null if not substituting variants
+	private final boolean ignoreCase;
+	private final boolean filteringWords;
+	private final boolean filteringPunctuation;
+	private final boolean ignoreNumbers;
+	private final boolean ignoreUppercase;
+	private final boolean ignoreAddresses;
+
+	/**
+	 * @param configurator a configured TextConfigurator
+	 */
+	public TextFilter(TextConfigurator configurator) {
+		wordsToIgnore = toSet(configurator.getFilterWords());
+		punctuation = toSet(configurator.getFilterPunctuation());
+		variantMap = (configurator.isSubstituteWordVariants() && configurator.getVariantMap() != null) ? configurator.getVariantMap() : null;
+		ignoreCase = configurator.isIgnoreCase();
+		filteringWords = configurator.isFilteringInputText() && !wordsToIgnore.isEmpty();
+		filteringPunctuation = configurator.isFilteringPunctuation();
+		ignoreNumbers = configurator.isIgnoreWordsContainingNumbers();
+		ignoreUppercase = configurator.isIgnoreWordsInUppercase();
+		ignoreAddresses = configurator.isIgnoreInternetAndFileAddresses();
+	}
+
+	private static Set<String> toSet(Collection<String> strings) {
+		return (strings == null) ? Collections.emptySet() : new HashSet<>(strings);
+	}
+
+	/**
+	 * @return true if apply(String) changes anything but case. Substituting variants alone does not filter.
+	 */
+	public boolean isFiltering() {
+		return filteringWords || filteringPunctuation || ignoreNumbers || ignoreUppercase || ignoreAddresses;
+	}
+
+	/**
+	 * @param text a line of text
+	 * @return the tokens of text that are kept, each followed by a space
+	 */
+	public String apply(String text) {
+		if(!isFiltering()) {
+			return ignoreCase ? text.toLowerCase() : text;
+		}
+		LineFilter lineFilter = new LineFilter(text);
+		TextTokenizer.words(text, 0, text.length(), lineFilter);
+		return lineFilter.sb.toString();
+	}
+
+	/**
+	 * @param token
+	 * @return the token to keep, a variant of it, or null to drop it
+	 */
+	public String filter(String token) {
+		if(ignoreUppercase && isUppercase(token)) {
+			return null;
+		}
+		String word = ignoreCase ? token.toLowerCase() : token;
+		if(variantMap != null) {
+			String variant = variantMap.get(word);
+			if(variant != null) {
+				return wordsToIgnore.contains(variant) ? null : variant;
+			}
+		}
+		if((filteringPunctuation && punctuation.contains(word)) || (filteringWords && wordsToIgnore.contains(word))) {
+			return null;
+		}
+		if(ignoreNumbers && isNumber(word)) {
+			return null;
+		}
+		return word;
+	}
+
+	/*
+	 * Keeps the position of the address being skipped across tokens.
+	 */
+	private class LineFilter implements TextTokenizer.TokenConsumer {
+		private final String text;
+		private final StringBuilder sb;
+		private int skipTo = 0;		// end of an address
+
+		LineFilter(String text) {
+			this.text = text;
+			sb = new StringBuilder(text.length() + 16);
+		}
+
+		@Override
+		public void accept(int start, int end, int flags) {
+			if((flags & TextTokenizer.WHITE_SPACE) != 0 || start < skipTo) {
+				return;
+			}
+			if(ignoreAddresses && (start == 0 || Character.isWhitespace(text.charAt(start - 1)))) {
+				int addressEnd = start;
+				while(addressEnd < text.length() && !Character.isWhitespace(text.charAt(addressEnd))) {
+					addressEnd++;
+				}
+				if(isAddress(text, start, addressEnd)) {
+					skipTo = addressEnd;
+					return;
+				}
+			}
+			String token = text.substring(start, end).trim();
+			if(token.length() > 0) {
+				String word = filter(token);
+				if(word != null) {
+					sb.append(word).append(' ');
+				}
+			}
+		}
+	}
+
+	/**
+	 * Same as TextConfigurator.numberPattern: digits, optionally followed by a '.' and more digits.
+	 * @param token
+	 * @return true if token is a number
+	 */
+	public static boolean isNumber(CharSequence token) {
+		int length = token.length();
+		int i = 0;
+		while(i < length && isDigit(token.charAt(i))) {
+			i++;
+		}
+		if(i == 0) {
+			return false;
+		}
+		if(i < length && token.charAt(i) == '.') {
+			i++;
+		}
+		while(i < length && isDigit(token.charAt(i))) {
+			i++;
+		}
+		return i == length;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * @param token
+	 * @return true if token has at least 2 letters and no lower case letters, for example "NASA" or "HTTP2"
+	 */
+	public static boolean isUppercase(CharSequence token) {
+		int letters = 0;
+		for(int i=0; i<token.length(); i++) {
+			char c = token.charAt(i);
+			if(Character.isLowerCase(c)) {
+				return false;
+			}
+			if(Character.isLetter(c)) {
+				letters++;
+			}
+		}
+		return letters >= 2;
+	}
+
+	/**
+	 * @param text
+	 * @param start beginning of a run of non-white space characters
+	 * @param end end of the run, exclusive
+	 * @return true if the run is a URL ("://"), starts with "www.", is an email address,
+	 * or is a file path starting with "/", "\", "~/", "./", "../" or a drive letter
+	 */
+	public static boolean isAddress(CharSequence text, int start, int end) {
+		int length = end - start;
+		if(length < 2) {
+			return false;
+		}
+		char c = text.charAt(start);
+		char c1 = text.charAt(start + 1);
+		if(c == '/' || c == '\\') {
+			return Character.isLetterOrDigit(c1) || c1 == '_' || c1 == '.' || c1 == c;
+		}
+		if((c == '~' && c1 == '/') || (c == '.' && (c1 == '/' || c1 == '\\'))) {
+			return true;
+		}
+		if(c == '.' && c1 == '.' && length > 2 && (text.charAt(start + 2) == '/' || text.charAt(start + 2) == '\\')) {
+			return true;
+		}
+		if(length > 2 && Character.isLetter(c) && c1 == ':' && (text.charAt(start + 2) == '\\' || text.charAt(start + 2) == '/')) {
+			return true;
+		}
+		if(length > 4 && regionMatches(text, start, "www.")) {
+			return true;
+		}
+		int at = -1;
+		for(int i=start; i<end; i++) {
+			char ch = text.charAt(i);
+			if(ch == ':' && i + 2 < end && text.charAt(i + 1) == '/' && text.charAt(i + 2) == '/' && i > start) {
+				return true;
+			}
+			if(ch == '@' && at < 0 && i > start) {
+				at = i;
+			}
+			else if(ch == '.' && at > 0 && i > at + 1 && i < end - 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean regionMatches(CharSequence text, int start, String prefix) {
+		for(int i=0; i<prefix.length(); i++) {
+			if(Character.toLowerCase(text.charAt(start + i)) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
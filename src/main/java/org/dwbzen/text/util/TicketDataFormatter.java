@@ -30,12 +30,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class TicketDataFormatter implements IDataFormatter<String> {
 
 	static ObjectMapper mapper = new ObjectMapper();
+	static {
+		mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+	}
 	private ServiceTickets serviceTickets = null;
 	private ServiceTicket serviceTicket = null;
 	
 	public TicketDataFormatter() {
-		mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
 	}
 	
 	public Sentence formatAsSentence(String rawData) {
@@ -0,0 +1,329 @@
+package org.dwbzen.text.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An immutable Map of word variant to primary word, such as 2+2lemma_map.txt, in a compact form.<br>
+ * The characters of all the variants are in one char[]. The values are shared Strings, as there are
+ * far fewer primary words than variants. An open addressing table of entry numbers, hashed by String.hashCode,
+ * makes get(variant) an O(1) lookup that creates nothing.</p>
+ *
+ * getInstance(String) loads each file once and shares the VariantIndex across the process,
+ * so every TextConfigurator uses the same one.
+ * The file can be a variant map text file of "variant,word" lines,
+ * or an index file written ahead of time by write(String), which loads without parsing or splitting lines.
+ * The format is detected from the first bytes.</p>
+ *
+ * Syntax: VariantIndex &lt;variant map file&gt; &lt;index file&gt;
+ *
+ * @see WordListUtils#createWordVariantMap()
+ */
+public class VariantIndex extends AbstractMap<String, String> {
+	protected static final Logger log = LogManager.getLogger(VariantIndex.class);
+
+	static final int MAGIC = 0x56494458;	// "VIDX"
+	static final int VERSION = 1;
+	private static final Map<String, VariantIndex> instances = new HashMap<>();
+
+	private final char[] chars;			// the characters of the variants
+	private final int[] offsets;		// start of each variant in chars, and the end of the last
+	private final int[] hashes;			// String.hashCode of each variant
+	private final String[] words;		// the distinct primary words
+	private final int[] wordIds;		// the primary word of each variant
+	private final int[] table;			// entry number + 1 by hash, 0 if empty
+	private final int mask;
+
+	private VariantIndex(char[] chars, int[] offsets, String[] words, int[] wordIds) {
+		this.chars = chars;
+		this.offsets = offsets;
+		this.words = words;
+		this.wordIds = wordIds;
+		int numberOfEntries = wordIds.length;
+		hashes = new int[numberOfEntries];
+		int tableSize = Integer.highestOneBit(Math.max(2, numberOfEntries * 2 - 1)) << 1;
+		table = new int[tableSize];
+		mask = tableSize - 1;
+		for(int entry=0; entry<numberOfEntries; entry++) {
+			int h = 0;
+			for(int i=offsets[entry]; i<offsets[entry + 1]; i++) {
+				h = 31 * h + chars[i];
+			}
+			hashes[entry] = h;
+			int slot = spread(h) & mask;
+			while(table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = entry + 1;
+		}
+	}
+
+	private static int spread(int h) {
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @param variantMap
+	 * @return a VariantIndex of the entries of variantMap
+	 */
+	public static VariantIndex of(Map<String, String> variantMap) {
+		int numberOfEntries = variantMap.size();
+		int numberOfChars = 0;
+		for(String variant : variantMap.keySet()) {
+			numberOfChars += variant.length();
+		}
+		char[] chars = new char[numberOfChars];
+		int[] offsets = new int[numberOfEntries + 1];
+		int[] wordIds = new int[numberOfEntries];
+		Map<String, Integer> wordMap = new LinkedHashMap<>();
+		int entry = 0;
+		int offset = 0;
+		for(Map.Entry<String, String> mapEntry : variantMap.entrySet()) {
+			String variant = mapEntry.getKey();
+			variant.getChars(0, variant.length(), chars, offset);
+			offsets[entry] = offset;
+			offset += variant.length();
+			Integer wordId = wordMap.get(mapEntry.getValue());
+			if(wordId == null) {
+				wordId = wordMap.size();
+				wordMap.put(mapEntry.getValue(), wordId);
+			}
+			wordIds[entry++] = wordId;
+		}
+		offsets[numberOfEntries] = offset;
+		return new VariantIndex(chars, offsets, wordMap.keySet().toArray(new String[0]), wordIds);
+	}
+
+	/**
+	 * @param filename a variant map text file or an index file
+	 * @return the shared VariantIndex of the file, loaded the first time it is asked for
+	 * @throws IOException
+	 */
+	public static synchronized VariantIndex getInstance(String filename) throws IOException {
+		String path = new File(filename).getAbsolutePath();
+		VariantIndex variantIndex = instances.get(path);
+		if(variantIndex == null) {
+			variantIndex = load(filename);
+			instances.put(path, variantIndex);
+			log.debug("loaded " + variantIndex.size() + " variants from " + filename);
+		}
+		return variantIndex;
+	}
+
+	/**
+	 * Loads a new VariantIndex, not shared. Lines of a text file that are not "variant,word" are skipped,
+	 * as WordListUtils.getVariantMap(String) does.
+	 * @param filename a variant map text file or an index file
+	 * @return VariantIndex
+	 * @throws IOException
+	 */
+	public static VariantIndex load(String filename) throws IOException {
+		File file = new File(filename);
+		if(!file.canRead()) {
+			throw new IOException(filename + " does not exist or is unreadable");
+		}
+		try(InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			in.mark(4);
+			int magic = new DataInputStream(in).readInt();
+			in.reset();
+			if(magic == MAGIC) {
+				return read(new DataInputStream(in));
+			}
+		}
+		catch(EOFException e) {
+			// shorter than a magic number, so it is text
+		}
+		Map<String, String> variantMap = new LinkedHashMap<>();
+		try(BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line = null;
+			while((line = reader.readLine()) != null) {
+				String[] tokens = line.split(",");
+				if(tokens.length == 2) {
+					variantMap.put(tokens[0], tokens[1]);
+				}
+			}
+		}
+		return of(variantMap);
+	}
+
+	private static VariantIndex read(DataInputStream in) throws IOException {
+		if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("not a version " + VERSION + " variant index");
+		}
+		String[] words = new String[in.readInt()];
+		for(int i=0; i<words.length; i++) {
+			words[i] = in.readUTF();
+		}
+		int numberOfEntries = in.readInt();
+		int[] offsets = new int[numberOfEntries + 1];
+		int[] wordIds = new int[numberOfEntries];
+		for(int i=0; i<=numberOfEntries; i++) {
+			offsets[i] = in.readInt();
+		}
+		for(int i=0; i<numberOfEntries; i++) {
+			wordIds[i] = in.readInt();
+		}
+		char[] chars = new char[offsets[numberOfEntries]];
+		for(int i=0; i<chars.length; i++) {
+			chars[i] = in.readChar();
+		}
+		return new VariantIndex(chars, offsets, words, wordIds);
+	}
+
+	/**
+	 * Writes the index file loaded by getInstance(String) and load(String).
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void write(String filename) throws IOException {
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(words.length);
+			for(String word : words) {
+				out.writeUTF(word);
+			}
+			out.writeInt(wordIds.length);
+			for(int offset : offsets) {
+				out.writeInt(offset);
+			}
+			for(int wordId : wordIds) {
+				out.writeInt(wordId);
+			}
+			for(char c : chars) {
+				out.writeChar(c);
+			}
+		}
+	}
+
+	/**
+	 * @param key a variant
+	 * @return the primary word or null if key is not a variant
+	 */
+	@Override
+	public String get(Object key) {
+		int entry = find(key);
+		return (entry < 0) ? null : words[wordIds[entry]];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return find(key) >= 0;
+	}
+
+	private int find(Object key) {
+		if(!(key instanceof String)) {
+			return -1;
+		}
+		String variant = (String)key;
+		int h = variant.hashCode();
+		for(int slot = spread(h) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			int entry = table[slot] - 1;
+			if(hashes[entry] == h && matches(entry, variant)) {
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	private boolean matches(int entry, String variant) {
+		int start = offsets[entry];
+		if(offsets[entry + 1] - start != variant.length()) {
+			return false;
+		}
+		for(int i=0; i<variant.length(); i++) {
+			if(chars[start + i] != variant.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return wordIds.length;
+	}
+
+	/**
+	 * @return the entries, creating the variant String of each as it is iterated
+	 */
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private int entry = 0;
+
+					@Override
+					public boolean hasNext() {
+						return entry < wordIds.length;
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if(!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						String variant = new String(chars, offsets[entry], offsets[entry + 1] - offsets[entry]);
+						return new AbstractMap.SimpleImmutableEntry<>(variant, words[wordIds[entry++]]);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return wordIds.length;
+			}
+		};
+	}
+
+	/**
+	 * @return the distinct primary words
+	 */
+	public int numberOfWords() {
+		return words.length;
+	}
+
+	@Override
+	public String toString() {
+		return "VariantIndex " + size() + " variants of " + words.length + " words";
+	}
+
+	/**
+	 * Writes the index file of a variant map text file.
+	 * @param args variant map file, index file
+	 * @throws IOException
+	 */
+	public static void main(String... args) throws IOException {
+		if(args.length < 2) {
+			System.err.println("Syntax: VariantIndex <variant map file> <index file>");
+			return;
+		}
+		VariantIndex variantIndex = load(args[0]);
+		variantIndex.write(args[1]);
+		System.out.println(variantIndex.size() + " variants of " + variantIndex.numberOfWords() + " words written to " + args[1]);
+	}
+
+}
@@ -1,7 +1,15 @@
 package org.dwbzen.text.junit;
 
+import java.io.StringReader;
 import java.text.BreakIterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
+import org.dwbzen.text.element.Book;
+import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.StreamingBook;
+import org.dwbzen.text.element.Book.ContentType;
 import org.junit.Test;
 
 import junit.framework.TestCase;
@@ -10,7 +18,7 @@ public class BookTest extends TestCase {
 
 //	@Test
 //	public void testVerse() {
-//		String text = "No part of this publication may be reproduced , stored in a. retrieval system , or transmitted in any form or by. any meanselectronic , mechanical , photocopying , recording . or otherwithout the written permission of the publisher\n";
+//		String text = "No part of this publication may be reproduced , stored in a. retrieval system , or transmitted in any form or by. any means�electronic , mechanical , photocopying , recording . or other�without the written permission of the publisher\n";
 //		Book book = new Book(text);
 //		Sentence sentence = null;
 //		Word word = null;
@@ -28,12 +36,67 @@ public class BookTest extends TestCase {
 	@Test
 	public void testBoundary() {
 		// Sentence break iterator looks for Upper Case after the period
-		String stringToExamine = "No part of this publication may be reproduced , stored in a . Retrieval system , or transmitted in any form or by. Any meanselectronic , mechanical , photocopying , recording . Or otherwithout the written permission of the publisher.";
+		String stringToExamine = "No part of this publication may be reproduced , stored in a . Retrieval system , or transmitted in any form or by. Any means�electronic , mechanical , photocopying , recording . Or other�without the written permission of the publisher.";
         BreakIterator boundary = BreakIterator.getSentenceInstance();
         boundary.setText(stringToExamine);
         printEachForward(boundary, stringToExamine);
 	}
 
+	@Test
+	public void testStreamingBook() {
+		Book book = new Book("The cat sat on the mat. The dog sat on the log and ran away. It was late.");
+		StreamingBook streamingBook = new StreamingBook(new StringReader("The cat sat on the mat. The dog sat\n# a comment\n\non the log\nand ran away. It was late.\n"), ContentType.PROSE);
+		List<Sentence> sentences = book.getSentences();
+		for(Sentence sentence : sentences) {
+			assertEquals(sentence.toString(), streamingBook.get().toString());
+		}
+		assertNull(streamingBook.get());
+		assertTrue(streamingBook.isEmpty());
+		assertEquals(sentences.size(), streamingBook.size());
+
+		StreamingBook verse = new StreamingBook(new StringReader("Roses are red\nviolets are blue\n"), ContentType.VERSE);
+		assertEquals("Roses are red", verse.get().toString());
+		assertEquals("violets are blue", verse.get().toString());
+		assertNull(verse.get());
+	}
+
+	@Test
+	public void testStreamingBookWithoutTerminators() {
+		StringBuilder lines = new StringBuilder();
+		for(int i=0; i<100; i++) {
+			lines.append("server started on port ").append(i).append('\n');
+		}
+		StreamingBook streamingBook = new StreamingBook(new StringReader(lines.toString()), ContentType.PROSE);
+		streamingBook.setMaximumSentenceLength(200);
+		int numberOfWords = 0;
+		for(Sentence sentence = streamingBook.get(); sentence != null; sentence = streamingBook.get()) {
+			assertTrue(sentence.toString(), sentence.toString().length() <= 250);
+			numberOfWords += sentence.size();
+		}
+		assertEquals(500, numberOfWords);
+		assertTrue(streamingBook.size() > 1);
+	}
+
+	@Test
+	public void testStream() {
+		Book book = new Book("The cat sat on the mat. The dog sat on the log and ran away. It was late.");
+		int numberOfWords = book.getSentences().stream().mapToInt(Sentence::size).sum();
+		assertEquals(numberOfWords, book.parallelStream().mapToInt(sentence -> (int)sentence.parallelStream().count()).sum());
+		assertEquals(book.size(), book.stream().count());
+		assertTrue(book.spliterator().hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+		assertNotNull(book.get());		// streams don't move the current Sentence
+
+		Sentence sentence = book.getSentences().get(0);
+		Object[] words = sentence.toArray();
+		assertEquals(sentence.size(), words.length);
+		assertEquals(sentence.get(0), words[0]);
+		assertTrue(sentence.containsAll(sentence.subList(1, 3)));
+
+		StreamingBook streamingBook = new StreamingBook(new StringReader("The cat sat on the mat.\nThe dog sat on the log and ran away. It was late.\n"), ContentType.PROSE);
+		assertEquals(book.getSentences().toString(), streamingBook.stream().collect(Collectors.toList()).toString());
+		assertNull(streamingBook.get());
+	}
+
 	 public static void printEachForward(BreakIterator boundary, String source) {
 	     int start = boundary.first();
 	     for (int end = boundary.next();
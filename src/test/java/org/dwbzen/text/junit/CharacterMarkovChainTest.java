@@ -0,0 +1,339 @@
+package org.dwbzen.text.junit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.dwbzen.text.cp.CharacterCollector;
+import org.dwbzen.text.cp.CharacterMarkovChain;
+import org.dwbzen.text.cp.ICharacterMarkovChain;
+import org.dwbzen.text.cp.MappedMarkovChain;
+import org.dwbzen.text.cp.MarkovChainSerializer;
+import org.dwbzen.text.cp.WordProducer;
+import org.dwbzen.text.element.Word;
+import org.dwbzen.text.util.BloomFilter;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class CharacterMarkovChainTest extends TestCase {
+
+	/**
+	 * The testWordSample.txt words documented in CharacterCollector
+	 */
+	private List<String> sample = Arrays.asList("DON", "DONALD", "DONNA", "ALDO", "NEDA");
+	private CharacterMarkovChain markovChain = null;
+	private CharacterCollector collector = null;
+
+	@Override
+	protected void setUp() {
+		collector = new CharacterCollector(3, sample, false);
+		markovChain = new CharacterMarkovChain(3);
+		collector.setCharacterMarkovChain(markovChain);
+		collector.collect();
+	}
+
+	@Test
+	public void testOccurrences() {
+		int state = markovChain.getState(markovChain.key(new Word("ALD")));
+		assertTrue(state != CharacterMarkovChain.NO_STATE);
+		assertEquals(2, markovChain.getTotalOccurrence(state));
+		assertEquals(2, markovChain.getFanout(state));
+		assertEquals(Word.TERMINAL.charValue(), markovChain.pickSuccessor(state, 1));	// DONALD
+		assertEquals('O', markovChain.pickSuccessor(state, 2));		// ALDO
+
+		state = markovChain.getState(markovChain.key(new Word("DON")));
+		assertEquals(3, markovChain.getTotalOccurrence(state));
+		assertEquals(3, markovChain.getFanout(state));
+	}
+
+	@Test
+	public void testInitialAndTerminal() {
+		int state = markovChain.getState(markovChain.key(new Word(" DO")));
+		assertTrue(markovChain.isInitial(state));
+		assertFalse(markovChain.isTerminal(state));
+		assertEquals(3, markovChain.getOccurrence(state, 0));
+
+		state = markovChain.getState(markovChain.key(new Word("DA" + Word.TERMINAL)));
+		assertTrue(markovChain.isTerminal(state));
+		assertEquals(Word.NULL_VALUE.charValue(), markovChain.getSuccessor(state, 0));
+	}
+
+	@Test
+	public void testKeys() {
+		long key = markovChain.key(new Word("NED"));
+		assertEquals("NED", markovChain.toWord(key).toString());
+		assertEquals("EDA", markovChain.toWord(markovChain.roll(key, 'A')).toString());
+	}
+
+	@Test
+	public void testPickSeedKey() {
+		for(int i=0; i<20; i++) {
+			assertFalse(markovChain.isTerminal(markovChain.getState(markovChain.pickSeedKey())));
+		}
+		CharacterMarkovChain terminalChain = new CharacterMarkovChain(3);
+		try {
+			terminalChain.pickSeedKey();
+			fail("picked a seed from an empty chain");
+		}
+		catch(IllegalStateException e) {
+			// expected
+		}
+		terminalChain.addOccurrence(terminalChain.key(new Word("DA" + Word.TERMINAL)), Word.NULL_VALUE, false);
+		try {
+			terminalChain.pickSeedKey();
+			fail("picked a terminal seed");
+		}
+		catch(IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testProducer() {
+		markovChain.setPickInitialSeed(true);
+		Word seed = markovChain.pickSeed();
+		assertTrue(seed.toString().startsWith(Word.DELIM_STRING));
+		WordProducer producer = WordProducer.instance(3, markovChain, seed);
+		producer.setNumberOfWords(5);
+		producer.setMinimumWordLength(3);
+		Set<Word> words = producer.produce(false);
+		assertTrue(words.size() > 0);
+		for(Word word : words) {
+			assertTrue(word.trimmedSize() >= 3);
+		}
+	}
+
+	@Test
+	public void testConstrainLength() {
+		markovChain.setPickInitialSeed(true);
+		WordProducer producer = WordProducer.instance(3, markovChain, new Word(" DO"));
+		producer.setNumberOfWords(20);
+		producer.setMinimumWordLength(5);
+		producer.setMaximumLength(6);
+		producer.setConstrainLength(true);
+		Set<Word> words = producer.produce(false);
+		assertFalse(words.isEmpty());
+		assertEquals(20, producer.getWordListChain().size());
+		for(Word word : producer.getWordListChain()) {
+			assertTrue(word.toString(), word.trimmedSize() >= 5 && word.trimmedSize() <= 6);
+		}
+
+		producer = WordProducer.instance(3, markovChain, new Word(" DO"));
+		producer.setNumberOfWords(20);
+		producer.setMinimumWordLength(20);
+		producer.setMaximumLength(30);
+		producer.setConstrainLength(true);
+		assertTrue(producer.produce(false).isEmpty());
+		assertTrue(producer.getWordListChain().isEmpty());
+	}
+
+	@Test
+	public void testConstrainExactLength() {
+		markovChain.setPickInitialSeed(true);
+		WordProducer producer = WordProducer.instance(3, markovChain, new Word(" DO"));
+		producer.setNumberOfWords(5);
+		producer.setMinimumWordLength(6);
+		producer.setMaximumLength(6);
+		producer.setConstrainLength(true);
+		assertFalse(producer.produce(false).isEmpty());
+		assertEquals(5, producer.getWordListChain().size());
+		for(Word word : producer.getWordListChain()) {
+			assertEquals(word.toString(), 6, word.trimmedSize());
+		}
+	}
+
+	@Test
+	public void testPrefixes() {
+		WordProducer producer = WordProducer.instance(3, markovChain, new Word(" DO"));
+		producer.setNumberOfWords(20);
+		producer.setMinimumWordLength(3);
+		producer.setPrefixes(Arrays.asList("DONA", "A", "XY"));
+		Set<Word> words = producer.produce(false);
+		assertFalse(words.isEmpty());
+		for(Word word : producer.getWordListChain()) {
+			assertTrue(word.toString(), word.toString().startsWith(" DONA") || word.toString().startsWith(" A"));
+		}
+
+		producer.setPrefix("NOPE");
+		producer.setNumberOfWords(40);
+		assertTrue(producer.produce(false).isEmpty());
+	}
+
+	@Test
+	public void testSuffixes() {
+		CharacterCollector reverseCollector = new CharacterCollector(3, sample, false);
+		CharacterMarkovChain reverseChain = new CharacterMarkovChain(3);
+		reverseCollector.setCharacterMarkovChain(reverseChain);
+		reverseCollector.setReverse(true);
+		reverseCollector.collect();
+		assertTrue(reverseChain.isInitial(reverseChain.getState(reverseChain.key(new Word(" DL")))));	// DONALD
+
+		WordProducer producer = WordProducer.instance(3, reverseChain, new Word(" AD"));
+		producer.setNumberOfWords(20);
+		producer.setMinimumWordLength(3);
+		producer.setSuffixes(Arrays.asList("NNA", "DA"));
+		assertFalse(producer.produce(false).isEmpty());
+		for(Word word : producer.getWordListChain()) {
+			assertTrue(word.toString(), word.toString().startsWith(Word.DELIM_STRING));
+			assertTrue(word.toString(), word.toString().endsWith("NNA") || word.toString().endsWith("DA"));
+		}
+	}
+
+	@Test
+	public void testNoveltyFilter() {
+		BloomFilter noveltyFilter = WordProducer.noveltyFilter(sample, 0.01);
+		int falsePositives = 0;
+		for(int i=0; i<1000; i++) {
+			falsePositives += noveltyFilter.mightContain("word" + i) ? 1 : 0;
+		}
+		assertTrue(falsePositives < 50);
+
+		WordProducer producer = WordProducer.instance(3, markovChain, new Word(" DO"));
+		producer.setNumberOfWords(10);
+		producer.setMinimumWordLength(3);
+		producer.setNoveltyFilter(noveltyFilter);
+		producer.produce(false);
+		for(Word word : producer.getWordListChain()) {
+			assertFalse(word.toString(), sample.contains(word.toString().trim()));
+		}
+	}
+
+	@Test
+	public void testSupplierTracking() {
+		for(int parallelism=1; parallelism<=2; parallelism++) {
+			CharacterCollector wordIdCollector = new CharacterCollector(3, sample, false);
+			wordIdCollector.setSupplierTracking(CharacterCollector.SupplierTracking.WORD_ID);
+			wordIdCollector.setParallelism(parallelism);
+			wordIdCollector.collect();
+			int[] wordIds = wordIdCollector.getSupplierWordIds(new Word("ALD"));
+			assertEquals(2, wordIds.length);
+			assertEquals("DONALD", wordIdCollector.getSupplierWord(wordIds[0]));
+			assertEquals("ALDO", wordIdCollector.getSupplierWord(wordIds[1]));
+			assertEquals(3, wordIdCollector.getSupplierCount(new Word(" DO")));
+		}
+
+		CharacterCollector countCollector = new CharacterCollector(3, sample, false);
+		countCollector.setSupplierTracking(CharacterCollector.SupplierTracking.COUNT);
+		countCollector.collect();
+		assertEquals(3, countCollector.getSupplierCount(new Word(" DO")));
+		assertEquals(0, countCollector.getSupplierWordIds(new Word(" DO")).length);
+	}
+
+	@Test
+	public void testParallelCollect() {
+		Random random = new Random(42L);
+		List<Word> words = new ArrayList<>();
+		for(int i=0; i<5000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = 2 + random.nextInt(8);
+			for(int j=0; j<length; j++) {
+				sb.append("ADELNOR".charAt(random.nextInt(7)));
+			}
+			words.add(new Word(sb.toString()));
+		}
+		CharacterMarkovChain sequentialChain = new CharacterMarkovChain(3);
+		CharacterCollector collector = new CharacterCollector(3, new ArrayList<String>(), false);
+		collector.setCharacterMarkovChain(sequentialChain);
+		collector.collect(words);
+
+		CharacterMarkovChain parallelChain = new CharacterMarkovChain(3);
+		collector = new CharacterCollector(3, new ArrayList<String>(), false);
+		collector.setCharacterMarkovChain(parallelChain);
+		collector.setParallelism(4);
+		collector.collect(words);
+
+		assertSameChain(sequentialChain, parallelChain);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MarkovChainSerializer.save(markovChain, out);
+		CharacterMarkovChain loadedChain = MarkovChainSerializer.loadCharacterMarkovChain(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(3, loadedChain.getOrder());
+		assertSameChain(markovChain, loadedChain);
+		try {
+			MarkovChainSerializer.loadWordChain(new ByteArrayInputStream(out.toByteArray()));
+			fail("loaded a character chain as a word chain");
+		}
+		catch(IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testMappedChain() throws IOException {
+		File file = File.createTempFile("characterChain", ".mmc");
+		file.deleteOnExit();
+		MappedMarkovChain.write(markovChain, file.getPath());
+		MappedMarkovChain mappedChain = MappedMarkovChain.open(file.getPath());
+		assertTrue(mappedChain.isCharacterChain());
+		assertEquals(3, mappedChain.getOrder());
+		assertEquals(markovChain.size(), mappedChain.size());
+		// mapped state numbers can differ so compare by key
+		for(int state=0; state<markovChain.size(); state++) {
+			int mappedState = mappedChain.getState(markovChain.getKey(state));
+			assertEquals(markovChain.getKey(state), mappedChain.getKey(mappedState));
+			assertEquals(markovChain.getTotalOccurrence(state), mappedChain.getTotalOccurrence(mappedState));
+			assertEquals(markovChain.isInitial(state), mappedChain.isInitial(mappedState));
+			assertEquals(markovChain.isTerminal(state), mappedChain.isTerminal(mappedState));
+			assertEquals(markovChain.getFanout(state), mappedChain.getFanout(mappedState));
+			for(int i=0; i<markovChain.getFanout(state); i++) {
+				assertEquals(markovChain.getSuccessor(state, i), mappedChain.getSuccessor(mappedState, i));
+				assertEquals(markovChain.getOccurrence(state, i), mappedChain.getOccurrence(mappedState, i));
+			}
+		}
+		assertEquals(ICharacterMarkovChain.NO_STATE, mappedChain.getState(markovChain.key(new Word("XYZ"))));
+
+		mappedChain.setPickInitialSeed(true);
+		WordProducer producer = WordProducer.instance(3, mappedChain, mappedChain.pickSeed());
+		producer.setNumberOfWords(5);
+		producer.setMinimumWordLength(3);
+		assertTrue(producer.produce(false).size() > 0);
+	}
+
+	@Test
+	public void testUpdate() {
+		int state = markovChain.getState(markovChain.key(new Word(" DO")));
+		int numberOfStates = markovChain.size();
+		WordProducer producer = WordProducer.instance(3, markovChain, new Word(" DO"));
+		producer.setLock(collector.getLock());
+		producer.setNumberOfWords(5);
+		producer.setMinimumWordLength(3);
+		producer.produce(false);
+
+		assertEquals(1, collector.update(Arrays.asList("DONNY")));
+		assertEquals(4, markovChain.getTotalOccurrence(state));
+		assertEquals(numberOfStates + 2, markovChain.size());	// NNY and NY followed by TERMINAL
+		state = markovChain.getState(markovChain.key(new Word("NNY")));
+		assertEquals(Word.TERMINAL.charValue(), markovChain.pickSuccessor(state, 1));
+		producer.setNumberOfWords(10);
+		assertTrue(producer.produce(false).size() > 0);
+	}
+
+	/**
+	 * Same states in the same order with the same successors
+	 */
+	private void assertSameChain(CharacterMarkovChain expected, CharacterMarkovChain actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int state=0; state<expected.size(); state++) {
+			assertEquals(expected.getKey(state), actual.getKey(state));
+			assertEquals(expected.getTotalOccurrence(state), actual.getTotalOccurrence(state));
+			assertEquals(expected.isInitial(state), actual.isInitial(state));
+			assertEquals(expected.isTerminal(state), actual.isTerminal(state));
+			assertEquals(expected.getFanout(state), actual.getFanout(state));
+			for(int i=0; i<expected.getFanout(state); i++) {
+				assertEquals(expected.getSuccessor(state, i), actual.getSuccessor(state, i));
+				assertEquals(expected.getOccurrence(state, i), actual.getOccurrence(state, i));
+			}
+		}
+	}
+
+}
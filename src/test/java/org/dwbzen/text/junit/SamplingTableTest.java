@@ -0,0 +1,54 @@
+package org.dwbzen.text.junit;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.dwbzen.text.cp.SamplingTable;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class SamplingTableTest extends TestCase {
+
+	private String[] keys = {"a", "b", "c", "d", "e"};
+
+	@Test
+	public void testExactProbabilities() {
+		int[] weights = {1, 7, 3, 4, 10};
+		SamplingTable<String> samplingTable = new SamplingTable<>(keys, weights, weights.length);
+		assertEquals(25, samplingTable.getTotal());
+		// each index must be the result for exactly weight * size of all possible picks
+		int[] picked = new int[weights.length];
+		for(long r=0; r < samplingTable.getTotal() * samplingTable.size(); r++) {
+			picked[samplingTable.indexOf(r)]++;
+		}
+		for(int i=0; i<weights.length; i++) {
+			assertEquals(weights[i] * weights.length, picked[i]);
+		}
+	}
+
+	@Test
+	public void testSingleSuccessor() {
+		int[] weights = {3};
+		SamplingTable<String> samplingTable = new SamplingTable<>(keys, weights, 1);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for(int i=0; i<10; i++) {
+			assertEquals("a", samplingTable.pick(random));
+			assertEquals("a", samplingTable.pickUniform(random));
+		}
+	}
+
+	@Test
+	public void testUseContext() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int used = 0;
+		for(int i=0; i<1000; i++) {
+			assertTrue(SamplingTable.useContext(5, 0, random));
+			assertFalse(SamplingTable.useContext(0, 3, random));
+			if(SamplingTable.useContext(9, 1, random)) {
+				used++;
+			}
+		}
+		assertTrue(used > 800);		// expect 900
+	}
+
+}
@@ -1,6 +1,12 @@
 package org.dwbzen.text.junit;
 
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.TextTokenizer;
 import org.dwbzen.text.element.Word;
 import org.junit.Test;
 
@@ -98,5 +104,29 @@ public class SentenceTest extends TestCase {
 		}
 	}
 
+	@Test
+	public void test7_TextTokenizer() {
+		String[] texts = {testString, testString2, testString3, "Mr. Smith paid $3.50 for it...  Then he left! e.g. at 10:30 a.m. he was gone."};
+		for(String text : texts) {
+			BreakIterator wordBoundary = BreakIterator.getWordInstance(Locale.US);
+			wordBoundary.setText(text);
+			List<Integer> expected = new ArrayList<>();
+			for(int end = wordBoundary.next(); end != BreakIterator.DONE; end = wordBoundary.next()) {
+				expected.add(end);
+			}
+			List<Integer> ends = new ArrayList<>();
+			TextTokenizer.words(text, 0, text.length(), (start, end, flags) -> ends.add(end));
+			assertEquals(expected, ends);
+
+			BreakIterator sentenceBoundary = BreakIterator.getSentenceInstance();
+			sentenceBoundary.setText(text);
+			TextTokenizer tokenizer = new TextTokenizer(text);
+			int end;
+			do {
+				end = tokenizer.next();
+				assertEquals(sentenceBoundary.next(), end);
+			} while(end != TextTokenizer.DONE);
+		}
+	}
 	
 }
@@ -2,9 +2,11 @@ package org.dwbzen.text.junit;
 
 import java.util.List;
 
+import org.dwbzen.text.pos.Dictionary;
 import org.dwbzen.text.pos.DictionaryManager;
 import org.dwbzen.text.pos.IPartsOfSpeechManager;
 import org.dwbzen.text.pos.TextGenerator;
+import org.dwbzen.text.pos.WordPos;
 import org.junit.Test;
 
 import junit.framework.TestCase;
@@ -36,4 +38,23 @@ public class TextGeneratorTest extends TestCase  {
 			System.out.println(name);
 		}
 	}
+
+	@Test
+	public void testDictionaryLoad() {
+		Dictionary dictionary = Dictionary.instance("3eslpos");
+		List<WordPos> words = dictionary.getWords();
+		int[] index = {0};
+		int numberOfWords = Dictionary.load("3eslpos", (word, posList) -> {
+			WordPos wordPos = words.get(index[0]++);
+			assertEquals(wordPos.getWord(), word);
+			assertEquals(wordPos.getPos(), posList);
+		});
+		assertEquals(words.size(), numberOfWords);
+		assertEquals("3eslpos", dictionary.getName());
+
+		DictionaryManager dictionaryManager = DictionaryManager.instance();
+		assertEquals("N", dictionaryManager.lookup("abacus"));
+		List<String> nouns = dictionaryManager.getWords("N");
+		assertEquals(nouns.indexOf("abacus"), nouns.lastIndexOf("abacus"));	// each file is loaded once
+	}
 }
@@ -0,0 +1,227 @@
+package org.dwbzen.text.junit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.dwbzen.text.cp.WordCollector;
+import org.dwbzen.text.cp.WordCollectorRunner.WordCollectorBuilder;
+import org.dwbzen.text.element.Book;
+import org.dwbzen.text.element.NGram;
+import org.dwbzen.text.element.Sentence;
+import org.dwbzen.text.element.Vocabulary;
+import org.dwbzen.text.element.Word;
+import org.dwbzen.text.element.Book.ContentType;
+import org.dwbzen.text.util.Configuration;
+import org.dwbzen.text.util.ConfigurationRegistry;
+import org.dwbzen.text.util.PosUtil;
+import org.dwbzen.text.util.TextConfigurator;
+import org.dwbzen.text.util.TextFilter;
+import org.dwbzen.text.util.TicketDataFormatter;
+import org.dwbzen.text.util.VariantIndex;
+import org.dwbzen.common.cp.CollectorStats;
+import org.dwbzen.common.cp.MarkovChain;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class WordCollectorTest extends TestCase {
+
+	private String[] lines = {
+		"The cat sat on the mat. The dog sat on",
+		"the log and the cat ran away.",
+		"",
+		"# a comment line",
+		"Then the dog sat on the mat",
+		"and the cat sat on the log. The end."
+	};
+	private File textFile = null;
+
+	@Override
+	protected void setUp() throws IOException {
+		textFile = File.createTempFile("wordCollector", ".txt");
+		textFile.deleteOnExit();
+		try(PrintWriter writer = new PrintWriter(textFile)) {
+			for(String line : lines) {
+				writer.println(line);
+			}
+		}
+	}
+
+	@Test
+	public void testStreamingCollect() {
+		String[] collectorArg = {"file:" + textFile.getPath()};
+		WordCollector collector = WordCollectorBuilder.build(2, false, ContentType.PROSE, Optional.of("text"), false, collectorArg);
+		collector.collect();
+		MarkovChain<Word, Sentence, Book> markovChain = collector.getMarkovChain();
+
+		WordCollector streamingCollector = WordCollectorBuilder.build(2, false, ContentType.PROSE, Optional.of("text"), true, collectorArg);
+		assertTrue(streamingCollector.isStreaming());
+		assertNull(streamingCollector.getBook());
+		streamingCollector.collect();
+		MarkovChain<Word, Sentence, Book> streamedChain = streamingCollector.getMarkovChain();
+
+		assertFalse(markovChain.isEmpty());
+		assertEquals(markovChain.keySet(), streamedChain.keySet());
+		for(Sentence key : markovChain.keySet()) {
+			assertEquals(markovChain.get(key).getTotalOccurrance(), streamedChain.get(key).getTotalOccurrance());
+		}
+	}
+
+	@Test
+	public void testUpdate() {
+		String[] collectorArg = {"file:" + textFile.getPath()};
+		WordCollector collector = WordCollectorBuilder.build(2, false, ContentType.PROSE, Optional.of("text"), false, collectorArg);
+		collector.collect();
+		MarkovChain<Word, Sentence, Book> markovChain = collector.getMarkovChain();
+		int size = markovChain.size();
+		assertFalse(markovChain.containsKey(new Sentence("The bird")));
+
+		assertEquals(2, collector.update(Arrays.asList("The bird sat on", "the cat. The end.")));
+		assertTrue(markovChain.containsKey(new Sentence("The bird")));
+		assertTrue(markovChain.size() > size);
+	}
+
+	@Test
+	public void testParallelUpdate() {
+		String[] collectorArg = {"file:" + textFile.getPath()};
+		List<String> moreLines = Arrays.asList("The bird sat on", "the cat. The end.");
+		WordCollector collector = WordCollectorBuilder.build(2, false, ContentType.PROSE, Optional.of("text"), false, collectorArg);
+		collector.collect();
+		collector.update(moreLines);
+		WordCollector parallelCollector = WordCollectorBuilder.build(2, false, ContentType.PROSE, Optional.of("text"), false, collectorArg);
+		parallelCollector.setParallelism(2);
+		parallelCollector.collect();
+		MarkovChain<Word, Sentence, Book> parallelChain = parallelCollector.getMarkovChain();
+		CollectorStats<Word, Sentence, Book> cstats = parallelChain.get(new Sentence("sat on"));
+		parallelCollector.update(moreLines);
+
+		assertEquals(collector.getMarkovChain().keySet(), parallelChain.keySet());
+		assertSame(cstats, parallelChain.get(new Sentence("sat on")));
+		assertEquals(new NGram(new Word("the"), new Word("cat")), NGram.of(new Sentence("the cat sat"), 0, 2));
+	}
+
+	@Test
+	public void testVocabulary() {
+		String[] collectorArg = {"file:" + textFile.getPath()};
+		WordCollector collector = WordCollectorBuilder.build(2, false, ContentType.PROSE, Optional.of("text"), false, collectorArg);
+		collector.collect();
+		Vocabulary vocabulary = collector.getVocabulary();
+		Word cat = vocabulary.getWord(vocabulary.getId(new Word("cat")));
+		for(Sentence key : collector.getMarkovChain().keySet()) {
+			for(Word word : key) {
+				if(word.equals(cat)) {
+					assertSame(cat, word);
+				}
+			}
+		}
+		Sentence sentence = new Sentence("the cat sat on the dog");
+		int[] ids = vocabulary.intern(sentence);
+		assertEquals(ids[0], ids[4]);
+		assertSame(cat, sentence.get(1));
+		assertEquals(sentence.getSource(), vocabulary.toSentence(ids).getSource());
+		assertEquals(Vocabulary.TERMINAL_ID, vocabulary.getId(Sentence.TERMINAL));
+		assertEquals(Vocabulary.NO_ID, vocabulary.getId(new Word("bird")));
+	}
+
+	@Test
+	public void testMultiOrderCollect() {
+		String[] collectorArg = {"file:" + textFile.getPath()};
+		WordCollector collector = WordCollectorBuilder.build(3, false, ContentType.PROSE, Optional.of("text"), false, collectorArg);
+		collector.setMinimumOrder(1);
+		collector.collect();
+		MarkovChain<Word, Sentence, Book> markovChain = collector.getMarkovChain();
+		assertTrue(markovChain.containsKey(new Sentence("cat")));
+		assertTrue(markovChain.containsKey(new Sentence("the cat")));
+		assertTrue(markovChain.containsKey(new Sentence("the cat sat")));
+
+		// the same keys as collecting each order separately, without terminal states
+		for(int order=1; order<=3; order++) {
+			WordCollector orderCollector = WordCollectorBuilder.build(order, false, ContentType.PROSE, Optional.of("text"), false, collectorArg);
+			orderCollector.collect();
+			for(Sentence key : orderCollector.getMarkovChain().keySet()) {
+				assertTrue(key.contains(Sentence.TERMINAL) || markovChain.containsKey(key));
+			}
+		}
+	}
+
+	@Test
+	public void testTextFilter() {
+		TextConfigurator configurator = new TextConfigurator("none", ContentType.TECHNICAL, false);
+		configurator.configure();
+		int numberOfFilterWords = configurator.getFilterWords().size();
+		configurator.configure();
+		new TextConfigurator("none", ContentType.TECHNICAL, false).configure();
+		assertEquals(numberOfFilterWords, configurator.getFilterWords().size());	// the words to ignore don't grow
+
+		configurator.setFilteringInputText(true);
+		configurator.setFilteringPunctuation(true);
+		configurator.setIgnoreWordsContainingNumbers(true);
+		configurator.setIgnoreWordsInUppercase(true);
+		configurator.setIgnoreInternetAndFileAddresses(true);
+		String line = "The SERVER at www.dwbzen.org failed 3 times, see http://dwbzen.org/log and /var/log/server.log or mail don@dwbzen.org.";
+		assertEquals("The at failed times see or mail ", configurator.convertTextLine(line));
+		configurator.setIgnoreWordsInUppercase(false);
+		configurator.setIgnoreInternetAndFileAddresses(false);
+		assertTrue(configurator.convertTextLine(line).startsWith("The SERVER at www.dwbzen.org failed times see http "));
+		configurator.setFilteringInputText(false);
+		configurator.setFilteringPunctuation(false);
+		configurator.setIgnoreWordsContainingNumbers(false);
+		assertEquals(line, configurator.convertTextLine(line));	// no variants are substituted without a filter
+
+		assertTrue(TextFilter.isNumber("3.14") && TextFilter.isNumber("42") && !TextFilter.isNumber("3a"));
+		assertTrue(TextFilter.isUppercase("NASA") && !TextFilter.isUppercase("I") && !TextFilter.isUppercase("Nasa"));
+		assertFalse(TextFilter.isAddress("and/or", 0, 6));
+		assertTrue(TextFilter.isAddress("C:\\temp", 0, 7));
+	}
+
+	@Test
+	public void testVariantIndex() throws IOException {
+		File mapFile = File.createTempFile("variants", ".txt");
+		mapFile.deleteOnExit();
+		try(PrintWriter writer = new PrintWriter(mapFile)) {
+			writer.println("funnier,funny");
+			writer.println("funniest,funny");
+			writer.println("ran,run");
+			writer.println("not a variant");
+		}
+		VariantIndex variantIndex = VariantIndex.getInstance(mapFile.getPath());
+		assertSame(variantIndex, VariantIndex.getInstance(mapFile.getPath()));
+		assertEquals(3, variantIndex.size());
+		assertEquals(2, variantIndex.numberOfWords());
+		assertEquals("funny", variantIndex.get("funniest"));
+		assertNull(variantIndex.get("funny"));
+
+		File indexFile = File.createTempFile("variants", ".idx");
+		indexFile.deleteOnExit();
+		variantIndex.write(indexFile.getPath());
+		VariantIndex loadedIndex = VariantIndex.load(indexFile.getPath());
+		assertEquals(variantIndex, loadedIndex);
+		assertEquals("run", loadedIndex.get("ran"));
+	}
+
+	@Test
+	public void testConfigurationRegistry() {
+		assertSame(Configuration.getInstance(PosUtil.CONFIG_FILES), ConfigurationRegistry.getConfiguration());
+		ConfigurationRegistry.Settings settings = ConfigurationRegistry.getSettings(ContentType.TECHNICAL);
+		assertSame(settings, ConfigurationRegistry.getSettings(ContentType.TECHNICAL));
+		assertTrue(settings.filteringInputText);
+		assertFalse(ConfigurationRegistry.getSettings(ContentType.PROSE).filteringInputText);
+
+		TextConfigurator ticketConfigurator = new TextConfigurator("ticket", ContentType.TECHNICAL, false);
+		ticketConfigurator.configure();
+		assertTrue(ticketConfigurator.getDataFormatter() instanceof TicketDataFormatter);
+		TextConfigurator otherConfigurator = new TextConfigurator("ticket", ContentType.TECHNICAL, false);
+		otherConfigurator.configure();
+		assertNotSame(ticketConfigurator.getDataFormatter(), otherConfigurator.getDataFormatter());
+		assertNull(ConfigurationRegistry.getFormatterFactory("text").get());
+
+		ConfigurationRegistry.reload();
+		assertNotSame(settings, ConfigurationRegistry.getSettings(ContentType.TECHNICAL));
+		assertEquals(settings.filterWords, ConfigurationRegistry.getSettings(ContentType.TECHNICAL).filterWords);
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.dwbzen.text.junit;
 
+import java.util.List;
+
 import org.dwbzen.text.element.Word;
 import org.junit.Test;
 
@@ -43,6 +45,23 @@ public class WordTest extends TestCase {
 		assertTrue(word.getWordString().equals("gentyx"));
 	}
 
+	@Test
+	public void testSubset() {
+		word = new Word(" gentyx");
+		Word subset = word.subset(1, 4);
+		assertEquals("gen", subset.getWordString());
+		assertEquals(new Word("gen"), subset);
+		assertEquals(new Word("gen").hashCode(), subset.hashCode());
+		assertEquals(List.of('g', 'e', 'n').hashCode(), subset.hashCode());
+		subset.append('e');
+		assertEquals("gene", subset.getWordString());
+		assertEquals(" gentyx", word.getWordString());
+		word.set(1, 'j');
+		assertEquals("gene", subset.getWordString());
+		assertEquals(0, new Word("gen").compareTo(subset.subset(0, 3)));
+		assertTrue(new Word("gem").compareTo(new Word("gen")) < 0);
+	}
+
 	public String showCharacters(String s) {
 		StringBuilder sb = new StringBuilder();
 		for(Character c : word) {